@@ -0,0 +1,230 @@
+package world.bentobox.limits;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.logging.Logger;
+
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.World;
+import org.bukkit.World.Environment;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.EntityType;
+import org.mockbukkit.mockbukkit.MockBukkit;
+import org.mockbukkit.mockbukkit.ServerMock;
+import org.mockito.MockedConstruction;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+
+import world.bentobox.bentobox.BentoBox;
+import world.bentobox.bentobox.database.Database;
+import world.bentobox.bentobox.database.DatabaseSetup.DatabaseType;
+import world.bentobox.bentobox.database.objects.Island;
+import world.bentobox.bentobox.managers.IslandsManager;
+import world.bentobox.limits.listeners.BlockLimitsListener;
+import world.bentobox.limits.objects.IslandBlockCount;
+
+/**
+ * A synthetic server for the benchmarks: one game mode world holding {@link #ISLANDS}
+ * islands in a row, each with a realistic spread of block and entity counts, some
+ * island-specific (permission) limits, and the shipped config plus extra block limits
+ * and a block group.
+ *
+ * <p>Limits' own classes are real. BentoBox, the islands manager and the database are
+ * Mockito stubs, so absolute timings include some stub overhead: compare runs of the
+ * same benchmark, not numbers across benchmarks.
+ */
+public class SyntheticServer {
+
+    /** Number of islands. */
+    public static final int ISLANDS = 200;
+    /** Width of each island space along x. */
+    public static final int ISLAND_SPACE = 400;
+    public static final String GAME_MODE = "BSkyBlock";
+
+    private static final long SEED = 42;
+
+    private final ServerMock server;
+    private final World world;
+    private final Limits addon;
+    private final Island[] islands = new Island[ISLANDS];
+    private final BlockLimitsListener blockLimitListener;
+    /** Block materials with a limit or in a block group. */
+    private final List<Material> limited = new ArrayList<>();
+    /** Block materials placed on the islands. */
+    private final List<Material> placed = new ArrayList<>();
+
+    public SyntheticServer() {
+        server = MockBukkit.mock();
+        world = server.addSimpleWorld("bskyblock_world");
+        Random random = new Random(SEED);
+        for (Material m : Material.values()) {
+            if (m.isBlock() && !m.isAir() && !m.isLegacy()) {
+                placed.add(m);
+            }
+        }
+        Collections.shuffle(placed, random);
+
+        YamlConfiguration config = YamlConfiguration.loadConfiguration(new File("src/main/resources/config.yml"));
+        // Forty limited blocks, and a group of five more
+        for (Material m : placed.subList(0, 40)) {
+            config.set("blocklimits." + m.name(), 50 + random.nextInt(200));
+            limited.add(m);
+        }
+        List<String> group = new ArrayList<>();
+        for (Material m : placed.subList(40, 45)) {
+            group.add(m.name());
+            limited.add(m);
+        }
+        config.set("blockgrouplimits.Synthetic.icon", group.get(0));
+        config.set("blockgrouplimits.Synthetic.limit", 300);
+        config.set("blockgrouplimits.Synthetic.materials", group);
+
+        addon = mock(Limits.class, withSettings().stubOnly());
+        when(addon.getConfig()).thenReturn(config);
+        Settings settings = new Settings(addon);
+        when(addon.getSettings()).thenReturn(settings);
+        when(addon.isCoveredGameMode(anyString())).thenReturn(true);
+        when(addon.inGameModeWorld(world)).thenReturn(true);
+        when(addon.getGameModeName(world)).thenReturn(GAME_MODE);
+
+        IslandsManager im = mock(IslandsManager.class, withSettings().stubOnly());
+        @SuppressWarnings("unchecked")
+        Optional<Island>[] byIndex = new Optional[ISLANDS];
+        for (int i = 0; i < ISLANDS; i++) {
+            Island island = mock(Island.class, withSettings().stubOnly());
+            when(island.getUniqueId()).thenReturn("island" + i);
+            when(island.getCenter()).thenReturn(new Location(world, i * ISLAND_SPACE + ISLAND_SPACE / 2.0, 64, 0));
+            when(island.getGameMode()).thenReturn(GAME_MODE);
+            islands[i] = island;
+            byIndex[i] = Optional.of(island);
+        }
+        when(im.getIslandAt(any(Location.class))).thenAnswer(inv -> {
+            int i = Math.floorDiv(((Location) inv.getArgument(0)).getBlockX(), ISLAND_SPACE);
+            return i >= 0 && i < ISLANDS ? byIndex[i] : Optional.empty();
+        });
+        when(addon.getIslands()).thenReturn(im);
+
+        blockLimitListener = createListener();
+        when(addon.getBlockLimitListener()).thenReturn(blockLimitListener);
+        for (int i = 0; i < ISLANDS; i++) {
+            blockLimitListener.setIsland("island" + i, createCounts("island" + i, random));
+        }
+    }
+
+    /**
+     * The listener saves through BentoBox's database, which is stubbed while it is built.
+     */
+    private BlockLimitsListener createListener() {
+        BentoBox plugin = mock(BentoBox.class, withSettings().stubOnly());
+        when(plugin.getLogger()).thenReturn(Logger.getAnonymousLogger());
+        world.bentobox.bentobox.Settings pluginSettings = mock(world.bentobox.bentobox.Settings.class,
+                withSettings().stubOnly());
+        when(pluginSettings.getDatabaseType()).thenReturn(DatabaseType.JSON);
+        when(plugin.getSettings()).thenReturn(pluginSettings);
+        try (MockedStatic<BentoBox> bentoBox = Mockito.mockStatic(BentoBox.class);
+                MockedConstruction<Database> db = Mockito.mockConstruction(Database.class,
+                        (m, context) -> when(m.loadObjects()).thenReturn(Collections.emptyList()))) {
+            bentoBox.when(BentoBox::getInstance).thenReturn(plugin);
+            return new BlockLimitsListener(addon);
+        }
+    }
+
+    /**
+     * Counts for one island: around 150 block types in every environment, a handful of
+     * permission limits, and the entities of the shipped entity limits.
+     */
+    private IslandBlockCount createCounts(String id, Random random) {
+        IslandBlockCount ibc = new IslandBlockCount(id, GAME_MODE);
+        for (Environment env : Settings.ENVIRONMENTS) {
+            for (Material m : placed.subList(0, 150)) {
+                for (int n = random.nextInt(40); n > 0; n--) {
+                    ibc.add(env, m.getKey());
+                }
+            }
+            for (Material m : limited.subList(0, 5)) {
+                ibc.setBlockLimit(env, m.getKey(), 100 + random.nextInt(100));
+            }
+            for (EntityType type : getEntityTypes()) {
+                for (int n = random.nextInt(8); n > 0; n--) {
+                    ibc.incrementEntity(env, type);
+                }
+            }
+        }
+        ibc.setChanged(false);
+        return ibc;
+    }
+
+    /**
+     * Shut the server down.
+     */
+    public void close() {
+        blockLimitListener.getFlusher().stop();
+        MockBukkit.unmock();
+    }
+
+    public World getWorld() {
+        return world;
+    }
+
+    public Limits getAddon() {
+        return addon;
+    }
+
+    public BlockLimitsListener getBlockLimitListener() {
+        return blockLimitListener;
+    }
+
+    public Island getIsland(int i) {
+        return islands[i];
+    }
+
+    /**
+     * @return a block location on island {@code i}, away from its center
+     */
+    public Location getLocation(int i, Random random) {
+        return new Location(world, i * ISLAND_SPACE + random.nextInt(ISLAND_SPACE / 2), 40 + random.nextInt(60),
+                random.nextInt(200) - 100);
+    }
+
+    /**
+     * @return block materials that have a limit or are in a block group
+     */
+    public List<Material> getLimitedMaterials() {
+        return limited;
+    }
+
+    /**
+     * @return block materials found on the islands; the first ones are the limited ones
+     */
+    public List<Material> getPlacedMaterials() {
+        return placed;
+    }
+
+    /**
+     * @return keys of every limited material and of as many unlimited ones
+     */
+    public List<NamespacedKey> getEventKeys() {
+        return placed.subList(0, limited.size() * 2).stream().map(Material::getKey).toList();
+    }
+
+    /**
+     * @return entity types with a limit or in a group, from the shipped config
+     */
+    public List<EntityType> getEntityTypes() {
+        List<EntityType> types = new ArrayList<>(addon.getSettings().getLimits(Environment.NORMAL).keySet());
+        addon.getSettings().getGroupLimitDefinitions().forEach(g -> types.addAll(g.getTypes()));
+        return types.stream().distinct().toList();
+    }
+}
@@ -0,0 +1,221 @@
+package world.bentobox.limits.calculators;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.Tag;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.block.data.type.Slab;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Multiset;
+
+import world.bentobox.limits.SyntheticServer;
+import world.bentobox.limits.listeners.BlockLimitsListener;
+
+/**
+ * The recount scan of one island's chunks: {@link ChunkScanner} against the per-block
+ * {@link ReferenceScanner} it replaced.
+ *
+ * <p>The chunks are a synthetic skyblock island in an overworld of height -64 to 320:
+ * solid ground with a scattering of limited blocks, slabs and sugar cane on top, and
+ * empty sections everywhere else. Snapshots are array-backed proxies that hand out one
+ * shared {@link BlockData} per material; a real server builds a new one per call, so
+ * the reference scanner is, if anything, flattered.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChunkScanBenchmark {
+
+    private static final int MIN_Y = -64;
+    private static final int MAX_Y = 320;
+    /** Island chunks along x; the island is one chunk deep. */
+    private static final int CHUNKS = 16;
+    private static final int GROUND_BOTTOM = 48;
+    private static final int GROUND_TOP = 63;
+    private static final int DECORATION_TOP = 80;
+
+    @Param({ "false", "true" })
+    public boolean stackedAsOne;
+
+    private SyntheticServer server;
+    private ChunkSnapshot[] snapshots;
+    private ChunkScanner scanner;
+    private ReferenceScanner reference;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        server = new SyntheticServer();
+        BlockLimitsListener bll = server.getBlockLimitListener();
+        List<Material> palette = new ArrayList<>();
+        for (Material m : server.getLimitedMaterials()) {
+            if (!BlockLimitsListener.needsBlockData(m)) {
+                palette.add(m);
+            }
+        }
+        palette.addAll(List.of(Material.HOPPER, Material.SUGAR_CANE, Material.STONE_SLAB, Material.OAK_SLAB,
+                Material.TORCH, Material.CHEST));
+        BitSet tracked = new BitSet();
+        palette.forEach(m -> tracked.set(m.ordinal()));
+        // Common blocks that are not limited
+        palette.addAll(List.of(Material.OAK_PLANKS, Material.COBBLESTONE, Material.GLASS, Material.OAK_LOG));
+
+        Map<Material, BlockData> blockData = new EnumMap<>(Material.class);
+        Random random = new Random(1);
+        snapshots = new ChunkSnapshot[CHUNKS];
+        for (int i = 0; i < CHUNKS; i++) {
+            snapshots[i] = new SyntheticChunk(i, 0, island(random, palette), blockData).toSnapshot();
+        }
+        scanner = new ChunkScanner(bll, tracked, stackedAsOne);
+        reference = new ReferenceScanner(bll, tracked, stackedAsOne);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.close();
+    }
+
+    @Benchmark
+    public Multiset<NamespacedKey> sectionScanner() {
+        Multiset<NamespacedKey> counts = HashMultiset.create();
+        for (ChunkSnapshot s : snapshots) {
+            scanner.scan(s, 0, CHUNKS * 16, 0, 16, MIN_Y, MAX_Y, counts);
+        }
+        return counts;
+    }
+
+    @Benchmark
+    public Multiset<NamespacedKey> referenceScanner() {
+        Multiset<NamespacedKey> counts = HashMultiset.create();
+        for (ChunkSnapshot s : snapshots) {
+            reference.scan(s, 0, CHUNKS * 16, 0, 16, MIN_Y, MAX_Y, counts);
+        }
+        return counts;
+    }
+
+    /**
+     * @return blocks of one chunk, indexed by {@link SyntheticChunk#index}
+     */
+    private static Material[] island(Random random, List<Material> palette) {
+        Material[] blocks = new Material[16 * 16 * (MAX_Y - MIN_Y)];
+        Arrays.fill(blocks, Material.AIR);
+        for (int x = 0; x < 16; x++) {
+            for (int z = 0; z < 16; z++) {
+                for (int y = GROUND_BOTTOM; y < GROUND_TOP; y++) {
+                    blocks[SyntheticChunk.index(x, y, z)] = y < GROUND_TOP - 3 ? Material.STONE : Material.DIRT;
+                }
+                blocks[SyntheticChunk.index(x, GROUND_TOP, z)] = Material.GRASS_BLOCK;
+                if (random.nextInt(20) == 0) {
+                    // A sugar cane column
+                    for (int y = GROUND_TOP + 1; y < GROUND_TOP + 4; y++) {
+                        blocks[SyntheticChunk.index(x, y, z)] = Material.SUGAR_CANE;
+                    }
+                    continue;
+                }
+                for (int y = GROUND_TOP + 1; y < DECORATION_TOP; y++) {
+                    if (random.nextInt(8) == 0) {
+                        blocks[SyntheticChunk.index(x, y, z)] = palette.get(random.nextInt(palette.size()));
+                    }
+                }
+            }
+        }
+        return blocks;
+    }
+
+    /**
+     * Array-backed chunk, exposed as a {@link ChunkSnapshot} proxy answering the calls
+     * the scanners make.
+     */
+    private static class SyntheticChunk implements InvocationHandler {
+
+        private static final int SECTION = 16;
+
+        private final int cx;
+        private final int cz;
+        private final Material[] blocks;
+        private final Map<Material, BlockData> blockData;
+        private final boolean[] emptySections = new boolean[(MAX_Y - MIN_Y) / SECTION];
+
+        SyntheticChunk(int cx, int cz, Material[] blocks, Map<Material, BlockData> blockData) {
+            this.cx = cx;
+            this.cz = cz;
+            this.blocks = blocks;
+            this.blockData = blockData;
+            for (int s = 0; s < emptySections.length; s++) {
+                emptySections[s] = true;
+                for (int i = s * SECTION * 256; i < (s + 1) * SECTION * 256; i++) {
+                    if (!blocks[i].isAir()) {
+                        emptySections[s] = false;
+                        break;
+                    }
+                }
+            }
+        }
+
+        static int index(int x, int y, int z) {
+            return ((y - MIN_Y) * 16 + z) * 16 + x;
+        }
+
+        ChunkSnapshot toSnapshot() {
+            return (ChunkSnapshot) Proxy.newProxyInstance(ChunkSnapshot.class.getClassLoader(),
+                    new Class<?>[] { ChunkSnapshot.class }, this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            return switch (method.getName()) {
+            case "getX" -> cx;
+            case "getZ" -> cz;
+            case "getBlockType" -> blocks[index((int) args[0], (int) args[1], (int) args[2])];
+            case "getBlockData" -> blockData.computeIfAbsent(
+                    blocks[index((int) args[0], (int) args[1], (int) args[2])], SyntheticChunk::createBlockData);
+            case "isSectionEmpty" -> emptySections[(int) args[0]];
+            case "getWorldName" -> "bskyblock_world";
+            default -> throw new UnsupportedOperationException(method.getName());
+            };
+        }
+
+        /**
+         * Slabs are double, so that the slab path is exercised.
+         */
+        private static BlockData createBlockData(Material material) {
+            boolean slab = Tag.SLABS.isTagged(material);
+            Class<?> type = slab ? Slab.class : BlockData.class;
+            return (BlockData) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type },
+                    (proxy, method, args) -> switch (method.getName()) {
+                    case "getMaterial" -> material;
+                    case "getType" -> Slab.Type.DOUBLE;
+                    default -> throw new UnsupportedOperationException(method.getName());
+                    });
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package world.bentobox.limits.calculators;
+
+import java.util.BitSet;
+
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.Tag;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.block.data.type.Slab;
+
+import com.google.common.collect.Multiset;
+
+import world.bentobox.limits.listeners.BlockLimitsListener;
+
+/**
+ * The recount scan as it was before {@link ChunkScanner}: every block of every column,
+ * read as {@link BlockData}, empty sections included. Kept as the baseline that
+ * {@link ChunkScanBenchmark} measures the section scanner against.
+ */
+class ReferenceScanner {
+
+    private final BlockLimitsListener bll;
+    private final BitSet tracked;
+    private final boolean stackedAsOne;
+
+    ReferenceScanner(BlockLimitsListener bll, BitSet tracked, boolean stackedAsOne) {
+        this.bll = bll;
+        this.tracked = tracked;
+        this.stackedAsOne = stackedAsOne;
+    }
+
+    /**
+     * Same contract as {@link ChunkScanner#scan}.
+     */
+    void scan(ChunkSnapshot chunkSnapshot, int minX, int maxX, int minZ, int maxZ, int minY, int maxY,
+            Multiset<NamespacedKey> counts) {
+        int chunkBaseX = chunkSnapshot.getX() * 16;
+        int chunkBaseZ = chunkSnapshot.getZ() * 16;
+        for (int x = 0; x < 16; x++) {
+            int absX = chunkBaseX + x;
+            if (absX < minX || absX >= maxX) continue;
+            for (int z = 0; z < 16; z++) {
+                int absZ = chunkBaseZ + z;
+                if (absZ < minZ || absZ >= maxZ) continue;
+                scanColumn(chunkSnapshot, x, z, minY, maxY, counts);
+            }
+        }
+    }
+
+    private void scanColumn(ChunkSnapshot chunkSnapshot, int x, int z, int minY, int maxY,
+            Multiset<NamespacedKey> counts) {
+        Material below = null;
+        for (int y = minY; y < maxY; y++) {
+            BlockData blockData = chunkSnapshot.getBlockData(x, y, z);
+            Material type = bll.fixMaterialType(blockData);
+            Material previous = below;
+            below = type;
+            if (!tracked.get(type.ordinal())) {
+                continue;
+            }
+            NamespacedKey key = type.getKey();
+            if (Tag.SLABS.isTagged(blockData.getMaterial())
+                    && ((Slab) blockData).getType().equals(Slab.Type.DOUBLE)) {
+                counts.add(key);
+            }
+            // Stacked-plants-as-one: segments sitting on the same plant are not counted
+            if (!(stackedAsOne && BlockLimitsListener.STACKABLE.contains(key) && type == previous)) {
+                counts.add(key);
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package world.bentobox.limits.listeners;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.Location;
+import org.bukkit.NamespacedKey;
+import org.bukkit.World;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import world.bentobox.limits.SyntheticServer;
+
+/**
+ * Block placement and breaking through {@link BlockLimitsListener#processKey} and the
+ * read-only limit check, spread over every island and over limited and unlimited keys.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BlockLimitsBenchmark {
+
+    /** Pre-drawn events, cycled through so that drawing them is not measured. */
+    private static final int EVENTS = 1 << 12;
+
+    private SyntheticServer server;
+    private BlockLimitsListener bll;
+    private World world;
+    private final Location[] locations = new Location[EVENTS];
+    private final NamespacedKey[] keys = new NamespacedKey[EVENTS];
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        server = new SyntheticServer();
+        bll = server.getBlockLimitListener();
+        world = server.getWorld();
+        Random random = new Random(1);
+        List<NamespacedKey> eventKeys = server.getEventKeys();
+        for (int i = 0; i < EVENTS; i++) {
+            locations[i] = server.getLocation(random.nextInt(SyntheticServer.ISLANDS), random);
+            keys[i] = eventKeys.get(random.nextInt(eventKeys.size()));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.close();
+    }
+
+    /**
+     * Place a block and break it again, leaving the counts as they were.
+     */
+    @Benchmark
+    public int placeAndBreak() {
+        int i = next++ & (EVENTS - 1);
+        int limit = bll.processKey(world, locations[i], keys[i], true);
+        if (limit < 0) {
+            bll.processKey(world, locations[i], keys[i], false);
+        }
+        return limit;
+    }
+
+    @Benchmark
+    public int checkBlockLimit() {
+        int i = next++ & (EVENTS - 1);
+        return bll.checkBlockLimit(locations[i], keys[i]);
+    }
+}
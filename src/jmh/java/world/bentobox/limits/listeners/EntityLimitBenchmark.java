@@ -0,0 +1,68 @@
+package world.bentobox.limits.listeners;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.World.Environment;
+import org.bukkit.entity.EntityType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import world.bentobox.bentobox.database.objects.Island;
+import world.bentobox.limits.SyntheticServer;
+import world.bentobox.limits.listeners.EntityLimitListener.AtLimitResult;
+
+/**
+ * The entity limit check run for every spawn: type limit, then the groups of the type.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EntityLimitBenchmark {
+
+    private static final int EVENTS = 1 << 12;
+
+    private SyntheticServer server;
+    private EntityLimitListener listener;
+    private final Island[] islands = new Island[EVENTS];
+    private final EntityType[] types = new EntityType[EVENTS];
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        server = new SyntheticServer();
+        listener = new EntityLimitListener(server.getAddon());
+        Random random = new Random(1);
+        List<EntityType> limited = server.getEntityTypes();
+        for (int i = 0; i < EVENTS; i++) {
+            islands[i] = server.getIsland(random.nextInt(SyntheticServer.ISLANDS));
+            // Mostly limited types, some that no limit covers
+            types[i] = random.nextInt(4) == 0 ? EntityType.COW : limited.get(random.nextInt(limited.size()));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.close();
+    }
+
+    @Benchmark
+    public AtLimitResult atLimit() {
+        int i = next++ & (EVENTS - 1);
+        return listener.atLimit(islands[i], types[i], Environment.NORMAL);
+    }
+}
@@ -0,0 +1,124 @@
+package world.bentobox.limits.objects;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.World.Environment;
+import org.mockbukkit.mockbukkit.MockBukkit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import world.bentobox.limits.Settings;
+
+/**
+ * Count updates on an island record and the JSON round trip of its per-environment
+ * counts, as done on every save and load.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IslandBlockCountBenchmark {
+
+    private static final int EVENTS = 1 << 12;
+    /** Block types on the island, per environment. */
+    private static final int TYPES = 150;
+
+    private final EnvNamespacedKeyMapAdapter adapter = new EnvNamespacedKeyMapAdapter();
+    private IslandBlockCount ibc;
+    private final NamespacedKey[] keys = new NamespacedKey[EVENTS];
+    private Map<Environment, Map<NamespacedKey, Integer>> counts;
+    private String json;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        MockBukkit.mock();
+        Random random = new Random(1);
+        List<NamespacedKey> blocks = new ArrayList<>();
+        for (Material m : Material.values()) {
+            if (m.isBlock() && !m.isAir() && !m.isLegacy()) {
+                blocks.add(m.getKey());
+            }
+        }
+        ibc = new IslandBlockCount("island", "BSkyBlock");
+        counts = new EnumMap<>(Environment.class);
+        for (Environment env : Settings.ENVIRONMENTS) {
+            Map<NamespacedKey, Integer> envCounts = new KeyCountMap();
+            for (int i = 0; i < TYPES; i++) {
+                NamespacedKey key = blocks.get(random.nextInt(blocks.size()));
+                int n = 1 + random.nextInt(500);
+                envCounts.put(key, n);
+                for (int j = 0; j < n; j++) {
+                    ibc.add(env, key);
+                }
+            }
+            counts.put(env, envCounts);
+        }
+        List<NamespacedKey> present = new ArrayList<>(counts.get(Environment.NORMAL).keySet());
+        for (int i = 0; i < EVENTS; i++) {
+            keys[i] = present.get(random.nextInt(present.size()));
+        }
+        json = write();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        MockBukkit.unmock();
+    }
+
+    /**
+     * Count a block and take it away again.
+     */
+    @Benchmark
+    public boolean addRemove() {
+        NamespacedKey key = keys[next++ & (EVENTS - 1)];
+        ibc.add(Environment.NORMAL, key);
+        return ibc.remove(Environment.NORMAL, key);
+    }
+
+    @Benchmark
+    public int getBlockCount() {
+        return ibc.getBlockCount(Environment.NORMAL, keys[next++ & (EVENTS - 1)]);
+    }
+
+    @Benchmark
+    public String adapterWrite() throws IOException {
+        return write();
+    }
+
+    @Benchmark
+    public Map<Environment, Map<NamespacedKey, Integer>> adapterRead() throws IOException {
+        return adapter.read(new JsonReader(new StringReader(json)));
+    }
+
+    private String write() throws IOException {
+        StringWriter out = new StringWriter();
+        adapter.write(new JsonWriter(out), counts);
+        return out.toString();
+    }
+}
@@ -15,12 +15,21 @@ public class BlockGroup {
     private final Set<NamespacedKey> keys;
     private final int limit;
     private final Material icon;
+    private final int id;
 
     public BlockGroup(String name, Set<NamespacedKey> keys, int limit, Material icon) {
+        this(name, keys, limit, icon, -1);
+    }
+
+    /**
+     * @param id index of the group in {@link Settings#getBlockGroupDefinitions()}
+     */
+    public BlockGroup(String name, Set<NamespacedKey> keys, int limit, Material icon, int id) {
         this.name = name;
         this.keys = keys;
         this.limit = limit;
         this.icon = icon;
+        this.id = id;
     }
 
     public boolean contains(NamespacedKey key) {
@@ -39,6 +48,14 @@ public class BlockGroup {
         return limit;
     }
 
+    /**
+     * @return index of the group in {@link Settings#getBlockGroupDefinitions()}; -1 if
+     *         not loaded from settings
+     */
+    public int getId() {
+        return id;
+    }
+
     public Material getIcon() {
         return icon;
     }
@@ -15,12 +15,21 @@ public class EntityGroup {
     private final Set<EntityType> types;
     private final int limit;
     private final Material icon;
+    private final int id;
 
     public EntityGroup(String name, Set<EntityType> types, int limit, Material icon) {
+        this(name, types, limit, icon, -1);
+    }
+
+    /**
+     * @param id index of the group in {@link Settings#getGroupLimitDefinitions()}
+     */
+    public EntityGroup(String name, Set<EntityType> types, int limit, Material icon, int id) {
         this.name = name;
         this.types = types;
         this.limit = limit;
         this.icon = icon;
+        this.id = id;
     }
 
     public boolean contains(EntityType type) {
@@ -39,6 +48,14 @@ public class EntityGroup {
         return limit;
     }
 
+    /**
+     * @return index of the group in {@link Settings#getGroupLimitDefinitions()} and in
+     *         {@link Settings#getGroupCounts(java.util.Map)}; -1 if not loaded from settings
+     */
+    public int getId() {
+        return id;
+    }
+
     @Override
     public int hashCode() {
         int hash = 7;
@@ -0,0 +1,92 @@
+package world.bentobox.limits;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.bukkit.World;
+import org.bukkit.World.Environment;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.WorldLoadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+import org.eclipse.jdt.annotation.Nullable;
+
+import world.bentobox.bentobox.api.addons.GameModeAddon;
+
+/**
+ * Which covered game mode, if any, each world belongs to. Game mode worlds are
+ * classified once, on first use, so event handlers do one map lookup instead of asking
+ * every game mode whether it owns the world. Worlds no game mode owns are not
+ * remembered: a game mode may register a world after it was first looked up, and
+ * must not find it left uncovered.
+ */
+public class GameModeWorlds implements Listener {
+
+    /**
+     * What Limits needs to know about a world.
+     *
+     * @param covered true if a covered game mode owns the world
+     * @param gameModeName name of that game mode, or empty
+     * @param permPrefix permission prefix of that game mode, or empty
+     * @param env environment, with non-standard ones treated as {@link Environment#NORMAL}
+     */
+    public record WorldInfo(boolean covered, String gameModeName, String permPrefix, Environment env) {
+    }
+
+    private static final WorldInfo NO_WORLD = new WorldInfo(false, "", "", Environment.NORMAL);
+
+    private final Limits addon;
+    private final Map<World, WorldInfo> worlds = new ConcurrentHashMap<>();
+
+    public GameModeWorlds(Limits addon) {
+        this.addon = addon;
+    }
+
+    /**
+     * @return the classification of this world
+     */
+    public WorldInfo get(@Nullable World world) {
+        if (world == null) {
+            return NO_WORLD;
+        }
+        WorldInfo info = worlds.get(world);
+        if (info == null) {
+            info = classify(world);
+            if (info.covered()) {
+                worlds.put(world, info);
+            }
+        }
+        return info;
+    }
+
+    private WorldInfo classify(World world) {
+        Environment raw = world.getEnvironment();
+        Environment env = raw != null && Settings.ENVIRONMENTS.contains(raw) ? raw : Environment.NORMAL;
+        List<GameModeAddon> gameModes = addon.getGameModes();
+        for (GameModeAddon gm : gameModes) {
+            if (gm.inWorld(world)) {
+                return new WorldInfo(true, gm.getDescription().getName(), gm.getPermissionPrefix(), env);
+            }
+        }
+        return new WorldInfo(false, "", "", env);
+    }
+
+    /**
+     * Forget every world, e.g. because the covered game modes changed.
+     */
+    public void clear() {
+        worlds.clear();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldLoad(WorldLoadEvent e) {
+        worlds.remove(e.getWorld());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldUnload(WorldUnloadEvent e) {
+        worlds.remove(e.getWorld());
+    }
+}
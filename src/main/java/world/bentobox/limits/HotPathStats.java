@@ -0,0 +1,313 @@
+package world.bentobox.limits;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.bukkit.Bukkit;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventException;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.plugin.EventExecutor;
+import org.bukkit.plugin.Plugin;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Lock-free call counters and latency histograms for the hot paths: event handlers,
+ * count saves and recounts. Shown by the admin stats command and, optionally, dumped
+ * to the log.
+ *
+ * <p>Every call is counted. Latency is measured for one call in
+ * {@link #setSampleEvery(int) sample-every}, so that the timing itself costs next to
+ * nothing on busy servers. Percentiles come from a log-linear histogram and are
+ * accurate to within a quarter of the value.
+ */
+public class HotPathStats {
+
+    /** Sub-buckets per power of two. */
+    private static final int SUB_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (63 - SUB_BITS + 1) * SUB_BUCKETS;
+    /** Returned by {@link Timer#start()} when the call is not timed. */
+    private static final long NOT_SAMPLED = Long.MIN_VALUE;
+
+    private final Map<String, Timer> timers = new ConcurrentSkipListMap<>();
+    private final List<Listener> listeners = new ArrayList<>();
+    private long sampleMask;
+    private volatile long since = System.nanoTime();
+
+    /**
+     * @param stats stats to register the timer with, or null
+     * @param name timer name
+     * @return the named timer of the stats, or a timer no one reads if stats is null
+     */
+    public static Timer timer(@Nullable HotPathStats stats, String name) {
+        return (stats == null ? new HotPathStats() : stats).timer(name);
+    }
+
+    /**
+     * Time one call in this many. Rounded up to a power of two.
+     */
+    public void setSampleEvery(int sampleEvery) {
+        int n = Math.max(1, sampleEvery);
+        sampleMask = Integer.highestOneBit(n) == n ? n - 1L : Integer.highestOneBit(n) * 2L - 1L;
+    }
+
+    /**
+     * @return calls per timed call
+     */
+    public long getSampleEvery() {
+        return sampleMask + 1;
+    }
+
+    /**
+     * @param name timer name
+     * @return the timer with this name, created if need be
+     */
+    public Timer timer(String name) {
+        return timers.computeIfAbsent(name, Timer::new);
+    }
+
+    /**
+     * @return every timer, by name
+     */
+    public List<Timer> getTimers() {
+        return List.copyOf(timers.values());
+    }
+
+    /**
+     * @return nanoseconds since the counts started
+     */
+    public long getElapsedNanos() {
+        return Math.max(1L, System.nanoTime() - since);
+    }
+
+    /**
+     * @param nanos duration in nanoseconds
+     * @return the duration in the largest unit that keeps it at 1 or more, e.g. "12.5 µs"
+     */
+    public static String format(double nanos) {
+        if (nanos < 1_000D) {
+            return String.format(Locale.ROOT, "%.0f ns", nanos);
+        } else if (nanos < 1_000_000D) {
+            return String.format(Locale.ROOT, "%.1f µs", nanos / 1_000D);
+        } else if (nanos < 1_000_000_000D) {
+            return String.format(Locale.ROOT, "%.1f ms", nanos / 1_000_000D);
+        }
+        return String.format(Locale.ROOT, "%.1f s", nanos / 1_000_000_000D);
+    }
+
+    /**
+     * Zero every timer.
+     */
+    public void reset() {
+        timers.values().forEach(Timer::reset);
+        since = System.nanoTime();
+    }
+
+    /* =========================================================================
+     * Timed event handlers
+     * ========================================================================= */
+
+    /**
+     * Register the {@link EventHandler} methods of a listener with an executor that
+     * times each of them, under {@code <listener class>.<method>}. Use instead of
+     * registering the listener the usual way.
+     *
+     * @param listener listener
+     * @param plugin plugin to register for
+     */
+    public void register(Listener listener, Plugin plugin) {
+        String prefix = listener.getClass().getSimpleName() + ".";
+        for (Method method : listener.getClass().getDeclaredMethods()) {
+            EventHandler handler = method.getAnnotation(EventHandler.class);
+            if (handler == null || method.isBridge() || method.isSynthetic() || method.getParameterCount() != 1
+                    || !Event.class.isAssignableFrom(method.getParameterTypes()[0])) {
+                continue;
+            }
+            Class<? extends Event> type = method.getParameterTypes()[0].asSubclass(Event.class);
+            method.setAccessible(true);
+            Bukkit.getPluginManager().registerEvent(type, listener, handler.priority(),
+                    executor(type, method, timer(prefix + method.getName())), plugin, handler.ignoreCancelled());
+        }
+        listeners.add(listener);
+    }
+
+    private static EventExecutor executor(Class<? extends Event> type, Method method, Timer timer) {
+        return (listener, event) -> {
+            // Handler lists are shared with subclasses
+            if (!type.isInstance(event)) {
+                return;
+            }
+            long start = timer.start();
+            try {
+                method.invoke(listener, event);
+            } catch (InvocationTargetException e) {
+                throw new EventException(e.getCause());
+            } catch (ReflectiveOperationException e) {
+                throw new EventException(e);
+            } finally {
+                timer.stop(start);
+            }
+        };
+    }
+
+    /**
+     * Unregister every listener registered by {@link #register(Listener, Plugin)}.
+     */
+    public void unregisterAll() {
+        listeners.forEach(HandlerList::unregisterAll);
+        listeners.clear();
+    }
+
+    /* =========================================================================
+     * Timer
+     * ========================================================================= */
+
+    static int bucket(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) Math.max(0L, nanos);
+        }
+        int exp = 63 - Long.numberOfLeadingZeros(nanos);
+        int sub = (int) (nanos >>> (exp - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exp - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * @return highest value counted in the bucket
+     */
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exp = bucket / SUB_BUCKETS + SUB_BITS - 1;
+        long sub = bucket % SUB_BUCKETS;
+        long bound = ((SUB_BUCKETS + sub + 1) << (exp - SUB_BITS)) - 1;
+        return bound < 0 ? Long.MAX_VALUE : bound;
+    }
+
+    /**
+     * Call count and latency histogram of one hot path. Safe to use from any thread.
+     */
+    public class Timer {
+
+        private final String name;
+        private final AtomicLong calls = new AtomicLong();
+        private final LongAdder samples = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+        private Timer(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Count a call and start timing it if it is sampled.
+         *
+         * @return value to pass to {@link #stop(long)}
+         */
+        public long start() {
+            return (calls.incrementAndGet() & sampleMask) == 0 ? System.nanoTime() : NOT_SAMPLED;
+        }
+
+        /**
+         * Finish timing a call.
+         *
+         * @param start value returned by {@link #start()}
+         */
+        public void stop(long start) {
+            if (start != NOT_SAMPLED) {
+                add(System.nanoTime() - start);
+            }
+        }
+
+        /**
+         * Count and record a call that was timed elsewhere, whatever the sampling.
+         */
+        public void record(long nanos) {
+            calls.incrementAndGet();
+            add(nanos);
+        }
+
+        private void add(long nanos) {
+            samples.increment();
+            totalNanos.add(nanos);
+            histogram.incrementAndGet(bucket(nanos));
+        }
+
+        void reset() {
+            calls.set(0);
+            samples.reset();
+            totalNanos.reset();
+            for (int i = 0; i < BUCKETS; i++) {
+                histogram.set(i, 0);
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return calls counted
+         */
+        public long getCalls() {
+            return calls.get();
+        }
+
+        /**
+         * @return calls timed
+         */
+        public long getSamples() {
+            return samples.sum();
+        }
+
+        /**
+         * @return calls per second since the counts started
+         */
+        public double getRate() {
+            return getCalls() * (double) TimeUnit.SECONDS.toNanos(1) / getElapsedNanos();
+        }
+
+        /**
+         * @return mean latency of the timed calls in nanoseconds; 0 if none
+         */
+        public double getMeanNanos() {
+            long n = getSamples();
+            return n == 0 ? 0D : (double) totalNanos.sum() / n;
+        }
+
+        /**
+         * @param percentile e.g. 0.99
+         * @return latency in nanoseconds that this share of timed calls did not exceed;
+         *         0 if none were timed
+         */
+        public long getPercentileNanos(double percentile) {
+            long total = 0;
+            long[] counts = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = histogram.get(i);
+                total += counts[i];
+            }
+            long wanted = (long) Math.ceil(total * percentile);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen > 0 && seen >= wanted) {
+                    return upperBound(i);
+                }
+            }
+            return 0L;
+        }
+    }
+}
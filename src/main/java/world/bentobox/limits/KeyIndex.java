@@ -0,0 +1,51 @@
+package world.bentobox.limits;
+
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.Registry;
+
+/**
+ * Maps block keys to a stable, dense integer ordinal so hot paths can index plain
+ * arrays instead of hashing {@link NamespacedKey}s.
+ *
+ * <p>Only vanilla materials have an ordinal (their {@link Material#ordinal()}). Custom
+ * keys (ItemsAdder, Oraxen) and block tags return {@link #NONE} and callers fall back
+ * to a map for them.
+ */
+public final class KeyIndex {
+
+    /** Ordinal returned for keys that are not a vanilla material. */
+    public static final int NONE = -1;
+
+    private static final Material[] MATERIALS = Material.values();
+
+    private KeyIndex() {
+    }
+
+    /**
+     * @return number of ordinals; arrays indexed by {@link #ordinal} need this length
+     */
+    public static int size() {
+        return MATERIALS.length;
+    }
+
+    /**
+     * @param key block key
+     * @return the material ordinal, or {@link #NONE} if the key is not a vanilla material
+     */
+    public static int ordinal(NamespacedKey key) {
+        if (!NamespacedKey.MINECRAFT.equals(key.getNamespace())) {
+            return NONE;
+        }
+        Material m = Registry.MATERIAL.get(key);
+        return m == null ? NONE : m.ordinal();
+    }
+
+    /**
+     * @param ordinal an ordinal previously returned by {@link #ordinal}
+     * @return the key of the material with that ordinal
+     */
+    public static NamespacedKey key(int ordinal) {
+        return MATERIALS[ordinal].getKey();
+    }
+}
@@ -2,18 +2,23 @@ package world.bentobox.limits;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.bukkit.Bukkit;
 import org.bukkit.Material;
 import org.bukkit.NamespacedKey;
 import org.bukkit.Registry;
 import org.bukkit.World;
 import org.bukkit.World.Environment;
 import org.bukkit.entity.EntityType;
+import org.bukkit.event.Listener;
+import org.bukkit.scheduler.BukkitTask;
 import org.eclipse.jdt.annotation.Nullable;
 
 import world.bentobox.bentobox.api.addons.Addon;
@@ -21,10 +26,15 @@ import world.bentobox.bentobox.api.addons.GameModeAddon;
 import world.bentobox.bentobox.api.user.User;
 import world.bentobox.bentobox.database.objects.Island;
 import world.bentobox.bentobox.util.Util;
+import world.bentobox.limits.GameModeWorlds.WorldInfo;
+import world.bentobox.limits.HotPathStats.Timer;
+import world.bentobox.limits.calculators.Pipeliner;
 import world.bentobox.limits.commands.admin.AdminCommand;
 import world.bentobox.limits.commands.player.PlayerCommand;
 import world.bentobox.limits.listeners.BlockLimitsListener;
 import world.bentobox.limits.listeners.EntityLimitListener;
+import world.bentobox.limits.listeners.IslandCountFlusher;
+import world.bentobox.limits.listeners.IslandLookupCache;
 import world.bentobox.limits.listeners.JoinListener;
 import world.bentobox.limits.listeners.PaperShulkerLimitListener;
 import world.bentobox.limits.objects.IslandBlockCount;
@@ -42,9 +52,27 @@ public class Limits extends Addon {
     private List<GameModeAddon> gameModes = new ArrayList<>();
     private BlockLimitsListener blockLimitListener;
     private JoinListener joinListener;
+    private Pipeliner pipeliner;
+    private IslandLookupCache islandLookup;
+    private final GameModeWorlds worlds = new GameModeWorlds(this);
+    private final HotPathStats stats = new HotPathStats();
+    private BukkitTask statsTask;
+    /** Blocks and entity types whose count and limit placeholders are registered. */
+    private final Set<NamespacedKey> placeholderBlocks = ConcurrentHashMap.newKeySet();
+    private final Set<EntityType> placeholderEntities = ConcurrentHashMap.newKeySet();
+    /** Reached-limits placeholder text by island id and environment. */
+    private final Map<String, ReachedLimits> reachedLimits = new ConcurrentHashMap<>();
 
     @Override
     public void onDisable() {
+        if (statsTask != null) {
+            statsTask.cancel();
+            statsTask = null;
+        }
+        stats.unregisterAll();
+        if (pipeliner != null) {
+            pipeliner.stop();
+        }
         if (blockLimitListener != null) {
             blockLimitListener.save();
         }
@@ -54,21 +82,27 @@ public class Limits extends Addon {
     public void onEnable() {
         saveDefaultConfig();
         settings = new Settings(this);
+        stats.setSampleEvery(settings.getMetricsSampleEvery());
+        stats.reset();
         gameModes = getPlugin().getAddonsManager().getGameModeAddons().stream()
                 .filter(gm -> settings.getGameModes().contains(gm.getDescription().getName()))
                 .toList();
+        worlds.clear();
+        registerListener(worlds);
         gameModes.forEach(gm -> {
             gm.getAdminCommand().ifPresent(a -> new AdminCommand(this, a));
             gm.getPlayerCommand().ifPresent(a -> new PlayerCommand(this, a));
-            registerPlaceholders(gm);
             log("Limits will apply to " + gm.getDescription().getName());
         });
+        islandLookup = new IslandLookupCache(this);
+        registerListener(islandLookup);
         blockLimitListener = new BlockLimitsListener(this);
-        registerListener(blockLimitListener);
+        registerTimedListener(blockLimitListener);
+        pipeliner = new Pipeliner(this);
         joinListener = new JoinListener(this);
-        registerListener(joinListener);
+        registerTimedListener(joinListener);
         EntityLimitListener entityLimitListener = new EntityLimitListener(this);
-        registerListener(entityLimitListener);
+        registerTimedListener(entityLimitListener);
         if (org.bukkit.Bukkit.getPluginManager().getPlugin("ItemsAdder") != null) {
             registerListener(new world.bentobox.limits.listeners.ItemsAdderListener(this));
             log("ItemsAdder detected: custom block limits active. Use ItemsAdder ids as blocklimits keys.");
@@ -84,6 +118,44 @@ public class Limits extends Addon {
         } catch (ClassNotFoundException e) {
             // Not running on Paper; CreatureSpawnEvent handles duplication on Spigot.
         }
+        registerPlaceholders();
+        if (settings.getMetricsLogInterval() > 0) {
+            long period = settings.getMetricsLogInterval() * 60L * 20L;
+            statsTask = Bukkit.getScheduler().runTaskTimer(getPlugin(), this::logStats, period, period);
+        }
+    }
+
+    /**
+     * Register a listener whose event handlers are timed if metrics are enabled.
+     */
+    private void registerTimedListener(Listener listener) {
+        if (settings.isMetricsEnabled()) {
+            stats.register(listener, getPlugin());
+        } else {
+            registerListener(listener);
+        }
+    }
+
+    /**
+     * Write the hot-path metrics to the log.
+     */
+    void logStats() {
+        log("Metrics over the last " + stats.getElapsedNanos() / 1_000_000_000L + " seconds:");
+        for (Timer timer : stats.getTimers()) {
+            if (timer.getCalls() > 0) {
+                log(String.format(Locale.ROOT, "  %s: %d calls, %.1f/s, mean %s, p99 %s", timer.getName(),
+                        timer.getCalls(), timer.getRate(), HotPathStats.format(timer.getMeanNanos()),
+                        HotPathStats.format(timer.getPercentileNanos(0.99D))));
+            }
+        }
+        if (blockLimitListener != null) {
+            IslandCountFlusher flusher = blockLimitListener.getFlusher();
+            log("  Save queue: " + flusher.getBacklog() + " waiting, peak " + flusher.getPeakBacklog() + ", "
+                    + flusher.getSaved() + " saved");
+        }
+        if (pipeliner != null) {
+            log("  Recount queue: " + pipeliner.getIslandsInQueue() + " islands");
+        }
     }
 
     public Settings getSettings() {
@@ -98,18 +170,37 @@ public class Limits extends Addon {
         return blockLimitListener;
     }
 
+    /**
+     * @return the recount queue shared by all recount commands
+     */
+    public Pipeliner getPipeliner() {
+        return pipeliner;
+    }
+
+    /**
+     * @return the chunk-keyed island lookup used by the event listeners
+     */
+    public IslandLookupCache getIslandLookup() {
+        return islandLookup;
+    }
+
+    /**
+     * @return the cached classification of this world
+     */
+    public WorldInfo getWorldInfo(World world) {
+        return worlds.get(world);
+    }
+
     public boolean inGameModeWorld(World world) {
-        return gameModes.stream().anyMatch(gm -> gm.inWorld(world));
+        return worlds.get(world).covered();
     }
 
     public String getGameModeName(World world) {
-        return gameModes.stream().filter(gm -> gm.inWorld(world)).findFirst()
-                .map(gm -> gm.getDescription().getName()).orElse("");
+        return worlds.get(world).gameModeName();
     }
 
     public String getGameModePermPrefix(World world) {
-        return gameModes.stream().filter(gm -> gm.inWorld(world)).findFirst()
-                .map(GameModeAddon::getPermissionPrefix).orElse("");
+        return worlds.get(world).permPrefix();
     }
 
     public boolean isCoveredGameMode(String gameMode) {
@@ -120,18 +211,65 @@ public class Limits extends Addon {
         return joinListener;
     }
 
+    /**
+     * @return counters and latencies of the event handlers, saves and recounts
+     */
+    public HotPathStats getStats() {
+        return stats;
+    }
+
     /* =========================================================================
      * Placeholders
      * ========================================================================= */
 
-    private void registerPlaceholders(GameModeAddon gm) {
+    /**
+     * Registers the reached-limits placeholders of every game mode, and the count and
+     * limit placeholders of the blocks and entities that some limit or group refers to.
+     * Placeholders of blocks and entities limited later, e.g. by a permission, are
+     * registered when that limit is first applied. With {@code all-key-placeholders}
+     * every block and entity type gets them up front instead.
+     */
+    private void registerPlaceholders() {
+        placeholderBlocks.clear();
+        placeholderEntities.clear();
+        reachedLimits.clear();
         if (getPlugin().getPlaceholdersManager() == null) return;
-        Registry.MATERIAL.stream()
-                .filter(Material::isBlock)
-                .forEach(m -> registerCountAndLimitPlaceholders(m.getKey(), gm));
-        Arrays.stream(EntityType.values())
-                .forEach(e -> registerCountAndLimitPlaceholders(e, gm));
-        registerReachedLimitsPlaceholders(gm);
+        gameModes.forEach(this::registerReachedLimitsPlaceholders);
+        if (settings.isAllKeyPlaceholders()) {
+            Registry.MATERIAL.stream()
+                    .filter(Material::isBlock)
+                    .forEach(m -> registerLimitPlaceholders(m.getKey()));
+            Arrays.stream(EntityType.values()).forEach(this::registerLimitPlaceholders);
+            return;
+        }
+        blockLimitListener.getLimitedKeys().forEach(this::registerLimitPlaceholders);
+        Settings.ENVIRONMENTS
+                .forEach(env -> settings.getLimits(env).keySet().forEach(this::registerLimitPlaceholders));
+        settings.getGroupLimitDefinitions().forEach(g -> g.getTypes().forEach(this::registerLimitPlaceholders));
+    }
+
+    /**
+     * Registers the count and limit placeholders of a block in every game mode, unless
+     * they already are.
+     *
+     * @param key block key
+     */
+    public void registerLimitPlaceholders(NamespacedKey key) {
+        if (getPlugin().getPlaceholdersManager() != null && placeholderBlocks.add(key)) {
+            gameModes.forEach(gm -> registerCountAndLimitPlaceholders(key, gm));
+        }
+    }
+
+    /**
+     * Registers the count and limit placeholders of an entity type in every game mode,
+     * unless they already are.
+     *
+     * @param type entity type
+     */
+    public void registerLimitPlaceholders(EntityType type) {
+        if (getPlugin().getPlaceholdersManager() != null && placeholderEntities.add(type)) {
+            gameModes.forEach(gm -> registerCountAndLimitPlaceholders(type, gm));
+        }
     }
 
     /**
@@ -146,8 +284,42 @@ public class Limits extends Addon {
             String name = gm.getDescription().getName().toLowerCase(Locale.ROOT) + ISLAND_PLACEHOLDER
                     + "reached_limits" + suffix;
             getPlugin().getPlaceholdersManager().registerPlaceholder(this, name,
-                    user -> String.join(", ", getReachedLimits(user, gm, env)));
+                    user -> getReachedLimitsText(user, gm, env));
+        }
+    }
+
+    /**
+     * Reached-limits placeholder text of one island and environment, and the versions of
+     * the island record and of the limit maps it was computed at.
+     */
+    private record ReachedLimits(IslandBlockCount ibc, int version, int limitsVersion, String text) {
+    }
+
+    /**
+     * The reached-limits placeholder text. It is computed again only when the island's
+     * limits, offsets or entity counts have changed, or a block count has crossed its
+     * limit, since the last time.
+     */
+    private String getReachedLimitsText(@Nullable User user, GameModeAddon gm, @Nullable Environment env) {
+        Island is = gm.getIslands().getIsland(gm.getOverWorld(), user);
+        if (is == null) {
+            return "";
         }
+        IslandBlockCount ibc = getBlockLimitListener().peekIsland(is.getUniqueId());
+        if (ibc == null) {
+            return "";
+        }
+        String cacheKey = is.getUniqueId() + "/" + env;
+        int version = ibc.getReachedVersion();
+        int limitsVersion = getBlockLimitListener().getLimitsVersion();
+        ReachedLimits cached = reachedLimits.get(cacheKey);
+        if (cached != null && cached.ibc() == ibc && cached.version() == version
+                && cached.limitsVersion() == limitsVersion) {
+            return cached.text();
+        }
+        String text = String.join(", ", getReachedLimits(gm, is, ibc, env));
+        reachedLimits.put(cacheKey, new ReachedLimits(ibc, version, limitsVersion, text));
+        return text;
     }
 
     /**
@@ -167,10 +339,15 @@ public class Limits extends Addon {
         if (is == null) {
             return List.of();
         }
-        IslandBlockCount ibc = getBlockLimitListener().getIsland(is.getUniqueId());
+        IslandBlockCount ibc = getBlockLimitListener().peekIsland(is.getUniqueId());
         if (ibc == null) {
             return List.of();
         }
+        return getReachedLimits(gm, is, ibc, env);
+    }
+
+    private List<String> getReachedLimits(GameModeAddon gm, Island is, IslandBlockCount ibc,
+            @Nullable Environment env) {
         List<Environment> envs = env == null ? Settings.ENVIRONMENTS : List.of(env);
         Set<String> reached = new LinkedHashSet<>();
         for (Environment e : envs) {
@@ -183,17 +360,24 @@ public class Limits extends Addon {
 
     private void addReachedBlockLimits(GameModeAddon gm, Island is, IslandBlockCount ibc, Environment env,
             Set<String> reached) {
-        getBlockLimitListener().getMaterialLimits(worldForEnv(gm, env), is.getUniqueId())
-                .forEach((key, limit) -> {
-                    if (limit >= 0 && ibc.getBlockCount(env, key) >= limit) {
-                        reached.add(Util.prettifyText(key.getKey()));
-                    }
-                });
+        Map<NamespacedKey, Integer> limits = getBlockLimitListener().getLoadedMaterialLimits(worldForEnv(gm, env),
+                is.getUniqueId());
+        // A count crossing one of these limits changes the result
+        ibc.watchBlockLimits(env, limits);
+        limits.forEach((key, limit) -> {
+            if (limit >= 0 && ibc.getBlockCount(env, key) >= limit) {
+                reached.add(Util.prettifyText(key.getKey()));
+            }
+        });
     }
 
     private void addReachedEntityLimits(IslandBlockCount ibc, Environment env, Set<String> reached) {
         Map<EntityType, Integer> defaults = getSettings().getLimits(env);
-        for (EntityType type : EntityType.values()) {
+        // Only types with a limit somewhere, in EntityType order
+        Set<EntityType> types = EnumSet.noneOf(EntityType.class);
+        types.addAll(defaults.keySet());
+        types.addAll(ibc.getEntityLimits(env).keySet());
+        for (EntityType type : types) {
             int limit = ibc.getEntityLimit(env, type);
             if (limit < 0) {
                 limit = defaults.getOrDefault(type, -1);
@@ -209,7 +393,12 @@ public class Limits extends Addon {
     }
 
     private void addReachedGroupLimits(IslandBlockCount ibc, Environment env, Set<String> reached) {
-        for (EntityGroup group : getSettings().getGroupLimitDefinitions()) {
+        List<EntityGroup> groups = getSettings().getGroupLimitDefinitions();
+        if (groups.isEmpty()) {
+            return;
+        }
+        int[] counts = getSettings().getGroupCounts(ibc.getEntityCounts(env));
+        for (EntityGroup group : groups) {
             int limit = ibc.getEntityGroupLimit(env, group.getName());
             if (limit < 0) {
                 limit = getSettings().getGroupLimits(env).getOrDefault(group.getName(), -1);
@@ -218,8 +407,7 @@ public class Limits extends Addon {
                 continue;
             }
             limit += ibc.getEntityGroupLimitOffset(env, group.getName());
-            long count = group.getTypes().stream().mapToLong(t -> ibc.getEntityCount(env, t)).sum();
-            if (count >= limit) {
+            if (counts[group.getId()] >= limit) {
                 reached.add(group.getName());
             }
         }
@@ -287,7 +475,7 @@ public class Limits extends Addon {
     private int getCount(@Nullable User user, NamespacedKey m, GameModeAddon gm, @Nullable Environment env) {
         Island is = gm.getIslands().getIsland(gm.getOverWorld(), user);
         if (is == null) return 0;
-        IslandBlockCount ibc = getBlockLimitListener().getIsland(is.getUniqueId());
+        IslandBlockCount ibc = getBlockLimitListener().peekIsland(is.getUniqueId());
         if (ibc == null) return 0;
         return env == null ? ibc.getBlockCount(m) : ibc.getBlockCount(env, m);
     }
@@ -295,7 +483,7 @@ public class Limits extends Addon {
     private long getCount(@Nullable User user, EntityType e, GameModeAddon gm, @Nullable Environment env) {
         Island is = gm.getIslands().getIsland(gm.getOverWorld(), user);
         if (is == null) return 0;
-        IslandBlockCount ibc = getBlockLimitListener().getIsland(is.getUniqueId());
+        IslandBlockCount ibc = getBlockLimitListener().peekIsland(is.getUniqueId());
         if (ibc == null) return 0;
         return env == null ? ibc.getEntityCount(e) : ibc.getEntityCount(env, e);
     }
@@ -303,12 +491,9 @@ public class Limits extends Addon {
     private String getLimit(@Nullable User user, NamespacedKey m, GameModeAddon gm, @Nullable Environment env) {
         Island is = gm.getIslands().getIsland(gm.getOverWorld(), user);
         if (is == null) return LIMIT_NOT_SET;
-        if (user != null) {
-            getJoinListener().checkPerms(user.getPlayer(), gm.getPermissionPrefix() + "island.limit.",
-                    is.getUniqueId(), gm.getDescription().getName());
-        }
+        getJoinListener().refreshPerms(is, gm);
         World w = worldForEnv(gm, env);
-        int limit = getBlockLimitListener().getMaterialLimits(w, is.getUniqueId()).getOrDefault(m, -1);
+        int limit = getBlockLimitListener().getLoadedMaterialLimits(w, is.getUniqueId()).getOrDefault(m, -1);
         return limit == -1 ? LIMIT_NOT_SET : String.valueOf(limit);
     }
 
@@ -316,9 +501,9 @@ public class Limits extends Addon {
         Island is = gm.getIslands().getIsland(gm.getOverWorld(), user);
         if (is == null) return LIMIT_NOT_SET;
         World w = worldForEnv(gm, env);
-        int limit = getBlockLimitListener().getMaterialLimits(w, is.getUniqueId()).getOrDefault(m, -1);
-        if (limit > 0) {
-            IslandBlockCount ibc = getBlockLimitListener().getIsland(is);
+        IslandBlockCount ibc = getBlockLimitListener().peekIsland(is.getUniqueId());
+        int limit = getBlockLimitListener().getLoadedMaterialLimits(w, is.getUniqueId()).getOrDefault(m, -1);
+        if (limit > 0 && ibc != null) {
             int offset = ibc.getBlockLimitOffset(env == null ? Environment.NORMAL : env, m);
             limit -= offset;
         }
@@ -328,9 +513,9 @@ public class Limits extends Addon {
     private String getLimit(@Nullable User user, EntityType e, GameModeAddon gm, @Nullable Environment env) {
         Island is = gm.getIslands().getIsland(gm.getOverWorld(), user);
         if (is == null) return LIMIT_NOT_SET;
-        IslandBlockCount ibc = getBlockLimitListener().getIsland(is);
+        IslandBlockCount ibc = getBlockLimitListener().peekIsland(is.getUniqueId());
         Environment effective = env == null ? Environment.NORMAL : env;
-        int limit = ibc.getEntityLimit(effective, e);
+        int limit = ibc == null ? -1 : ibc.getEntityLimit(effective, e);
         if (limit < 0) {
             Map<EntityType, Integer> envLimits = getSettings().getLimits(effective);
             if (envLimits.containsKey(e)) limit = envLimits.get(e);
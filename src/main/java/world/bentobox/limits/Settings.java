@@ -2,9 +2,9 @@ package world.bentobox.limits;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
@@ -17,6 +17,7 @@ import org.bukkit.Material;
 import org.bukkit.World.Environment;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.entity.EntityType;
+import org.eclipse.jdt.annotation.Nullable;
 
 public class Settings {
 
@@ -40,6 +41,7 @@ public class Settings {
     private static final String LIMIT_SUFFIX = ".limit";
     private static final String LIMIT_LOG_PREFIX = "Limit ";
     private static final String GROUP_OVERRIDE_PREFIX = "Group override ";
+    private static final EntityGroup[] NO_GROUPS = new EntityGroup[0];
 
     private final Map<GeneralGroup, Integer> general = new EnumMap<>(GeneralGroup.class);
     /** Per-env entity type limits (env defaults from config). */
@@ -52,12 +54,38 @@ public class Settings {
     private final Map<org.bukkit.NamespacedKey, List<BlockGroup>> blockGroups = new java.util.HashMap<>();
     /** Per-env block-group limits (defaults from config plus env overrides). */
     private final Map<Environment, Map<String, Integer>> envBlockGroupLimits = new EnumMap<>(Environment.class);
+    /** Entity groups in config order; a group's id is its index. Built once on load. */
+    private List<EntityGroup> groupDefinitions = List.of();
+    private Map<String, EntityGroup> groupsByName = Map.of();
+    /** Lower-case group name to group; the first definition wins. */
+    private Map<String, EntityGroup> groupsByLowerName = Map.of();
+    /** Entity groups containing each entity type, by type ordinal. */
+    private EntityGroup[][] groupsByType = {};
+    /** Block groups in config order; a group's id is its index. Built once on load. */
+    private List<BlockGroup> blockGroupDefinitions = List.of();
+    private Map<String, BlockGroup> blockGroupsByName = Map.of();
     private final List<String> gameModes;
     private final boolean logLimitsOnJoin;
     private final boolean asyncGolums;
     private final boolean showLimitMessages;
     private final boolean stackedPlantsCountAsOne;
+    private final boolean countLimitedBlocksOnly;
+    private final boolean allKeyPlaceholders;
     private final boolean applyMemberLimitPerms;
+    private final boolean lazyLoading;
+    private final int cacheSize;
+    private final int saveInterval;
+    private final int saveBatchSize;
+    private final boolean journalEnabled;
+    private final int journalCompactInterval;
+    private final int recountIslands;
+    private final int recountThreads;
+    private final int recountChunkLoads;
+    private final int recountTickBudget;
+    private final boolean recountChunkCache;
+    private final boolean metricsEnabled;
+    private final int metricsSampleEvery;
+    private final int metricsLogInterval;
     private static final List<EntityType> DISALLOWED = Arrays.asList(
             EntityType.TNT,
             EntityType.EVOKER_FANGS,
@@ -107,8 +135,32 @@ public class Settings {
         showLimitMessages = addon.getConfig().getBoolean("show-limit-messages", true);
         // Count a stackable plant column (sugar cane, bamboo) as a single plant
         stackedPlantsCountAsOne = addon.getConfig().getBoolean("stacked-plants-count-as-one", false);
+        // Ignore place/break events for blocks that no limit or block group refers to
+        countLimitedBlocksOnly = addon.getConfig().getBoolean("count-limited-blocks-only", false);
+        // Register count and limit placeholders for every block and entity, not only limited ones.
+        // A config from before this option keeps every placeholder it had.
+        allKeyPlaceholders = addon.getConfig().getBoolean("all-key-placeholders", true);
         // Apply team members' limit permissions, not just the owner's
         applyMemberLimitPerms = addon.getConfig().getBoolean("apply-member-limit-perms", false);
+        // Load island count records on demand instead of all at startup
+        lazyLoading = addon.getConfig().getBoolean("lazy-loading.enabled", false);
+        cacheSize = addon.getConfig().getInt("lazy-loading.cache-size", 10000);
+        // Write-behind saving of changed island counts
+        saveInterval = Math.max(1, addon.getConfig().getInt("write-behind.interval", 100));
+        saveBatchSize = Math.max(1, addon.getConfig().getInt("write-behind.batch-size", 50));
+        // Append-only journal of count changes, compacted into the database periodically
+        journalEnabled = addon.getConfig().getBoolean("journal.enabled", false);
+        journalCompactInterval = Math.max(20, addon.getConfig().getInt("journal.compact-interval", 6000));
+        // Recount pipeline sizing
+        recountIslands = Math.max(1, addon.getConfig().getInt("recount.concurrent-islands", 2));
+        recountThreads = Math.max(1, addon.getConfig().getInt("recount.threads", 2));
+        recountChunkLoads = Math.max(1, addon.getConfig().getInt("recount.max-chunk-loads", 200));
+        recountTickBudget = Math.max(1, addon.getConfig().getInt("recount.tick-budget-ms", 10));
+        recountChunkCache = addon.getConfig().getBoolean("recount.chunk-cache", true);
+        // Hot-path metrics
+        metricsEnabled = addon.getConfig().getBoolean("metrics.enabled", false);
+        metricsSampleEvery = Math.max(1, addon.getConfig().getInt("metrics.sample-every", 16));
+        metricsLogInterval = Math.max(0, addon.getConfig().getInt("metrics.log-interval", 0));
 
         addon.log("Entity limits:");
         envLimits.forEach((env, m) -> m.entrySet().stream()
@@ -146,6 +198,7 @@ public class Settings {
     private void loadBlockGroupDefinitions(Limits addon) {
         ConfigurationSection el = addon.getConfig().getConfigurationSection("blockgrouplimits");
         if (el == null) return;
+        List<BlockGroup> definitions = new ArrayList<>();
         for (String name : el.getKeys(false)) {
             int limit = el.getInt(name + LIMIT_SUFFIX);
             Material icon = parseIcon(addon, el.getString(name + ".icon", "BARRIER"));
@@ -158,11 +211,15 @@ public class Settings {
                 return world.bentobox.limits.listeners.BlockLimitsListener.canonicalKey(material);
             }).filter(Objects::nonNull).collect(Collectors.toCollection(LinkedHashSet::new));
             if (keys.isEmpty()) continue;
-            BlockGroup group = new BlockGroup(name, keys, limit, icon);
+            BlockGroup group = new BlockGroup(name, keys, limit, icon, definitions.size());
+            definitions.add(group);
             keys.forEach(k -> blockGroups.computeIfAbsent(k, x -> new ArrayList<>()).add(group));
             // Default group limit applies to every env unless overridden.
             ENVIRONMENTS.forEach(env -> envBlockGroupLimits.get(env).put(name, limit));
         }
+        blockGroups.replaceAll((k, groups) -> List.copyOf(groups));
+        blockGroupDefinitions = List.copyOf(definitions);
+        blockGroupsByName = definitions.stream().collect(Collectors.toUnmodifiableMap(BlockGroup::getName, g -> g));
     }
 
     private void loadBlockGroupLimitOverrides(Limits addon, String section, Environment env) {
@@ -181,7 +238,7 @@ public class Settings {
             return;
         }
         // Group must already be defined in the base blockgrouplimits section
-        if (getBlockGroupDefinitions().stream().noneMatch(g -> g.getName().equals(name))) {
+        if (!blockGroupsByName.containsKey(name)) {
             addon.logError(GROUP_OVERRIDE_PREFIX + section + "." + name
                     + " refers to an undefined group - define it under blockgrouplimits first.");
             return;
@@ -234,6 +291,7 @@ public class Settings {
     private void loadGroupDefinitions(Limits addon) {
         ConfigurationSection el = addon.getConfig().getConfigurationSection("entitygrouplimits");
         if (el == null) return;
+        List<EntityGroup> definitions = new ArrayList<>();
         for (String name : el.getKeys(false)) {
             int limit = el.getInt(name + LIMIT_SUFFIX);
             Material icon = parseIcon(addon, el.getString(name + ".icon", "BARRIER"));
@@ -250,11 +308,20 @@ public class Settings {
                 return type;
             }).filter(Objects::nonNull).collect(Collectors.toCollection(LinkedHashSet::new));
             if (entities.isEmpty()) continue;
-            EntityGroup group = new EntityGroup(name, entities, limit, icon);
+            EntityGroup group = new EntityGroup(name, entities, limit, icon, definitions.size());
+            definitions.add(group);
             entities.forEach(e -> groupLimits.computeIfAbsent(e, k -> new ArrayList<>()).add(group));
             // Default group limit applies to every env unless overridden.
             ENVIRONMENTS.forEach(env -> envGroupLimits.get(env).put(name, limit));
         }
+        groupDefinitions = List.copyOf(definitions);
+        groupsByName = definitions.stream().collect(Collectors.toUnmodifiableMap(EntityGroup::getName, g -> g));
+        Map<String, EntityGroup> lowerNames = new HashMap<>();
+        definitions.forEach(g -> lowerNames.putIfAbsent(g.getName().toLowerCase(Locale.ROOT), g));
+        groupsByLowerName = Map.copyOf(lowerNames);
+        groupsByType = new EntityGroup[EntityType.values().length][];
+        Arrays.fill(groupsByType, NO_GROUPS);
+        groupLimits.forEach((type, groups) -> groupsByType[type.ordinal()] = groups.toArray(EntityGroup[]::new));
     }
 
     private void loadGroupLimitOverrides(Limits addon, String section, Environment env) {
@@ -274,8 +341,7 @@ public class Settings {
             return;
         }
         // Group must already be defined in the base entitygrouplimits section
-        boolean exists = getGroupLimitDefinitions().stream().anyMatch(g -> g.getName().equals(name));
-        if (!exists) {
+        if (!groupsByName.containsKey(name)) {
             addon.logError(GROUP_OVERRIDE_PREFIX + section + "." + name
                     + " refers to an undefined group - define it under entitygrouplimits first.");
             return;
@@ -315,10 +381,52 @@ public class Settings {
     }
 
     /**
-     * @return the group definitions
+     * @return the group definitions in config order, indexed by {@link EntityGroup#getId()}
      */
     public List<EntityGroup> getGroupLimitDefinitions() {
-        return groupLimits.values().stream().flatMap(Collection::stream).distinct().toList();
+        return groupDefinitions;
+    }
+
+    /**
+     * @param name group name, case-sensitive
+     * @return the entity group, or null if none has this name
+     */
+    @Nullable
+    public EntityGroup getEntityGroup(String name) {
+        return groupsByName.get(name);
+    }
+
+    /**
+     * @param name group name, any case
+     * @return the entity group, or null if none has this name
+     */
+    @Nullable
+    public EntityGroup getEntityGroupIgnoreCase(String name) {
+        return groupsByLowerName.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * @param type entity type
+     * @return the entity groups containing this type; empty if none. Shared, do not modify.
+     */
+    public EntityGroup[] getEntityGroups(EntityType type) {
+        return type.ordinal() < groupsByType.length ? groupsByType[type.ordinal()] : NO_GROUPS;
+    }
+
+    /**
+     * Sums entity counts into group counts in one pass over the counts.
+     *
+     * @param entityCounts entity counts by type
+     * @return count of each entity group, indexed by {@link EntityGroup#getId()}
+     */
+    public int[] getGroupCounts(Map<EntityType, Integer> entityCounts) {
+        int[] counts = new int[groupDefinitions.size()];
+        entityCounts.forEach((type, count) -> {
+            for (EntityGroup group : getEntityGroups(type)) {
+                counts[group.getId()] += count;
+            }
+        });
+        return counts;
     }
 
     public List<String> getGameModes() {
@@ -348,6 +456,22 @@ public class Settings {
         return stackedPlantsCountAsOne;
     }
 
+    /**
+     * @return true if only blocks that a limit or block group refers to are counted;
+     *         false if every block is counted (default)
+     */
+    public boolean isCountLimitedBlocksOnly() {
+        return countLimitedBlocksOnly;
+    }
+
+    /**
+     * @return true if every block and entity type gets count and limit placeholders,
+     *         not only those some limit refers to
+     */
+    public boolean isAllKeyPlaceholders() {
+        return allKeyPlaceholders;
+    }
+
     /**
      * @return true if team members' limit permissions are applied to the island, not just the owner's
      */
@@ -355,6 +479,104 @@ public class Settings {
         return applyMemberLimitPerms;
     }
 
+    /**
+     * @return true if island count records are loaded on demand rather than all at startup
+     */
+    public boolean isLazyLoading() {
+        return lazyLoading;
+    }
+
+    /**
+     * @return maximum number of island count records kept in memory in lazy mode
+     */
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    /**
+     * @return ticks between write-behind flushes of changed island counts
+     */
+    public int getSaveInterval() {
+        return saveInterval;
+    }
+
+    /**
+     * @return maximum number of island records saved per write-behind flush
+     */
+    public int getSaveBatchSize() {
+        return saveBatchSize;
+    }
+
+    /**
+     * @return true if count changes are written to the local delta journal
+     */
+    public boolean isJournalEnabled() {
+        return journalEnabled;
+    }
+
+    /**
+     * @return ticks between compactions of the journal into the database
+     */
+    public int getJournalCompactInterval() {
+        return journalCompactInterval;
+    }
+
+    /**
+     * @return number of islands recounted at the same time
+     */
+    public int getRecountIslands() {
+        return recountIslands;
+    }
+
+    /**
+     * @return number of worker threads scanning chunk snapshots
+     */
+    public int getRecountThreads() {
+        return recountThreads;
+    }
+
+    /**
+     * @return maximum chunk loads requested by recounts at any one time
+     */
+    public int getRecountChunkLoads() {
+        return recountChunkLoads;
+    }
+
+    /**
+     * @return main-thread milliseconds per tick recounts may use
+     */
+    public int getRecountTickBudget() {
+        return recountTickBudget;
+    }
+
+    /**
+     * @return true if recounts reuse the saved counts of chunks that have not changed
+     */
+    public boolean isRecountChunkCache() {
+        return recountChunkCache;
+    }
+
+    /**
+     * @return true if the event handlers of the limit listeners are timed
+     */
+    public boolean isMetricsEnabled() {
+        return metricsEnabled;
+    }
+
+    /**
+     * @return events per timed event
+     */
+    public int getMetricsSampleEvery() {
+        return metricsSampleEvery;
+    }
+
+    /**
+     * @return minutes between metrics dumps to the log; 0 for none
+     */
+    public int getMetricsLogInterval() {
+        return metricsLogInterval;
+    }
+
     /**
      * @param key canonical block key
      * @return block groups containing this key; empty if none
@@ -371,10 +593,19 @@ public class Settings {
     }
 
     /**
-     * @return all defined block groups
+     * @return all defined block groups in config order, indexed by {@link BlockGroup#getId()}
      */
     public List<BlockGroup> getBlockGroupDefinitions() {
-        return blockGroups.values().stream().flatMap(Collection::stream).distinct().toList();
+        return blockGroupDefinitions;
+    }
+
+    /**
+     * @param name group name, case-sensitive
+     * @return the block group, or null if none has this name
+     */
+    @Nullable
+    public BlockGroup getBlockGroup(String name) {
+        return blockGroupsByName.get(name);
     }
 
     /**
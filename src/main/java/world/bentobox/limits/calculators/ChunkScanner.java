@@ -0,0 +1,141 @@
+package world.bentobox.limits.calculators;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.Tag;
+import org.bukkit.block.data.type.Slab;
+
+import com.google.common.collect.Multiset;
+
+import world.bentobox.limits.KeyIndex;
+import world.bentobox.limits.listeners.BlockLimitsListener;
+import world.bentobox.limits.objects.ChunkHistogram;
+
+/**
+ * Counts the tracked blocks in a chunk snapshot, one 16x16x16 section at a time.
+ *
+ * <p>Sections the snapshot reports empty are skipped outright. Blocks are read with
+ * {@link ChunkSnapshot#getBlockType} and only untracked materials are dropped by a
+ * bit test; {@code BlockData} is read only where state matters: piston heads (which
+ * piston they belong to) and tracked slabs (double slabs count twice).
+ *
+ * <p>Scanners are immutable and may be shared by worker threads.
+ */
+class ChunkScanner {
+
+    private static final int SECTION = 16;
+
+    private final BlockLimitsListener bll;
+    private final BitSet tracked;
+    private final boolean stackedAsOne;
+    private final long stamp;
+
+    /**
+     * @param bll listener, used to resolve piston heads
+     * @param tracked material ordinals to count
+     * @param stackedAsOne count a column of stackable plants as one
+     */
+    ChunkScanner(BlockLimitsListener bll, BitSet tracked, boolean stackedAsOne) {
+        this.bll = bll;
+        this.tracked = tracked;
+        this.stackedAsOne = stackedAsOne;
+        this.stamp = stamp(tracked, stackedAsOne);
+    }
+
+    /**
+     * Fingerprint of what is counted, built from the tracked material keys rather than
+     * their ordinals, which change between server versions. Never 0.
+     */
+    private static long stamp(BitSet tracked, boolean stackedAsOne) {
+        long h = stackedAsOne ? 1 : 2;
+        for (int i = tracked.nextSetBit(0); i >= 0; i = tracked.nextSetBit(i + 1)) {
+            // Order-independent sum of well-mixed key hashes
+            long z = KeyIndex.key(i).toString().hashCode();
+            z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+            z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+            h += z ^ (z >>> 33);
+        }
+        return h == 0 ? 1 : h;
+    }
+
+    /**
+     * @return stamp for chunk counts made by this scanner, see {@link ChunkHistogram#getStamp()}
+     */
+    long getStamp() {
+        return stamp;
+    }
+
+    /**
+     * @return true if blocks of this material ordinal are counted
+     */
+    boolean isTracked(int ordinal) {
+        return tracked.get(ordinal);
+    }
+
+    /**
+     * Count the tracked blocks of the snapshot that lie inside the given block bounds.
+     *
+     * @param minX lowest block x, inclusive
+     * @param maxX highest block x, exclusive
+     * @param minZ lowest block z, inclusive
+     * @param maxZ highest block z, exclusive
+     * @param minY world min height
+     * @param maxY world max height
+     * @param counts where counts are added
+     */
+    void scan(ChunkSnapshot snapshot, int minX, int maxX, int minZ, int maxZ, int minY, int maxY,
+            Multiset<NamespacedKey> counts) {
+        int baseX = snapshot.getX() << 4;
+        int baseZ = snapshot.getZ() << 4;
+        int x0 = Math.max(0, minX - baseX);
+        int x1 = Math.min(SECTION, maxX - baseX);
+        int z0 = Math.max(0, minZ - baseZ);
+        int z1 = Math.min(SECTION, maxZ - baseZ);
+        if (x0 >= x1 || z0 >= z1) {
+            return;
+        }
+        // The block below each column, for stacked plants; null is air
+        Material[] below = new Material[SECTION * SECTION];
+        int sections = (maxY - minY + SECTION - 1) / SECTION;
+        for (int s = 0; s < sections; s++) {
+            if (snapshot.isSectionEmpty(s)) {
+                Arrays.fill(below, null);
+                continue;
+            }
+            int y0 = minY + s * SECTION;
+            int y1 = Math.min(maxY, y0 + SECTION);
+            for (int y = y0; y < y1; y++) {
+                for (int x = x0; x < x1; x++) {
+                    for (int z = z0; z < z1; z++) {
+                        scanBlock(snapshot, x, y, z, below, counts);
+                    }
+                }
+            }
+        }
+    }
+
+    private void scanBlock(ChunkSnapshot snapshot, int x, int y, int z, Material[] below,
+            Multiset<NamespacedKey> counts) {
+        Material raw = snapshot.getBlockType(x, y, z);
+        Material type = BlockLimitsListener.needsBlockData(raw) ? bll.fixMaterialType(snapshot.getBlockData(x, y, z))
+                : BlockLimitsListener.canonicalType(raw);
+        int column = x * SECTION + z;
+        Material previous = below[column];
+        below[column] = type;
+        if (!tracked.get(type.ordinal())) {
+            return;
+        }
+        NamespacedKey key = type.getKey();
+        if (Tag.SLABS.isTagged(raw) && ((Slab) snapshot.getBlockData(x, y, z)).getType() == Slab.Type.DOUBLE) {
+            counts.add(key);
+        }
+        // Stacked-plants-as-one: segments sitting on the same plant are not counted
+        if (!(stackedAsOne && type == previous && BlockLimitsListener.STACKABLE.contains(key))) {
+            counts.add(key);
+        }
+    }
+}
@@ -1,32 +1,82 @@
 package world.bentobox.limits.calculators;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
-import java.util.Queue;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.World.Environment;
 import org.bukkit.scheduler.BukkitTask;
+import org.bukkit.util.BoundingBox;
 
 import world.bentobox.bentobox.BentoBox;
 import world.bentobox.bentobox.database.objects.Island;
+import world.bentobox.limits.HotPathStats;
 import world.bentobox.limits.Limits;
+import world.bentobox.limits.Settings;
 import world.bentobox.limits.calculators.Results.Result;
+import world.bentobox.limits.objects.ChunkHistogram;
+import world.bentobox.limits.objects.IslandBlockCount;
 
 /**
- * A pipeliner that will process one island at a time
+ * The addon-wide recount queue, owned by {@link Limits}. Islands are recounted several
+ * at a time.
+ *
+ * <p>Each island can be queued only once; the queue is indexed by island id. Admin
+ * requests go in a lane that is always served before the player lane.
+ *
+ * <p>Up to {@link Settings#getRecountIslands()} islands are scanned at once. Chunk
+ * snapshots are scanned on a small worker pool owned by the pipeliner, chunk loads
+ * requested by all running recounts are capped, and the main-thread work of taking
+ * snapshots is limited to a time budget per tick. A load counts against the cap, and
+ * its chunk is kept loaded with a plugin chunk ticket, until its snapshot is taken.
+ *
+ * <p>Besides whole islands, some chunks of an island can be queued for a region
+ * recount, see {@link #addRegion(Island, Environment, Collection, Lane)}. A region
+ * recount whose recorded chunk counts turn out to be for other materials than are
+ * tracked now becomes a full recount.
  * @author tastybento
  *
  */
 public class Pipeliner {
 
+    /** Queue lanes, served in this order. */
+    public enum Lane {
+        ADMIN,
+        PLAYER
+    }
+
     private static final int START_DURATION = 10; // 10 seconds
-    private static final int CONCURRENT_COUNTS = 1;
-    private final Queue<RecountCalculator> toProcessQueue;
+    /** Idle worker threads exit after this many seconds. */
+    private static final long WORKER_KEEP_ALIVE = 30L;
+    private final Deque<RecountCalculator> adminQueue = new ArrayDeque<>();
+    private final Deque<RecountCalculator> playerQueue = new ArrayDeque<>();
+    /** Every queued or running recount by island id. */
+    private final Map<String, RecountCalculator> byIsland = new HashMap<>();
     private final Map<RecountCalculator, Long> inProcessQueue;
     private final BukkitTask task;
     private final Limits addon;
+    private final int concurrentCounts;
+    private final int maxChunkLoads;
+    private final long tickBudgetNanos;
+    private final ThreadPoolExecutor executor;
+    private final AtomicInteger chunkLoads = new AtomicInteger();
+    /** Time from the start of each recount to its end. */
+    private final HotPathStats.Timer recountTimer;
+    private long tickUsedNanos;
     private long time;
     private long count;
 
@@ -35,7 +85,15 @@ public class Pipeliner {
      */
     public Pipeliner(Limits addon) {
         this.addon = addon;
-        toProcessQueue = new ConcurrentLinkedQueue<>();
+        recountTimer = HotPathStats.timer(addon.getStats(), "recount");
+        Settings settings = addon.getSettings();
+        concurrentCounts = Math.max(1, settings.getRecountIslands());
+        maxChunkLoads = Math.max(1, settings.getRecountChunkLoads());
+        tickBudgetNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, settings.getRecountTickBudget()));
+        int threads = Math.max(1, settings.getRecountThreads());
+        executor = new ThreadPoolExecutor(threads, threads, WORKER_KEEP_ALIVE, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), new WorkerFactory());
+        executor.allowCoreThreadTimeOut(true);
         inProcessQueue = new HashMap<>();
         // Loop continuously - check every tick if there is an island to scan
         task = Bukkit.getScheduler().runTaskTimer(BentoBox.getInstance(), () -> {
@@ -43,18 +101,34 @@ public class Pipeliner {
                 cancel();
                 return;
             }
-            // Complete the current to Process queue first
-            if (!inProcessQueue.isEmpty() || toProcessQueue.isEmpty()) return;
-            for (int j = 0; j < CONCURRENT_COUNTS && !toProcessQueue.isEmpty(); j++) {
-                RecountCalculator iD = toProcessQueue.poll();
+            // A new tick: reset the main-thread budget
+            tickUsedNanos = 0;
+            // Fill any free slots
+            while (inProcessQueue.size() < concurrentCounts && !isWaitingEmpty()) {
+                RecountCalculator iD = adminQueue.isEmpty() ? playerQueue.poll() : adminQueue.poll();
                 // Ignore deleted or unonwed islands
                 if (!iD.getIsland().isDeleted() && !iD.getIsland().isUnowned()) {
                     inProcessQueue.put(iD, System.currentTimeMillis());
                     // Start the scanning of a island with the first chunk
                     scanIsland(iD);
+                } else {
+                    byIsland.remove(iD.getIsland().getUniqueId());
+                    iD.getR().complete(new Results(Result.NO_ISLAND));
                 }
             }
-        }, 1L, 10L);
+        }, 1L, 1L);
+    }
+
+    /** Names the worker threads and keeps them from holding up a shutdown. */
+    private static class WorkerFactory implements ThreadFactory {
+        private final AtomicInteger number = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "Limits-Recount-" + number.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
     }
 
     private void cancel() {
@@ -65,7 +139,36 @@ public class Pipeliner {
      * @return number of islands currently in the queue or in process
      */
     public int getIslandsInQueue() {
-        return inProcessQueue.size() + toProcessQueue.size();
+        return inProcessQueue.size() + adminQueue.size() + playerQueue.size();
+    }
+
+    private boolean isWaitingEmpty() {
+        return adminQueue.isEmpty() && playerQueue.isEmpty();
+    }
+
+    /**
+     * @param island island
+     * @return number of islands waiting ahead of this one; 0 if it is being recounted
+     *         or will start on the next tick, -1 if it is not queued
+     */
+    public int getQueuePosition(Island island) {
+        RecountCalculator calc = byIsland.get(island.getUniqueId());
+        if (calc == null) {
+            return -1;
+        }
+        if (inProcessQueue.containsKey(calc)) {
+            return 0;
+        }
+        int ahead = 0;
+        for (Deque<RecountCalculator> lane : List.of(adminQueue, playerQueue)) {
+            for (RecountCalculator c : lane) {
+                if (c == calc) {
+                    return Math.max(0, ahead - (concurrentCounts - inProcessQueue.size()));
+                }
+                ahead++;
+            }
+        }
+        return -1;
     }
 
     /**
@@ -75,35 +178,160 @@ public class Pipeliner {
     private void scanIsland(RecountCalculator iD) {
         if (iD.getIsland().isDeleted() || iD.getIsland().isUnowned() || task.isCancelled()) {
             // Island is deleted, so finish early with nothing
-            inProcessQueue.remove(iD);
-            iD.getR().complete(null);
+            finished(iD);
+            iD.getR().complete(new Results(Result.NO_ISLAND));
             return;
         }
         iD.scanIsland(
                 () -> inProcessQueue.getOrDefault(iD, System.currentTimeMillis()),
-                () -> inProcessQueue.remove(iD),
+                () -> finished(iD),
                 task::isCancelled,
                 () -> scanIsland(iD));
     }
 
 
+    private void finished(RecountCalculator iD) {
+        Long started = inProcessQueue.remove(iD);
+        if (started != null) {
+            recountTimer.record(TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis() - started));
+        }
+        byIsland.remove(iD.getIsland().getUniqueId(), iD);
+    }
+
     /**
-     * Adds an island to the scanning queue but only if the island is not already in the queue
+     * Adds an island to the player lane of the scanning queue but only if the island is
+     * not already in the queue
      * @param island  - the island to scan
-     * @return CompletableFuture of the results. Results will be null if the island is already in the queue
+     * @return CompletableFuture of the results. Results will be {@link Result#IN_PROGRESS}
+     *         if the island is already in the queue
      */
     public CompletableFuture<Results> addIsland(Island island) {
-        // Check if queue already contains island
-        if (inProcessQueue.keySet().parallelStream().map(RecountCalculator::getIsland).anyMatch(island::equals)
-                || toProcessQueue.parallelStream().map(RecountCalculator::getIsland).anyMatch(island::equals)) {
+        return addIsland(island, Lane.PLAYER);
+    }
+
+    /**
+     * Adds an island to the scanning queue but only if the island is not already in the
+     * queue. An admin request for an island waiting in the player lane moves it to the
+     * admin lane.
+     * @param island  - the island to scan
+     * @param lane - queue lane
+     * @return CompletableFuture of the results. Results will be {@link Result#IN_PROGRESS}
+     *         if the island is already in the queue
+     */
+    public CompletableFuture<Results> addIsland(Island island, Lane lane) {
+        return addIsland(island, lane, false);
+    }
+
+    /**
+     * Adds an island to the scanning queue but only if the island is not already in the
+     * queue.
+     * @param island  - the island to scan
+     * @param lane - queue lane
+     * @param rescanAll - scan every chunk even if the chunk cache is on
+     * @return CompletableFuture of the results. Results will be {@link Result#IN_PROGRESS}
+     *         if the island is already in the queue
+     * @see #addIsland(Island, Lane)
+     */
+    public CompletableFuture<Results> addIsland(Island island, Lane lane, boolean rescanAll) {
+        RecountCalculator queued = byIsland.get(island.getUniqueId());
+        if (queued != null) {
+            if (lane == Lane.ADMIN && removeFrom(playerQueue, queued)) {
+                adminQueue.add(queued);
+            }
             return CompletableFuture.completedFuture(new Results(Result.IN_PROGRESS));
         }
-        return addToQueue(island);
+        CompletableFuture<Results> r = new CompletableFuture<>();
+        boolean useCache = !rescanAll && addon.getSettings().isRecountChunkCache();
+        return addToQueue(island, new RecountCalculator(addon, island, r, this, useCache), r, lane);
     }
 
-    private CompletableFuture<Results> addToQueue(Island island) {
+    /**
+     * Adds a recount of some chunks of an island to the scanning queue. Only chunks
+     * inside the island's protection range are counted. If a chunk has no recorded
+     * counts to correct from, or the island is already queued, this is the same as
+     * {@link #addIsland(Island, Lane)}.
+     * @param island - the island to scan
+     * @param env - environment of the chunks
+     * @param chunks - chunk keys, see {@link ChunkHistogram#chunkKey}
+     * @param lane - queue lane
+     * @return CompletableFuture of the results
+     */
+    public CompletableFuture<Results> addRegion(Island island, Environment env, Collection<Long> chunks, Lane lane) {
+        if (byIsland.containsKey(island.getUniqueId()) || !hasBaseline(island, env, chunks)) {
+            return addIsland(island, lane);
+        }
         CompletableFuture<Results> r = new CompletableFuture<>();
-        toProcessQueue.add(new RecountCalculator(addon, island, r));
+        return addToQueue(island, new RecountCalculator(addon, island, r, this, env, chunks), r, lane);
+    }
+
+    /**
+     * Adds a recount of the island chunks overlapping a block box on an island.
+     * @see #addRegion(Island, Environment, Collection, Lane)
+     */
+    public CompletableFuture<Results> addRegion(Island island, World world, BoundingBox box, Lane lane) {
+        return addRegion(island, world.getEnvironment(), chunksIn(island, box), lane);
+    }
+
+    /**
+     * @return true if every island chunk of the region has recorded counts of known
+     *         materials, so that it can be recounted without a full recount
+     */
+    public boolean hasBaseline(Island island, Environment env, Collection<Long> chunks) {
+        IslandBlockCount ibc = addon.getBlockLimitListener().getIsland(island);
+        return chunks.stream().filter(c -> RecountCalculator.isIslandChunk(island, c)).allMatch(c -> {
+            ChunkHistogram h = ibc.getChunkCounts(env, c);
+            return h != null && h.getStamp() != 0;
+        });
+    }
+
+    /**
+     * @return keys of the chunks overlapping both a block box and the island's protection
+     *         range; empty if they do not overlap
+     */
+    public static List<Long> chunksIn(Island island, BoundingBox box) {
+        int minX = island.getMinProtectedX();
+        int minZ = island.getMinProtectedZ();
+        int size = island.getProtectionRange() * 2;
+        double x1 = Math.max(box.getMinX(), minX);
+        double x2 = Math.min(box.getMaxX(), minX + size - 1D);
+        double z1 = Math.max(box.getMinZ(), minZ);
+        double z2 = Math.min(box.getMaxZ(), minZ + size - 1D);
+        if (x1 > x2 || z1 > z2) {
+            return List.of();
+        }
+        return chunksIn(new BoundingBox(x1, 0, z1, x2, 0, z2));
+    }
+
+    /**
+     * @return keys of the chunks overlapping a block box
+     */
+    public static List<Long> chunksIn(BoundingBox box) {
+        List<Long> keys = new ArrayList<>();
+        int maxX = (int) Math.floor(box.getMaxX()) >> 4;
+        int maxZ = (int) Math.floor(box.getMaxZ()) >> 4;
+        for (int x = (int) Math.floor(box.getMinX()) >> 4; x <= maxX; x++) {
+            for (int z = (int) Math.floor(box.getMinZ()) >> 4; z <= maxZ; z++) {
+                keys.add(ChunkHistogram.chunkKey(x, z));
+            }
+        }
+        return keys;
+    }
+
+    private static boolean removeFrom(Deque<RecountCalculator> lane, RecountCalculator calc) {
+        Iterator<RecountCalculator> it = lane.iterator();
+        while (it.hasNext()) {
+            if (it.next() == calc) {
+                it.remove();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private CompletableFuture<Results> addToQueue(Island island, RecountCalculator calc, CompletableFuture<Results> r,
+            Lane lane) {
+        byIsland.put(island.getUniqueId(), calc);
+        (lane == Lane.ADMIN ? adminQueue : playerQueue).add(calc);
         count++;
         return r;
     }
@@ -125,14 +353,71 @@ public class Pipeliner {
         this.time += time;
     }
 
+    /* ===== Shared recount resources ===== */
+
+    /**
+     * @return the worker pool that scans chunk snapshots
+     */
+    ExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Reserve chunk loads against the global cap. Called on the main thread.
+     *
+     * @param wanted loads wanted
+     * @param multiple the grant is rounded down to a multiple of this
+     * @return loads granted, possibly 0; each must be given back with {@link #releaseChunkLoads}
+     */
+    int acquireChunkLoads(int wanted, int multiple) {
+        int free = maxChunkLoads - chunkLoads.get();
+        int granted = Math.min(wanted, free) / multiple * multiple;
+        if (granted > 0) {
+            chunkLoads.addAndGet(granted);
+        }
+        return Math.max(0, granted);
+    }
+
+    /**
+     * Give back chunk loads once the chunks have been snapshotted or failed to load. May
+     * be called from any thread.
+     */
+    void releaseChunkLoads(int loads) {
+        chunkLoads.addAndGet(-loads);
+    }
+
+    /**
+     * @return chunk loads currently reserved
+     */
+    int getChunkLoads() {
+        return chunkLoads.get();
+    }
+
+    /**
+     * @return main-thread nanoseconds left for recount work in this tick
+     */
+    long getTickTimeLeft() {
+        return tickBudgetNanos - tickUsedNanos;
+    }
+
+    /**
+     * Record main-thread time spent on recount work in this tick.
+     */
+    void useTickTime(long nanos) {
+        tickUsedNanos += nanos;
+    }
+
     /**
      * Stop the current queue.
      */
     public void stop() {
-        addon.log("Stopping Level queue");
+        addon.log("Stopping recount queue");
         task.cancel();
+        executor.shutdownNow();
         this.inProcessQueue.clear();
-        this.toProcessQueue.clear();
+        this.adminQueue.clear();
+        this.playerQueue.clear();
+        this.byIsland.clear();
     }
 
     /**
@@ -148,8 +433,4 @@ public class Pipeliner {
     protected BukkitTask getTask() {
         return task;
     }
-
-
-
-
 }
@@ -1,14 +1,23 @@
 package world.bentobox.limits.calculators;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.function.BooleanSupplier;
 import java.util.function.LongSupplier;
 
@@ -17,32 +26,48 @@ import org.bukkit.Chunk;
 import org.bukkit.ChunkSnapshot;
 import org.bukkit.Location;
 import org.bukkit.NamespacedKey;
-import org.bukkit.Tag;
 import org.bukkit.World;
 import org.bukkit.World.Environment;
-import org.bukkit.block.data.BlockData;
-import org.bukkit.block.data.type.Slab;
 import org.bukkit.entity.Entity;
+import org.bukkit.entity.EntityType;
 import org.bukkit.entity.Hanging;
 import org.bukkit.entity.LivingEntity;
 import org.bukkit.entity.Vehicle;
 import org.bukkit.scheduler.BukkitTask;
+import org.eclipse.jdt.annotation.Nullable;
+
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Multiset;
 
 import world.bentobox.bentobox.BentoBox;
 import world.bentobox.bentobox.database.objects.Island;
 import world.bentobox.bentobox.util.Pair;
 import world.bentobox.bentobox.util.Util;
+import world.bentobox.limits.KeyIndex;
 import world.bentobox.limits.Limits;
+import world.bentobox.limits.calculators.Pipeliner.Lane;
 import world.bentobox.limits.calculators.Results.Result;
 import world.bentobox.limits.listeners.BlockLimitsListener;
+import world.bentobox.limits.objects.ChunkHistogram;
 import world.bentobox.limits.objects.IslandBlockCount;
+import world.bentobox.limits.objects.KeyCountMap;
 
 /**
  * Counter for limits.
  *
  * <p>Scans every loaded chunk in each of the island's environment worlds (overworld,
  * nether, end) and rebuilds {@link IslandBlockCount}'s per-env block and entity
- * counts from scratch.
+ * counts from scratch. Chunk loads, snapshotting and the worker pool that scans the
+ * snapshots are shared with the other recounts through the {@link Pipeliner}.
+ *
+ * <p>A full recount also records each chunk's tracked counts ({@link ChunkHistogram}),
+ * stored apart from the island's record once the recount completes.
+ * A region recount rescans only some chunks of one environment and corrects the island
+ * totals by the difference between each chunk's new counts and its recorded ones.
+ * With the chunk cache on, a full recount takes the recorded counts of chunks where no
+ * block has changed since they were scanned instead of loading and scanning them.
+ * Entities are not recorded per chunk, so an environment where any chunk's entities
+ * could not be counted keeps its current entity counts.
  *
  * @author tastybento
  */
@@ -50,6 +75,8 @@ public class RecountCalculator {
     public static final long MAX_AMOUNT = 10000;
     private static final int CHUNKS_TO_SCAN = 100;
     private static final int CALCULATION_TIMEOUT = 5;
+    /** Milliseconds to wait for a loaded chunk's entities before giving up on them. */
+    private static final long ENTITY_WAIT = 5000;
 
     private final Limits addon;
     private final Queue<Pair<Integer, Integer>> chunksToCheck;
@@ -61,10 +88,52 @@ public class RecountCalculator {
     private BukkitTask finishTask;
     private final BlockLimitsListener bll;
     private final World world;
+    private final Pipeliner pipeliner;
     private IslandBlockCount ibc;
+    /** Scanner per environment, set up on the main thread when the scan starts. */
+    private Map<Environment, ChunkScanner> scanners;
+    /** Chunks of a region recount, or null for a full recount. */
+    @Nullable
+    private final Set<Long> region;
+    /** Reuse recorded chunk counts that are still valid. */
+    private final boolean useCache;
+    /** Loaded chunks held until their entities have loaded too. Main thread only. */
+    private final List<AwaitingEntities> awaitingEntities = new ArrayList<>();
+    private BukkitTask entityTask;
+    /** Environments where some chunk's entities were not counted. Main thread only. */
+    private final Set<Environment> entitiesUnknown = EnumSet.noneOf(Environment.class);
+
+    private record AwaitingEntities(Environment env, Chunk chunk, long since) {
+    }
+    /** A chunk could not be loaded or scanned, so the results are incomplete. */
+    private volatile boolean failed;
+
+    /**
+     * Full recount of every chunk of the island in every environment.
+     *
+     * @param useCache reuse the recorded counts of unchanged chunks
+     */
+    public RecountCalculator(Limits addon, Island island, CompletableFuture<Results> r, Pipeliner pipeliner,
+            boolean useCache) {
+        this(addon, island, r, pipeliner, null, null, useCache);
+    }
 
-    public RecountCalculator(Limits addon, Island island, CompletableFuture<Results> r) {
+    /**
+     * Region recount of some chunks of the island in one environment.
+     *
+     * @param regionEnv environment to rescan, or null for a full recount
+     * @param regionChunks keys of the chunks to rescan, see {@link ChunkHistogram#chunkKey}
+     */
+    public RecountCalculator(Limits addon, Island island, CompletableFuture<Results> r, Pipeliner pipeliner,
+            @Nullable Environment regionEnv, @Nullable Collection<Long> regionChunks) {
+        this(addon, island, r, pipeliner, regionEnv, regionChunks, false);
+    }
+
+    private RecountCalculator(Limits addon, Island island, CompletableFuture<Results> r, Pipeliner pipeliner,
+            @Nullable Environment regionEnv, @Nullable Collection<Long> regionChunks, boolean useCache) {
         this.addon = addon;
+        this.useCache = useCache;
+        this.pipeliner = pipeliner;
         this.bll = addon.getBlockLimitListener();
         this.island = island;
         this.ibc = bll.getIsland(Objects.requireNonNull(island));
@@ -85,15 +154,54 @@ public class RecountCalculator {
             World end = addon.getPlugin().getIWM().getEndWorld(island.getWorld());
             if (end != null) worlds.put(Environment.THE_END, end);
         }
+        if (regionEnv != null && regionChunks != null) {
+            worlds.keySet().retainAll(List.of(regionEnv));
+            region = new HashSet<>(regionChunks);
+            region.removeIf(c -> !isIslandChunk(island, c));
+            chunksToCheck.removeIf(p -> !region.contains(ChunkHistogram.chunkKey(p.x, p.z)));
+        } else {
+            region = null;
+        }
+    }
+
+    /**
+     * @return true if the chunk overlaps the island's protection range
+     */
+    static boolean isIslandChunk(Island island, long chunkKey) {
+        int minX = island.getMinProtectedX();
+        int minZ = island.getMinProtectedZ();
+        int size = island.getProtectionRange() * 2;
+        int x = ChunkHistogram.chunkX(chunkKey);
+        int z = ChunkHistogram.chunkZ(chunkKey);
+        return x >= minX >> 4 && x <= (minX + size - 1) >> 4 && z >= minZ >> 4 && z <= (minZ + size - 1) >> 4;
     }
 
-    private void checkBlock(Environment env, BlockData b) {
-        NamespacedKey md = bll.fixMaterial(b);
-        // Only count materials that are tracked at any level (env default, world override,
-        // island, or block group membership).
-        if (bll.getMaterialLimits(worlds.get(env), island.getUniqueId()).containsKey(md)
-                || addon.getSettings().isInBlockGroup(md)) {
-            results.getBlockCount(env).add(md);
+    /**
+     * Work out once per recount which materials are tracked at any level (env default,
+     * world override, island, or block group membership), as a bitset over material
+     * ordinals. Built on the main thread so the workers never touch the listener's maps,
+     * and so the per-block test is a single bit read.
+     */
+    private Map<Environment, ChunkScanner> createScanners() {
+        BitSet grouped = new BitSet(KeyIndex.size());
+        addon.getSettings().getBlockGroupDefinitions().forEach(g -> setOrdinals(grouped, g.getKeys()));
+        boolean stackedAsOne = addon.getSettings().isStackedPlantsCountAsOne();
+        Map<Environment, ChunkScanner> result = new EnumMap<>(Environment.class);
+        worlds.forEach((env, w) -> {
+            BitSet bits = (BitSet) grouped.clone();
+            setOrdinals(bits, bll.getMaterialLimits(w, island.getUniqueId()).keySet());
+            result.put(env, new ChunkScanner(bll, bits, stackedAsOne));
+        });
+        return result;
+    }
+
+    /** Keys without an ordinal (custom blocks, tags) never appear in a chunk scan. */
+    private static void setOrdinals(BitSet bits, Collection<NamespacedKey> keys) {
+        for (NamespacedKey key : keys) {
+            int ordinal = KeyIndex.ordinal(key);
+            if (ordinal != KeyIndex.NONE) {
+                bits.set(ordinal);
+            }
         }
     }
 
@@ -128,7 +236,8 @@ public class RecountCalculator {
             List<CompletableFuture<Chunk>> futures = new ArrayList<>();
             while (!pairList.isEmpty()) {
                 Pair<Integer, Integer> p = pairList.poll();
-                futures.add(Util.getChunkAtAsync(envWorld, p.x, p.z, isNether));
+                // Each load was reserved against the pipeliner's cap
+                futures.add(Util.getChunkAtAsync(envWorld, p.x, p.z, isNether).handle((c, e) -> hold(c)));
             }
             if (futures.isEmpty()) {
                 return CompletableFuture.completedFuture(Collections.emptyList());
@@ -142,42 +251,112 @@ public class RecountCalculator {
         return CompletableFuture.completedFuture(Collections.emptyList());
     }
 
-    private void scanAsync(Environment env, Chunk chunk) {
-        ChunkSnapshot chunkSnapshot = chunk.getChunkSnapshot();
+    /**
+     * Keep a loaded chunk loaded until its snapshot has been taken, still counting it
+     * against the pipeliner's cap. A failed load is given back at once.
+     *
+     * @return the chunk, or null if it did not load
+     */
+    @Nullable
+    private Chunk hold(@Nullable Chunk chunk) {
+        if (chunk == null) {
+            failed = true;
+            pipeliner.releaseChunkLoads(1);
+        } else {
+            chunk.addPluginChunkTicket(addon.getPlugin());
+        }
+        return chunk;
+    }
+
+    /**
+     * Let a chunk held by {@link #hold} unload again and give back its load.
+     */
+    private void release(Chunk chunk) {
+        chunk.removePluginChunkTicket(addon.getPlugin());
+        pipeliner.releaseChunkLoads(1);
+    }
+
+    private void scanSnapshot(Environment env, ChunkSnapshot chunkSnapshot, int minY, int maxY) {
         int minX = island.getMinProtectedX();
         int maxX = minX + island.getProtectionRange() * 2;
         int minZ = island.getMinProtectedZ();
         int maxZ = minZ + island.getProtectionRange() * 2;
-        int chunkBaseX = chunkSnapshot.getX() * 16;
-        int chunkBaseZ = chunkSnapshot.getZ() * 16;
-        int minY = chunk.getWorld().getMinHeight();
-        int maxY = chunk.getWorld().getMaxHeight();
-        for (int x = 0; x < 16; x++) {
-            int absX = chunkBaseX + x;
-            if (absX < minX || absX >= maxX) continue;
-            for (int z = 0; z < 16; z++) {
-                int absZ = chunkBaseZ + z;
-                if (absZ < minZ || absZ >= maxZ) continue;
-                scanColumn(env, chunkSnapshot, x, z, minY, maxY);
-            }
+        // Count into a local multiset; several workers may be scanning this island
+        Multiset<NamespacedKey> counts = HashMultiset.create();
+        scanners.get(env).scan(chunkSnapshot, minX, maxX, minZ, maxZ, minY, maxY, counts);
+        ChunkHistogram histogram = ChunkHistogram.of(counts);
+        histogram.setStamp(scanners.get(env).getStamp());
+        synchronized (results) {
+            results.getBlockCount(env).addAll(counts);
+            results.getChunkCounts(env).put(ChunkHistogram.chunkKey(chunkSnapshot.getX(), chunkSnapshot.getZ()),
+                    histogram);
         }
     }
 
-    private void scanColumn(Environment env, ChunkSnapshot chunkSnapshot, int x, int z, int minY, int maxY) {
-        boolean stackedAsOne = addon.getSettings().isStackedPlantsCountAsOne();
-        NamespacedKey below = null;
-        for (int y = minY; y < maxY; y++) {
-            BlockData blockData = chunkSnapshot.getBlockData(x, y, z);
-            if (Tag.SLABS.isTagged(blockData.getMaterial())
-                    && ((Slab) blockData).getType().equals(Slab.Type.DOUBLE)) {
-                checkBlock(env, blockData);
+    /**
+     * Take chunk snapshots and count the chunks' entities on the main thread within the
+     * pipeliner's per-tick budget, carrying the rest over to following ticks. Entities
+     * load after their chunk, so a chunk whose entities are not there yet stays held
+     * until they are.
+     */
+    private void takeSnapshots(Environment env, Deque<Chunk> chunks, List<ChunkSnapshot> snapshots,
+            CompletableFuture<List<ChunkSnapshot>> done) {
+        long start = System.nanoTime();
+        long budget = pipeliner.getTickTimeLeft();
+        while (!chunks.isEmpty() && System.nanoTime() - start < budget) {
+            Chunk chunk = chunks.poll();
+            try {
+                snapshots.add(chunk.getChunkSnapshot());
+            } catch (RuntimeException e) {
+                addon.logError("Chunk snapshot failed for island " + island.getUniqueId() + ": " + e.getMessage());
+                failed = true;
+                release(chunk);
+                continue;
+            }
+            if (region != null || chunk.isEntitiesLoaded()) {
+                countEntities(env, chunk);
+                release(chunk);
+            } else {
+                awaitEntities(env, chunk);
             }
-            NamespacedKey key = bll.fixMaterial(blockData);
-            // Stacked-plants-as-one: segments sitting on the same plant are not counted
-            if (!(stackedAsOne && BlockLimitsListener.STACKABLE.contains(key) && key.equals(below))) {
-                checkBlock(env, blockData);
+        }
+        pipeliner.useTickTime(System.nanoTime() - start);
+        if (chunks.isEmpty()) {
+            done.complete(snapshots);
+        } else {
+            Bukkit.getScheduler().runTask(BentoBox.getInstance(), () -> takeSnapshots(env, chunks, snapshots, done));
+        }
+    }
+
+    private void awaitEntities(Environment env, Chunk chunk) {
+        awaitingEntities.add(new AwaitingEntities(env, chunk, System.currentTimeMillis()));
+        if (entityTask == null) {
+            entityTask = Bukkit.getScheduler().runTaskTimer(addon.getPlugin(), this::countLoadedEntities, 1L, 1L);
+        }
+    }
+
+    /**
+     * Count and release the held chunks whose entities have loaded since the last tick.
+     * A chunk that waited too long is released uncounted.
+     */
+    private void countLoadedEntities() {
+        long now = System.currentTimeMillis();
+        Iterator<AwaitingEntities> it = awaitingEntities.iterator();
+        while (it.hasNext()) {
+            AwaitingEntities a = it.next();
+            if (a.chunk().isEntitiesLoaded()) {
+                countEntities(a.env(), a.chunk());
+            } else if (now - a.since() > ENTITY_WAIT) {
+                entitiesUnknown.add(a.env());
+            } else {
+                continue;
             }
-            below = key;
+            release(a.chunk());
+            it.remove();
+        }
+        if (awaitingEntities.isEmpty()) {
+            entityTask.cancel();
+            entityTask = null;
         }
     }
 
@@ -185,26 +364,59 @@ public class RecountCalculator {
         if (chunks == null || chunks.isEmpty()) {
             return CompletableFuture.completedFuture(false);
         }
+        World w = worlds.get(env);
+        int minY = w.getMinHeight();
+        int maxY = w.getMaxHeight();
+        CompletableFuture<List<ChunkSnapshot>> snapshots = new CompletableFuture<>();
+        takeSnapshots(env, new ArrayDeque<>(chunks), new ArrayList<>(chunks.size()), snapshots);
         CompletableFuture<Boolean> result = new CompletableFuture<>();
-        Bukkit.getScheduler().runTaskAsynchronously(BentoBox.getInstance(), () -> {
-            chunks.forEach(chunk -> scanAsync(env, chunk));
-            Bukkit.getScheduler().runTask(addon.getPlugin(), () -> result.complete(true));
-        });
+        snapshots.thenCompose(list -> CompletableFuture.allOf(list.stream()
+                .map(snap -> CompletableFuture.runAsync(() -> scanSnapshot(env, snap, minY, maxY),
+                        pipeliner.getExecutor()))
+                .toArray(CompletableFuture[]::new)))
+                .whenComplete((v, e) -> {
+                    if (e != null) {
+                        addon.logError("Chunk scan failed for island " + island.getUniqueId() + ": " + e.getMessage());
+                        failed = true;
+                    }
+                    // Back to the main thread
+                    Bukkit.getScheduler().runTask(BentoBox.getInstance(), () -> result.complete(e == null));
+                });
         return result;
     }
 
     public CompletableFuture<Boolean> scanNextChunk() {
         if (chunksToCheck.isEmpty()) {
+            if (region != null) {
+                // The region lay outside the island
+                return CompletableFuture.completedFuture(false);
+            }
             addon.logError("Unexpected: no chunks to scan!");
             return CompletableFuture.completedFuture(false);
         }
+        if (scanners == null) {
+            scanners = createScanners();
+            ibc = bll.getIsland(island);
+        }
+        // One load per chunk per environment world, reserved against the global cap
+        int perChunk = worlds.size();
+        int batch = pipeliner.acquireChunkLoads(Math.min(CHUNKS_TO_SCAN, chunksToCheck.size()) * perChunk, perChunk)
+                / perChunk;
+        if (batch == 0) {
+            // Other recounts hold every load slot; try again next tick
+            return CompletableFuture.completedFuture(true);
+        }
         Queue<Pair<Integer, Integer>> pairList = new ConcurrentLinkedQueue<>();
-        int i = 0;
-        while (!chunksToCheck.isEmpty() && i++ < CHUNKS_TO_SCAN) {
-            pairList.add(chunksToCheck.poll());
+        Queue<Pair<Integer, Integer>> endPairList = new ConcurrentLinkedQueue<>();
+        Queue<Pair<Integer, Integer>> netherPairList = new ConcurrentLinkedQueue<>();
+        int loads = 0;
+        for (int i = 0; i < batch; i++) {
+            Pair<Integer, Integer> p = chunksToCheck.poll();
+            loads += addUncached(Environment.NORMAL, p, pairList) + addUncached(Environment.NETHER, p, netherPairList)
+                    + addUncached(Environment.THE_END, p, endPairList);
         }
-        Queue<Pair<Integer, Integer>> endPairList = new ConcurrentLinkedQueue<>(pairList);
-        Queue<Pair<Integer, Integer>> netherPairList = new ConcurrentLinkedQueue<>(pairList);
+        // Loads saved by the cache go back to the other recounts
+        pipeliner.releaseChunkLoads(batch * perChunk - loads);
 
         CompletableFuture<List<Chunk>> endFuture = getWorldChunk(Environment.THE_END, endPairList);
         CompletableFuture<List<Chunk>> netherFuture = getWorldChunk(Environment.NETHER, netherPairList);
@@ -214,55 +426,200 @@ public class RecountCalculator {
                 .thenCompose(v -> scanChunk(Environment.THE_END, endFuture.join())
                         .thenCompose(b -> scanChunk(Environment.NETHER, netherFuture.join()))
                         .thenCompose(b2 -> scanChunk(Environment.NORMAL, normalFuture.join()))
-                        .thenApply(b3 -> !chunksToCheck.isEmpty()));
-    }
-
-    private void scanEntities() {
-        for (Map.Entry<Environment, World> e : worlds.entrySet()) {
-            Environment env = e.getKey();
-            World w = e.getValue();
-            for (Entity entity : w.getEntities()) {
-                if (!island.inIslandSpace(entity.getLocation())) continue;
-                if (entity instanceof LivingEntity || entity instanceof Hanging
-                        || entity instanceof Vehicle
-                        || entity.getType().name().equals("ARMOR_STAND")) {
-                    results.getEntityCount(env).add(entity.getType());
-                }
+                        .thenApply(b3 -> !failed && !chunksToCheck.isEmpty()));
+    }
+
+    /**
+     * Queue a chunk for loading and scanning, unless it can be counted from its recorded
+     * counts because no block has changed in it since they were taken.
+     *
+     * @return number of chunk loads needed, 0 or 1
+     */
+    private int addUncached(Environment env, Pair<Integer, Integer> p, Queue<Pair<Integer, Integer>> toLoad) {
+        ChunkScanner scanner = scanners.get(env);
+        if (scanner == null) {
+            return 0;
+        }
+        long key = ChunkHistogram.chunkKey(p.x, p.z);
+        ChunkHistogram cached = useCache ? ibc.getChunkCounts(env, key) : null;
+        if (cached == null || cached.isChanged() || cached.getStamp() != scanner.getStamp()) {
+            toLoad.add(p);
+            return 1;
+        }
+        // Entities are never cached; count them if the chunk happens to be loaded
+        World w = worlds.get(env);
+        if (w.isChunkLoaded(p.x, p.z) && w.getChunkAt(p.x, p.z).isEntitiesLoaded()) {
+            countEntities(env, w.getChunkAt(p.x, p.z));
+        } else if (region == null) {
+            entitiesUnknown.add(env);
+        }
+        // A copy: the recorded counts keep following block changes until the recount ends
+        ChunkHistogram h = cached.copy();
+        synchronized (results) {
+            Multiset<NamespacedKey> counts = results.getBlockCount(env);
+            for (int i = 0; i < h.size(); i++) {
+                counts.add(KeyIndex.key(h.ordinalAt(i)), h.countAt(i));
+            }
+            results.getChunkCounts(env).put(key, h);
+        }
+        return 0;
+    }
+
+    /**
+     * Count the limited entities of one chunk. Main thread only. Region recounts leave
+     * entity counts alone, so they skip this.
+     */
+    private void countEntities(Environment env, Chunk chunk) {
+        if (region != null) {
+            return;
+        }
+        Multiset<EntityType> counts = HashMultiset.create();
+        for (Entity entity : chunk.getEntities()) {
+            if (island.inIslandSpace(entity.getLocation()) && (entity instanceof LivingEntity
+                    || entity instanceof Hanging || entity instanceof Vehicle
+                    || entity.getType().name().equals("ARMOR_STAND"))) {
+                counts.add(entity.getType());
+            }
+        }
+        if (!counts.isEmpty()) {
+            synchronized (results) {
+                results.getEntityCount(env).addAll(counts);
             }
         }
     }
 
+    /** Count tables built from the results, ready to swap into the island's record. */
+    private record Tables(Map<Environment, KeyCountMap> blocks, Map<Environment, Map<EntityType, Integer>> entities) {
+    }
+
+    /**
+     * Build the new count tables from the results. Touches no game state, so it runs on
+     * a worker thread once the scan has finished.
+     */
+    private Tables buildTables() {
+        Map<Environment, KeyCountMap> blocks = new EnumMap<>(Environment.class);
+        Map<Environment, Map<EntityType, Integer>> entities = new EnumMap<>(Environment.class);
+        synchronized (results) {
+            results.getEnvBlockCount().forEach((env, multiset) -> {
+                KeyCountMap table = new KeyCountMap();
+                multiset.entrySet().forEach(e -> table.setInt(e.getElement(), e.getCount()));
+                blocks.put(env, table);
+            });
+            results.getEnvEntityCount().forEach((env, multiset) -> {
+                Map<EntityType, Integer> table = new EnumMap<>(EntityType.class);
+                multiset.entrySet().forEach(e -> table.put(e.getElement(), e.getCount()));
+                entities.put(env, table);
+            });
+        }
+        return new Tables(blocks, entities);
+    }
+
     public void tidyUp() {
+        tidyUp(buildTables());
+    }
+
+    /**
+     * Swap the tables into the island's record. Main thread only. Environments where not
+     * every chunk's entities were counted keep their entity counts.
+     */
+    private void tidyUp(Tables tables) {
         ibc = bll.getIsland(island);
-        // Custom-namespace counts (ItemsAdder/Oraxen blocks) are event-tracked and
-        // invisible to the chunk scan, so carry them across the reset untouched.
-        Map<Environment, Map<NamespacedKey, Integer>> customCounts = new EnumMap<>(Environment.class);
-        for (Environment env : List.of(Environment.NORMAL, Environment.NETHER, Environment.THE_END)) {
-            ibc.getBlockCounts(env).forEach((key, count) -> {
-                if (!NamespacedKey.MINECRAFT.equals(key.getNamespace())) {
-                    customCounts.computeIfAbsent(env, e -> new java.util.HashMap<>()).put(key, count);
-                }
-            });
+        // Chunks still waiting for their entities were not counted
+        awaitingEntities.forEach(a -> entitiesUnknown.add(a.env()));
+        for (Environment env : entitiesUnknown) {
+            Map<EntityType, Integer> current = new EnumMap<>(EntityType.class);
+            current.putAll(ibc.getAllEntityCounts().getOrDefault(env, Map.of()));
+            tables.entities().put(env, current);
         }
-        // Reset and write per-env block counts
-        ibc.clearAllBlockCounts();
-        results.getEnvBlockCount().forEach((env, multiset) -> multiset.forEach(key -> ibc.add(env, key)));
-        customCounts.forEach((env, m) -> m.forEach((key, count) -> {
-            for (int i = 0; i < count; i++) {
-                ibc.add(env, key);
+        ibc.replaceCounts(tables.blocks(), tables.entities());
+        // Every scanned chunk becomes the baseline for later region recounts
+        ibc.replaceChunkCounts(results.getEnvChunkCounts());
+        bll.saveChunkCounts(ibc);
+        bll.setIsland(island.getUniqueId(), ibc);
+    }
+
+    /**
+     * Build the tables on a worker thread, then swap them in on the main thread and
+     * complete the recount.
+     */
+    private void finishFull() {
+        CompletableFuture<Tables> tables;
+        try {
+            tables = CompletableFuture.supplyAsync(this::buildTables, pipeliner.getExecutor());
+        } catch (RejectedExecutionException e) {
+            // The pipeliner is stopping
+            tables = CompletableFuture.completedFuture(buildTables());
+        }
+        tables.whenComplete((t, e) -> Bukkit.getScheduler().runTask(BentoBox.getInstance(), () -> {
+            if (e != null) {
+                addon.logError("Building recount tables failed for island " + island.getUniqueId() + ": "
+                        + e.getMessage());
             }
+            tidyUp(t != null ? t : buildTables());
+            getR().complete(getResults());
         }));
+    }
 
-        // Recount entities (loaded only) and write per-env
-        scanEntities();
-        ibc.clearAllEntityCounts();
-        results.getEnvEntityCount().forEach((env, multiset) -> multiset
-                .entrySet().forEach(en -> {
-                    for (int i = 0; i < en.getCount(); i++) {
-                        ibc.incrementEntity(env, en.getElement());
-                    }
-                }));
+    /**
+     * Correct the island's block counts by what changed in the rescanned chunks.
+     * Entity counts are left alone. Nothing is changed unless every chunk's recorded
+     * counts were scanned for the same materials as now: a material tracked since then
+     * has recorded counts that hold only the changes made after the scan, so the
+     * difference would be wrong.
+     *
+     * @return true if the counts were corrected, false if a full recount is needed
+     */
+    public boolean applyRegion() {
+        ibc = bll.getIsland(island);
+        for (Map.Entry<Environment, Map<Long, ChunkHistogram>> e : results.getEnvChunkCounts().entrySet()) {
+            long stamp = scanners.get(e.getKey()).getStamp();
+            for (Long key : e.getValue().keySet()) {
+                ChunkHistogram old = ibc.getChunkCounts(e.getKey(), key);
+                if (old == null || old.getStamp() != stamp) {
+                    return false;
+                }
+            }
+        }
+        results.getEnvChunkCounts().forEach((env, chunks) -> chunks.forEach((key, scanned) -> {
+            ChunkHistogram old = ibc.getChunkCounts(env, key);
+            ChunkScanner scanner = scanners.get(env);
+            for (int i = 0; i < scanned.size(); i++) {
+                int ordinal = scanned.ordinalAt(i);
+                adjust(env, ordinal, scanned.countAt(i) - old.get(ordinal));
+            }
+            for (int i = 0; i < old.size(); i++) {
+                int ordinal = old.ordinalAt(i);
+                if (!scanner.isTracked(ordinal)) {
+                    // Untracked blocks are not scanned; keep their event-tracked counts
+                    scanned.add(ordinal, old.countAt(i));
+                } else if (scanned.get(ordinal) == 0) {
+                    adjust(env, ordinal, -old.countAt(i));
+                }
+            }
+            ibc.setChunkCounts(env, key, scanned);
+        }));
+        bll.saveChunkCounts(ibc);
         bll.setIsland(island.getUniqueId(), ibc);
+        return true;
+    }
+
+    private void adjust(Environment env, int ordinal, int delta) {
+        NamespacedKey key = KeyIndex.key(ordinal);
+        if (delta > 0) {
+            ibc.add(env, key, delta);
+        } else if (delta < 0) {
+            ibc.remove(env, key, -delta);
+        }
+    }
+
+    /**
+     * Finish a region recount that cannot correct from the recorded counts with a full
+     * recount of the island instead.
+     */
+    private void recountAll() {
+        addon.log("Recorded chunk counts of island " + island.getUniqueId()
+                + " do not match the tracked blocks; recounting the whole island");
+        pipeliner.addIsland(island, Lane.ADMIN, true).thenAccept(getR()::complete);
     }
 
     public void scanIsland(LongSupplier startTime, Runnable onRemove, BooleanSupplier isCancelled, Runnable recurse) {
@@ -277,17 +634,31 @@ public class RecountCalculator {
                         + getIsland());
                 return;
             }
+            if (failed) {
+                // Counts missing a chunk's blocks must not replace the island's
+                onRemove.run();
+                addon.logError("Recount of island " + island.getUniqueId() + " failed; its counts were not changed");
+                getR().complete(new Results(Result.FAILED));
+                return;
+            }
             if (Boolean.TRUE.equals(hasMoreChunks) && !isCancelled.getAsBoolean()) {
-                recurse.run();
+                // Continue next tick so one recount cannot monopolise a tick
+                Bukkit.getScheduler().runTask(BentoBox.getInstance(), recurse);
             } else {
                 onRemove.run();
                 handleStackedBlocks();
                 long checkTime = System.currentTimeMillis();
                 finishTask = Bukkit.getScheduler().runTaskTimer(addon.getPlugin(), () -> {
-                    if ((stackedBlocks.isEmpty()) || System.currentTimeMillis() - checkTime > MAX_AMOUNT) {
-                        this.tidyUp();
-                        this.getR().complete(getResults());
+                    if ((stackedBlocks.isEmpty() && awaitingEntities.isEmpty())
+                            || System.currentTimeMillis() - checkTime > MAX_AMOUNT) {
                         finishTask.cancel();
+                        if (region == null) {
+                            finishFull();
+                        } else if (this.applyRegion()) {
+                            this.getR().complete(getResults());
+                        } else {
+                            recountAll();
+                        }
                     }
                 }, 0, 10L);
             }
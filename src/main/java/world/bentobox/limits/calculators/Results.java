@@ -1,6 +1,7 @@
 package world.bentobox.limits.calculators;
 
 import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.Map;
 
 import org.bukkit.NamespacedKey;
@@ -10,17 +11,25 @@ import org.bukkit.entity.EntityType;
 import com.google.common.collect.HashMultiset;
 import com.google.common.collect.Multiset;
 
+import world.bentobox.limits.objects.ChunkHistogram;
+
 public class Results {
     public enum Result {
         IN_PROGRESS,
         AVAILABLE,
-        TIMEOUT
+        TIMEOUT,
+        /** A chunk could not be loaded or scanned; the island's counts were not changed. */
+        FAILED,
+        /** The island was deleted or lost its owner before it was recounted. */
+        NO_ISLAND
     }
 
     /** Block counts per environment, populated by the chunk scan. */
     final Map<Environment, Multiset<NamespacedKey>> envBlockCount = new EnumMap<>(Environment.class);
     /** Entity counts per environment, populated by the entity scan. */
     final Map<Environment, Multiset<EntityType>> envEntityCount = new EnumMap<>(Environment.class);
+    /** Block counts per scanned chunk and environment, populated by the chunk scan. */
+    final Map<Environment, Map<Long, ChunkHistogram>> envChunkCount = new EnumMap<>(Environment.class);
 
     final Result state;
 
@@ -40,6 +49,14 @@ public class Results {
         return envEntityCount.computeIfAbsent(env, e -> HashMultiset.create());
     }
 
+    public Map<Long, ChunkHistogram> getChunkCounts(Environment env) {
+        return envChunkCount.computeIfAbsent(env, e -> new HashMap<>());
+    }
+
+    public Map<Environment, Map<Long, ChunkHistogram>> getEnvChunkCounts() {
+        return envChunkCount;
+    }
+
     public Map<Environment, Multiset<NamespacedKey>> getEnvBlockCount() {
         return envBlockCount;
     }
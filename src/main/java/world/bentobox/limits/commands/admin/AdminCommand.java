@@ -31,7 +31,9 @@ public class AdminCommand extends CompositeCommand {
         this.addon = addon;
 
         new CalcCommand(this.addon, this);
+        new CalcRegionCommand(this.addon, this);
         new OffsetCommand(this.addon, this);
+        new StatsCommand(this.addon, this);
     }
 
     /* (non-Javadoc)
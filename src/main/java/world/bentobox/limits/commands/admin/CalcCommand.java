@@ -6,11 +6,12 @@ import java.util.Optional;
 import java.util.UUID;
 
 import world.bentobox.bentobox.api.commands.CompositeCommand;
+import world.bentobox.bentobox.api.localization.TextVariables;
 import world.bentobox.bentobox.api.user.User;
 import world.bentobox.bentobox.database.objects.Island;
 import world.bentobox.bentobox.util.Util;
 import world.bentobox.limits.Limits;
-import world.bentobox.limits.calculators.Pipeliner;
+import world.bentobox.limits.calculators.Pipeliner.Lane;
 import world.bentobox.limits.calculators.Results;
 
 /**
@@ -19,6 +20,9 @@ import world.bentobox.limits.calculators.Results;
  */
 public class CalcCommand extends CompositeCommand {
 
+    /** Argument that skips the chunk cache. */
+    private static final String FULL = "full";
+
     private final Limits addon;
 
     /**
@@ -47,7 +51,8 @@ public class CalcCommand extends CompositeCommand {
      */
     @Override
     public boolean execute(User user, String label, List<String> args) {
-        if (args.size() == 1) {
+        boolean rescanAll = args.size() == 2 && FULL.equalsIgnoreCase(args.get(1));
+        if (args.size() == 1 || rescanAll) {
             final UUID playerUUID = getPlugin().getPlayers().getUUID(args.get(0));
             if (playerUUID == null) {
                 user.sendMessage("general.errors.unknown-player", args.get(0));
@@ -60,7 +65,12 @@ public class CalcCommand extends CompositeCommand {
             } else {
                 //Calculate
                 user.sendMessage("island.limits.recount.now-recounting");
-                new Pipeliner(addon).addIsland(island).thenAccept(results -> handlePipelineResult(user, results));
+                addon.getPipeliner().addIsland(island, Lane.ADMIN, rescanAll)
+                        .thenAccept(results -> handlePipelineResult(user, results));
+                int ahead = addon.getPipeliner().getQueuePosition(island);
+                if (ahead > 0) {
+                    user.sendMessage("island.limits.recount.queued", TextVariables.NUMBER, String.valueOf(ahead));
+                }
             }
 
             return true;
@@ -73,11 +83,15 @@ public class CalcCommand extends CompositeCommand {
 
 
     private void handlePipelineResult(User user, Results results) {
-        if (results == null) {
+        if (results == null || results.getState() == Results.Result.IN_PROGRESS) {
             user.sendMessage("island.limits.recount.in-progress");
         } else {
             if (results.getState() == Results.Result.TIMEOUT) {
                 user.sendMessage("admin.limits.calc.timeout");
+            } else if (results.getState() == Results.Result.FAILED) {
+                user.sendMessage("island.limits.recount.failed");
+            } else if (results.getState() == Results.Result.NO_ISLAND) {
+                user.sendMessage("island.limits.recount.no-island");
             } else {
                 user.sendMessage("admin.limits.calc.finished");
             }
@@ -91,7 +105,7 @@ public class CalcCommand extends CompositeCommand {
             // Don't show every player on the server. Require at least the first letter
             return Optional.empty();
         }
-        List<String> options = new ArrayList<>(Util.getOnlinePlayerList(user));
+        List<String> options = args.size() > 1 ? List.of(FULL) : new ArrayList<>(Util.getOnlinePlayerList(user));
         return Optional.of(Util.tabLimit(options, lastArg));
     }
 
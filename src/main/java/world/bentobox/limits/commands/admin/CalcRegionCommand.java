@@ -0,0 +1,171 @@
+package world.bentobox.limits.commands.admin;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.bukkit.World;
+import org.bukkit.World.Environment;
+import org.bukkit.util.BoundingBox;
+
+import world.bentobox.bentobox.api.commands.CompositeCommand;
+import world.bentobox.bentobox.api.localization.TextVariables;
+import world.bentobox.bentobox.api.user.User;
+import world.bentobox.bentobox.database.objects.Island;
+import world.bentobox.bentobox.managers.IslandWorldManager;
+import world.bentobox.bentobox.util.Util;
+import world.bentobox.limits.Limits;
+import world.bentobox.limits.calculators.Pipeliner;
+import world.bentobox.limits.calculators.Pipeliner.Lane;
+import world.bentobox.limits.calculators.Results;
+
+/**
+ * Recounts part of an island: the chunks around the admin, or the chunks overlapping a
+ * block box, in the world the admin is in. Only chunks of the island are recounted, and
+ * the admin must be in one of the island's worlds.
+ *
+ * @author tastybento
+ */
+public class CalcRegionCommand extends CompositeCommand {
+
+    /** Largest chunk radius accepted around the admin. */
+    private static final int MAX_RADIUS = 16;
+
+    private final Limits addon;
+
+    /**
+     * Admin command
+     *
+     * @param addon - addon
+     */
+    public CalcRegionCommand(Limits addon, CompositeCommand parent) {
+        super(parent, "calcregion");
+        this.addon = addon;
+    }
+
+    @Override
+    public void setup() {
+        this.setPermission("limits.admin.limits.calc");
+        this.setOnlyPlayer(true);
+        this.setParametersHelp("admin.limits.calcregion.parameters");
+        this.setDescription("admin.limits.calcregion.description");
+    }
+
+    @Override
+    public boolean execute(User user, String label, List<String> args) {
+        if (args.size() != 1 && args.size() != 2 && args.size() != 5) {
+            showHelp(this, user);
+            return false;
+        }
+        final UUID playerUUID = getPlugin().getPlayers().getUUID(args.get(0));
+        if (playerUUID == null) {
+            user.sendMessage("general.errors.unknown-player", args.get(0));
+            return false;
+        }
+        Island island = addon.getIslands().getIsland(getWorld(), playerUUID);
+        if (island == null) {
+            user.sendMessage("general.errors.player-has-no-island");
+            return false;
+        }
+        BoundingBox box = getBox(user, args);
+        if (box == null) {
+            return false;
+        }
+        World world = user.getWorld();
+        if (!isIslandWorld(island, world)) {
+            user.sendMessage("admin.limits.calcregion.wrong-world");
+            return false;
+        }
+        List<Long> chunks = Pipeliner.chunksIn(island, box);
+        if (chunks.isEmpty()) {
+            user.sendMessage("admin.limits.calcregion.outside-island");
+            return false;
+        }
+        Environment env = world.getEnvironment();
+        Pipeliner pipeliner = addon.getPipeliner();
+        if (!pipeliner.hasBaseline(island, env, chunks)) {
+            user.sendMessage("admin.limits.calcregion.full-recount");
+        }
+        user.sendMessage("island.limits.recount.now-recounting");
+        pipeliner.addRegion(island, env, chunks, Lane.ADMIN).thenAccept(results -> handleResult(user, results));
+        int ahead = pipeliner.getQueuePosition(island);
+        if (ahead > 0) {
+            user.sendMessage("island.limits.recount.queued", TextVariables.NUMBER, String.valueOf(ahead));
+        }
+        return true;
+    }
+
+    /**
+     * @return true if the world is the island's overworld, or its nether or end when
+     *         those have islands
+     */
+    private boolean isIslandWorld(Island island, World world) {
+        if (!Util.sameWorld(world, island.getWorld())) {
+            return false;
+        }
+        IslandWorldManager iwm = getIWM();
+        return switch (world.getEnvironment()) {
+            case NORMAL -> true;
+            case NETHER -> iwm.isNetherGenerate(world) && iwm.isNetherIslands(world);
+            case THE_END -> iwm.isEndGenerate(world) && iwm.isEndIslands(world);
+            default -> false;
+        };
+    }
+
+    /**
+     * @return block box from the arguments, or null if they are not valid
+     */
+    private BoundingBox getBox(User user, List<String> args) {
+        if (args.size() == 5) {
+            int[] c = new int[4];
+            for (int i = 0; i < 4; i++) {
+                if (!Util.isInteger(args.get(i + 1), true)) {
+                    user.sendMessage("general.errors.must-be-a-number", TextVariables.NUMBER, args.get(i + 1));
+                    return null;
+                }
+                c[i] = Integer.parseInt(args.get(i + 1));
+            }
+            return new BoundingBox(c[0], 0, c[1], c[2], 0, c[3]);
+        }
+        int radius = 0;
+        if (args.size() == 2) {
+            if (!Util.isInteger(args.get(1), true) || Integer.parseInt(args.get(1)) < 0
+                    || Integer.parseInt(args.get(1)) > MAX_RADIUS) {
+                user.sendMessage("admin.limits.calcregion.bad-radius", TextVariables.NUMBER,
+                        String.valueOf(MAX_RADIUS));
+                return null;
+            }
+            radius = Integer.parseInt(args.get(1));
+        }
+        int cx = user.getLocation().getBlockX() >> 4;
+        int cz = user.getLocation().getBlockZ() >> 4;
+        return new BoundingBox((cx - radius) << 4, 0, (cz - radius) << 4, ((cx + radius) << 4) + 15, 0,
+                ((cz + radius) << 4) + 15);
+    }
+
+    private void handleResult(User user, Results results) {
+        if (results == null || results.getState() == Results.Result.IN_PROGRESS) {
+            user.sendMessage("island.limits.recount.in-progress");
+        } else if (results.getState() == Results.Result.TIMEOUT) {
+            user.sendMessage("admin.limits.calc.timeout");
+        } else if (results.getState() == Results.Result.FAILED) {
+            user.sendMessage("island.limits.recount.failed");
+        } else if (results.getState() == Results.Result.NO_ISLAND) {
+            user.sendMessage("island.limits.recount.no-island");
+        } else {
+            user.sendMessage("admin.limits.calcregion.finished");
+        }
+    }
+
+    @Override
+    public Optional<List<String>> tabComplete(User user, String alias, List<String> args) {
+        String lastArg = !args.isEmpty() ? args.get(args.size() - 1) : "";
+        if (args.size() != 1) {
+            return Optional.empty();
+        }
+        List<String> options = new ArrayList<>(Util.getOnlinePlayerList(user));
+        return Optional.of(Util.tabLimit(options, lastArg));
+    }
+
+}
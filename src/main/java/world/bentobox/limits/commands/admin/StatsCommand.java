@@ -0,0 +1,82 @@
+package world.bentobox.limits.commands.admin;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+import world.bentobox.bentobox.api.commands.CompositeCommand;
+import world.bentobox.bentobox.api.localization.TextVariables;
+import world.bentobox.bentobox.api.user.User;
+import world.bentobox.limits.HotPathStats;
+import world.bentobox.limits.HotPathStats.Timer;
+import world.bentobox.limits.Limits;
+import world.bentobox.limits.listeners.IslandCountFlusher;
+
+/**
+ * Shows the hot-path metrics: calls, rate and latency of each timed event handler, of
+ * saves and of recounts, plus the save and recount queues.
+ */
+public class StatsCommand extends CompositeCommand {
+
+    private static final String RESET = "reset";
+
+    private final Limits addon;
+
+    /**
+     * Admin command
+     *
+     * @param addon - addon
+     */
+    public StatsCommand(Limits addon, CompositeCommand parent) {
+        super(parent, "stats");
+        this.addon = addon;
+    }
+
+    @Override
+    public void setup() {
+        this.setPermission("limits.admin.limits.stats");
+        this.setOnlyPlayer(false);
+        this.setParametersHelp("admin.limits.stats.parameters");
+        this.setDescription("admin.limits.stats.description");
+    }
+
+    @Override
+    public boolean execute(User user, String label, List<String> args) {
+        HotPathStats stats = addon.getStats();
+        if (args.size() == 1 && RESET.equalsIgnoreCase(args.get(0))) {
+            stats.reset();
+            user.sendMessage("admin.limits.stats.reset");
+            return true;
+        }
+        if (!args.isEmpty()) {
+            showHelp(this, user);
+            return false;
+        }
+        user.sendMessage("admin.limits.stats.header", TextVariables.NUMBER,
+                String.valueOf(stats.getElapsedNanos() / 1_000_000_000L));
+        if (!addon.getSettings().isMetricsEnabled()) {
+            user.sendMessage("admin.limits.stats.handlers-off");
+        }
+        for (Timer timer : stats.getTimers()) {
+            if (timer.getCalls() > 0) {
+                user.sendMessage("admin.limits.stats.timer", TextVariables.NAME, timer.getName(),
+                        TextVariables.NUMBER, String.valueOf(timer.getCalls()),
+                        "[rate]", String.format(Locale.ROOT, "%.1f", timer.getRate()),
+                        "[mean]", HotPathStats.format(timer.getMeanNanos()),
+                        "[p99]", HotPathStats.format(timer.getPercentileNanos(0.99D)));
+            }
+        }
+        IslandCountFlusher flusher = addon.getBlockLimitListener().getFlusher();
+        user.sendMessage("admin.limits.stats.saves", TextVariables.NUMBER, String.valueOf(flusher.getBacklog()),
+                "[peak]", String.valueOf(flusher.getPeakBacklog()),
+                "[saved]", String.valueOf(flusher.getSaved()));
+        user.sendMessage("admin.limits.stats.recounts", TextVariables.NUMBER,
+                String.valueOf(addon.getPipeliner().getIslandsInQueue()));
+        return true;
+    }
+
+    @Override
+    public Optional<List<String>> tabComplete(User user, String alias, List<String> args) {
+        return Optional.of(List.of(RESET));
+    }
+}
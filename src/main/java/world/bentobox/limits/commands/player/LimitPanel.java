@@ -3,11 +3,9 @@ package world.bentobox.limits.commands.player;
 import java.util.Map;
 import java.util.UUID;
 
-import org.bukkit.Bukkit;
 import org.bukkit.NamespacedKey;
 import org.bukkit.World;
 import org.bukkit.World.Environment;
-import org.bukkit.entity.Player;
 
 import world.bentobox.bentobox.api.addons.GameModeAddon;
 import world.bentobox.bentobox.api.panels.builders.TabbedPanelBuilder;
@@ -38,11 +36,7 @@ public class LimitPanel {
                     : "general.errors.player-has-no-island");
             return;
         }
-        Player targetPlayer = Bukkit.getPlayer(target);
-        if (targetPlayer != null) {
-            addon.getJoinListener().checkPerms(targetPlayer, gm.getPermissionPrefix() + "island.limit.",
-                    island.getUniqueId(), gm.getDescription().getName());
-        }
+        addon.getJoinListener().refreshPerms(island, gm);
         IslandBlockCount ibc = addon.getBlockLimitListener().getIsland(island.getUniqueId());
 
         TabbedPanelBuilder tpb = new TabbedPanelBuilder()
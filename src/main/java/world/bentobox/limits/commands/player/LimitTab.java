@@ -94,29 +94,31 @@ public class LimitTab implements Tab {
     }
 
     private void addEntityGroupLimits(IslandBlockCount ibc) {
-        Map<String, Integer> envGroupLimits = new HashMap<>(addon.getSettings().getGroupLimits(env));
-        Map<EntityGroup, Integer> groupMap = addon.getSettings().getGroupLimitDefinitions().stream()
-                .filter(g -> envGroupLimits.containsKey(g.getName()))
-                .collect(Collectors.toMap(g -> g, g -> envGroupLimits.get(g.getName())));
-        Map<String, EntityGroup> groupByName = addon.getSettings().getGroupLimitDefinitions().stream()
-                .collect(Collectors.toMap(EntityGroup::getName, e -> e));
+        Map<String, Integer> envGroupLimits = addon.getSettings().getGroupLimits(env);
+        Map<EntityGroup, Integer> groupMap = new HashMap<>();
+        for (EntityGroup g : addon.getSettings().getGroupLimitDefinitions()) {
+            Integer limit = envGroupLimits.get(g.getName());
+            if (limit != null) groupMap.put(g, limit);
+        }
         if (ibc != null) {
             ibc.getEntityGroupLimits(env).forEach((name, limit) -> {
-                EntityGroup g = groupByName.get(name);
+                EntityGroup g = addon.getSettings().getEntityGroup(name);
                 if (g != null) groupMap.put(g, limit);
             });
             ibc.getEntityGroupLimitsOffset(env).forEach((name, offset) -> {
-                EntityGroup g = groupByName.get(name);
+                EntityGroup g = addon.getSettings().getEntityGroup(name);
                 if (g != null) groupMap.put(g, groupMap.getOrDefault(g, 0) + offset);
             });
         }
+        int[] counts = ibc == null || groupMap.isEmpty() ? null
+                : addon.getSettings().getGroupCounts(ibc.getEntityCounts(env));
         groupMap.forEach((g, limit) -> {
             PanelItemBuilder pib = new PanelItemBuilder();
             pib.name(user.getTranslation("island.limits.panel.entity-group-name-syntax", TextVariables.NAME,
                     g.getName()));
             String description = "(" + prettyNames(user, g) + ")\n";
             pib.icon(g.getIcon());
-            int count = ibc == null ? 0 : sumGroupCount(ibc, g);
+            int count = counts == null ? 0 : counts[g.getId()];
             String color = count >= limit ? user.getTranslation(MAX_COLOR_KEY)
                     : user.getTranslation(REGULAR_COLOR_KEY);
             description += color + user.getTranslation(BLOCK_LIMIT_SYNTAX_KEY,
@@ -127,15 +129,6 @@ public class LimitTab implements Tab {
         });
     }
 
-    private int sumGroupCount(IslandBlockCount ibc, EntityGroup group) {
-        Map<EntityType, Integer> counts = ibc.getEntityCounts(env);
-        int total = 0;
-        for (EntityType t : group.getTypes()) {
-            total += counts.getOrDefault(t, 0);
-        }
-        return total;
-    }
-
     private void addEntityLimits(IslandBlockCount ibc) {
         Map<EntityType, Integer> map = new EnumMap<>(EntityType.class);
         map.putAll(addon.getSettings().getLimits(env));
@@ -201,8 +194,12 @@ public class LimitTab implements Tab {
             String description = "(" + g.getKeys().stream().map(k -> Util.prettifyText(k.getKey()))
                     .collect(Collectors.joining(", ")) + ")\n";
             pib.icon(g.getIcon());
-            int count = ibc == null ? 0
-                    : g.getKeys().stream().mapToInt(k -> ibc.getBlockCount(env, k)).sum();
+            int count = 0;
+            if (ibc != null) {
+                for (NamespacedKey k : g.getKeys()) {
+                    count += ibc.getBlockCount(env, k);
+                }
+            }
             String color = count >= limit ? user.getTranslation(MAX_COLOR_KEY)
                     : user.getTranslation(REGULAR_COLOR_KEY);
             description += color + user.getTranslation(BLOCK_LIMIT_SYNTAX_KEY,
@@ -5,10 +5,11 @@ import java.util.List;
 import org.eclipse.jdt.annotation.Nullable;
 
 import world.bentobox.bentobox.api.commands.CompositeCommand;
+import world.bentobox.bentobox.api.localization.TextVariables;
 import world.bentobox.bentobox.api.user.User;
 import world.bentobox.bentobox.database.objects.Island;
 import world.bentobox.limits.Limits;
-import world.bentobox.limits.calculators.Pipeliner;
+import world.bentobox.limits.calculators.Pipeliner.Lane;
 import world.bentobox.limits.calculators.Results;
 
 /**
@@ -62,17 +63,26 @@ public class RecountCommand extends CompositeCommand {
         // Set cooldown
         setCooldown(user.getUniqueId(), addon.getConfig().getInt("cooldown", 120));
         user.sendMessage("island.limits.recount.now-recounting");
-        new Pipeliner(addon).addIsland(island).thenAccept(results -> {
-            if (results == null) {
+        // Players recount when they doubt the counts, so every chunk is rescanned
+        addon.getPipeliner().addIsland(island, Lane.PLAYER, true).thenAccept(results -> {
+            if (results == null || results.getState() == Results.Result.IN_PROGRESS) {
                 user.sendMessage("island.limits.recount.in-progress");
             } else {
                 if (results.getState() == Results.Result.TIMEOUT) {
                     user.sendMessage("admin.limits.calc.timeout");
+                } else if (results.getState() == Results.Result.FAILED) {
+                    user.sendMessage("island.limits.recount.failed");
+                } else if (results.getState() == Results.Result.NO_ISLAND) {
+                    user.sendMessage("island.limits.recount.no-island");
                 } else {
                     user.sendMessage("admin.limits.calc.finished");
                 }
             }
         });
+        int ahead = addon.getPipeliner().getQueuePosition(island);
+        if (ahead > 0) {
+            user.sendMessage("island.limits.recount.queued", TextVariables.NUMBER, String.valueOf(ahead));
+        }
         return true;
     }
 
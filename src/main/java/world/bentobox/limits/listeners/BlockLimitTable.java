@@ -0,0 +1,119 @@
+package world.bentobox.limits.listeners;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.bukkit.NamespacedKey;
+import org.bukkit.World;
+import org.bukkit.World.Environment;
+
+import world.bentobox.limits.BlockGroup;
+import world.bentobox.limits.KeyIndex;
+
+/**
+ * Precompiled block limit resolution for {@link BlockLimitsListener}.
+ *
+ * <p>For each world the env-default limits and the world-named overrides are flattened
+ * once into an array indexed by {@link KeyIndex#ordinal}, so a place event resolves its
+ * config limit with a single array read instead of several map probes. Custom keys and
+ * block tags, which have no ordinal, go into a small side map. Island-specific limits
+ * are not compiled in: they are a sparse delta the listener checks before the table.
+ *
+ * <p>The table is rebuilt lazily after {@link #invalidate()}, which the listener calls
+ * whenever the source maps may have changed.
+ */
+class BlockLimitTable {
+
+    /** Marker for "no limit" in the compiled arrays. */
+    static final int NONE = -1;
+    private static final BlockGroup[] NO_GROUPS = new BlockGroup[0];
+
+    private final Map<Environment, Map<NamespacedKey, Integer>> envDefaults;
+    private final Map<World, Map<NamespacedKey, Integer>> worldLimits;
+    private final Function<NamespacedKey, List<BlockGroup>> groupLookup;
+
+    private final Map<World, Compiled> compiled = new HashMap<>();
+    /** Block groups per ordinal, resolved on first use; {@code null} slots are unresolved. */
+    private BlockGroup[][] groups = new BlockGroup[KeyIndex.size()][];
+    private final Map<NamespacedKey, BlockGroup[]> otherGroups = new HashMap<>();
+
+    private record Compiled(int[] limits, Map<NamespacedKey, Integer> otherLimits) {
+    }
+
+    BlockLimitTable(Map<Environment, Map<NamespacedKey, Integer>> envDefaults,
+            Map<World, Map<NamespacedKey, Integer>> worldLimits,
+            Function<NamespacedKey, List<BlockGroup>> groupLookup) {
+        this.envDefaults = envDefaults;
+        this.worldLimits = worldLimits;
+        this.groupLookup = groupLookup;
+    }
+
+    /**
+     * Drop every compiled world; the next lookup recompiles from the source maps.
+     */
+    void invalidate() {
+        compiled.clear();
+        groups = new BlockGroup[KeyIndex.size()][];
+        otherGroups.clear();
+    }
+
+    /**
+     * @return the config limit (world-named, else env-default) for this key, or {@link #NONE}
+     */
+    int getLimit(World w, Environment env, NamespacedKey key) {
+        Compiled c = compiled.computeIfAbsent(w, k -> compile(k, env));
+        int ordinal = KeyIndex.ordinal(key);
+        if (ordinal != KeyIndex.NONE) {
+            return c.limits()[ordinal];
+        }
+        return c.otherLimits().getOrDefault(key, NONE);
+    }
+
+    /**
+     * @return the block groups containing this key; empty if none
+     */
+    BlockGroup[] getGroups(NamespacedKey key) {
+        int ordinal = KeyIndex.ordinal(key);
+        if (ordinal == KeyIndex.NONE) {
+            return otherGroups.computeIfAbsent(key, this::resolveGroups);
+        }
+        BlockGroup[] result = groups[ordinal];
+        if (result == null) {
+            result = resolveGroups(key);
+            groups[ordinal] = result;
+        }
+        return result;
+    }
+
+    private BlockGroup[] resolveGroups(NamespacedKey key) {
+        List<BlockGroup> list = groupLookup.apply(key);
+        return list == null || list.isEmpty() ? NO_GROUPS : list.toArray(BlockGroup[]::new);
+    }
+
+    private Compiled compile(World w, Environment env) {
+        int[] limits = new int[KeyIndex.size()];
+        Arrays.fill(limits, NONE);
+        Map<NamespacedKey, Integer> otherLimits = new HashMap<>();
+        // World-named limits override the env defaults, so lay them down second
+        put(envDefaults.get(env), limits, otherLimits);
+        put(worldLimits.get(w), limits, otherLimits);
+        return new Compiled(limits, otherLimits);
+    }
+
+    private static void put(Map<NamespacedKey, Integer> source, int[] limits, Map<NamespacedKey, Integer> otherLimits) {
+        if (source == null) {
+            return;
+        }
+        source.forEach((key, limit) -> {
+            int ordinal = KeyIndex.ordinal(key);
+            if (ordinal == KeyIndex.NONE) {
+                otherLimits.put(key, limit);
+            } else {
+                limits[ordinal] = limit;
+            }
+        });
+    }
+}
@@ -1,12 +1,20 @@
 package world.bentobox.limits.listeners;
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
@@ -42,10 +50,13 @@ import org.bukkit.entity.EntityType;
 import org.bukkit.event.entity.EntityChangeBlockEvent;
 import org.bukkit.event.entity.EntityExplodeEvent;
 import org.bukkit.event.player.PlayerInteractEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.world.ChunkLoadEvent;
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.jdt.annotation.Nullable;
 
 import com.google.common.base.Enums;
+import com.google.common.collect.Maps;
 
 import world.bentobox.bentobox.api.events.island.IslandDeleteEvent;
 import world.bentobox.bentobox.api.localization.TextVariables;
@@ -54,8 +65,10 @@ import world.bentobox.bentobox.database.Database;
 import world.bentobox.bentobox.database.objects.Island;
 import world.bentobox.bentobox.util.Util;
 import world.bentobox.limits.DisplayNames;
+import world.bentobox.limits.KeyIndex;
 import world.bentobox.limits.Limits;
 import world.bentobox.limits.Settings;
+import world.bentobox.limits.objects.ChunkHistogram;
 import world.bentobox.limits.objects.IslandBlockCount;
 
 /**
@@ -64,7 +77,7 @@ import world.bentobox.limits.objects.IslandBlockCount;
 public class BlockLimitsListener implements Listener {
 
     /** Blocks that are not counted */
-    private static final List<NamespacedKey> DO_NOT_COUNT = List.of(Material.LAVA.getKey(), Material.WATER.getKey(),
+    private static final Set<NamespacedKey> DO_NOT_COUNT = Set.of(Material.LAVA.getKey(), Material.WATER.getKey(),
             Material.AIR.getKey(), Material.FIRE.getKey(), Material.END_PORTAL.getKey(),
             Material.NETHER_PORTAL.getKey());
     /** Plants that grow as a vertical column on top of themselves. */
@@ -111,37 +124,109 @@ public class BlockLimitsListener implements Listener {
         }
     }
 
-    /** Save every 10 blocks of change */
-    private static final Integer CHANGE_LIMIT = 9;
     private final Limits addon;
-    private final Map<String, IslandBlockCount> islandCountMap = new HashMap<>();
-    private final Map<String, Integer> saveMap = new HashMap<>();
+    /**
+     * Island count records in memory. In lazy mode access-ordered, so that the least
+     * recently used record is the one evicted when the cache is full, see
+     * {@link RecordCache}; otherwise a plain hash map, as nothing is ever evicted.
+     */
+    private final Map<String, IslandBlockCount> islandCountMap;
+    /** Records are loaded on demand rather than all at startup. */
+    private final boolean lazy;
+    /** Maximum number of records held in lazy mode; 0 means unbounded. */
+    private final int maxCached;
+    /** Evicted records whose async save has not completed yet; a reload must use these. */
+    private final Map<String, IslandBlockCount> evicting = new HashMap<>();
+    /** Islands whose record is being loaded asynchronously. */
+    private final Set<String> loading = new HashSet<>();
     private final Database<IslandBlockCount> handler;
+    /** Write-behind saver: count changes mark the island dirty instead of saving. */
+    private final IslandCountFlusher flusher;
+    /** Per-chunk counts, stored apart from the records. */
+    private final ChunkCountStore chunkCounts;
+    /** Bookkeeping of growth, spread, form and decay count changes, applied once per tick. */
+    private final GrowthBatch growth = new GrowthBatch((ibc, env, chunk, key, delta) -> {
+        blockChanged(ibc, env, chunk, key, delta);
+        markDirty(ibc.getUniqueId());
+    });
+    /** Delta journal of count changes, or null when disabled. */
+    @Nullable
+    private CountJournal journal;
     private final Map<World, Map<NamespacedKey, Integer>> worldLimitMap = new HashMap<>();
     /**
      * Per-environment default limits. The "blocklimits" section seeds every env;
      * "blocklimits-nether" / "blocklimits-end" sections override one env each.
      */
     private final Map<Environment, Map<NamespacedKey, Integer>> envDefaultLimitMap = new EnumMap<>(Environment.class);
+    /** Compiled view of {@link #envDefaultLimitMap} and {@link #worldLimitMap} used by {@link #checkLimit}. */
+    private final BlockLimitTable limitTable;
+    /**
+     * Ordinals of the materials that some limit or block group refers to, for
+     * {@link Settings#isCountLimitedBlocksOnly()}; {@code null} until next built.
+     */
+    @Nullable
+    private BitSet limitedMaterials;
+    /** See {@link #getLimitsVersion()}. */
+    private int limitsVersion;
 
     public BlockLimitsListener(Limits addon) {
         this.addon = addon;
         for (Environment env : Settings.ENVIRONMENTS) {
             envDefaultLimitMap.put(env, new HashMap<>());
         }
+        limitTable = new BlockLimitTable(envDefaultLimitMap, worldLimitMap,
+                key -> addon.getSettings().getBlockGroups(key));
+        lazy = addon.getSettings().isLazyLoading();
+        maxCached = lazy ? Math.max(0, addon.getSettings().getCacheSize()) : 0;
+        islandCountMap = lazy ? new RecordCache() : new HashMap<>();
         handler = new Database<>(addon, IslandBlockCount.class);
-        List<String> toBeDeleted = new ArrayList<>();
-        handler.loadObjects().forEach(ibc -> {
-            if (addon.isCoveredGameMode(ibc.getGameMode())) {
-                // Strip uncountable types from every env's count map
-                ibc.getAllBlockCounts().values().forEach(m -> m.keySet().removeIf(DO_NOT_COUNT::contains));
-                islandCountMap.put(ibc.getUniqueId(), ibc);
-            } else {
-                toBeDeleted.add(ibc.getUniqueId());
-            }
-        });
-        toBeDeleted.forEach(handler::deleteID);
+        chunkCounts = new ChunkCountStore(addon);
+        flusher = new IslandCountFlusher(addon, handler, islandCountMap::get,
+                addon.getSettings().getSaveBatchSize());
+        flusher.setBeforeFlush(growth::flush);
+        flusher.start(addon.getSettings().getSaveInterval());
+        if (lazy) {
+            addon.log("Lazy loading island counts, caching "
+                    + (maxCached > 0 ? "up to " + maxCached : "every loaded") + " island(s)");
+        } else {
+            List<String> toBeDeleted = new ArrayList<>();
+            handler.loadObjects().forEach(ibc -> {
+                if (addon.isCoveredGameMode(ibc.getGameMode())) {
+                    islandCountMap.put(ibc.getUniqueId(), prepare(ibc));
+                } else {
+                    toBeDeleted.add(ibc.getUniqueId());
+                }
+            });
+            chunkCounts.loadAll(islandCountMap.values());
+            toBeDeleted.forEach(id -> {
+                handler.deleteID(id);
+                chunkCounts.delete(id);
+            });
+        }
+        if (addon.getSettings().isJournalEnabled() && addon.getDataFolder() != null) {
+            openJournal();
+        }
         loadAllLimits();
+        invalidateLimits();
+    }
+
+    /**
+     * The source limit maps may have changed: recompile the limit table and the
+     * limited material set on next use. Called by the setters here; call it after
+     * changing the limits some other way.
+     */
+    public void invalidateLimits() {
+        limitTable.invalidate();
+        limitedMaterials = null;
+        limitsVersion++;
+    }
+
+    /**
+     * @return a number that changes whenever the config or world limit maps may have
+     *         changed
+     */
+    public int getLimitsVersion() {
+        return limitsVersion;
     }
 
     /**
@@ -236,9 +321,260 @@ public class BlockLimitsListener implements Listener {
         Bukkit.getLogger().warning(() -> "Unknown material or tag in config: " + key);
     }
 
-    /** Save the count database completely */
+    /** Save the count database completely. Stops the write-behind timer; used on shutdown. */
     public void save() {
-        islandCountMap.values().stream().filter(IslandBlockCount::isChanged).forEach(handler::saveObjectAsync);
+        flusher.stop();
+        growth.flush();
+        if (journal != null) {
+            journal.close();
+            journal = null;
+        }
+        islandCountMap.values().forEach(chunkCounts::saveIfChanged);
+        markChangedDirty();
+        flusher.flushAll();
+    }
+
+    /** Queue a save of every record changed since it was last saved. */
+    private void markChangedDirty() {
+        islandCountMap.values().stream().filter(IslandBlockCount::isChanged).map(IslandBlockCount::getUniqueId)
+                .forEach(flusher::markDirty);
+    }
+
+    /* =========================================================================
+     * Delta journal
+     * ========================================================================= */
+
+    /**
+     * Replay the journal left by the last run, then start journalling. Replayed records
+     * are left changed, so the first compaction saves them.
+     */
+    private void openJournal() {
+        journal = new CountJournal(addon, addon.getDataFolder());
+        int replayed = journal.replay((id, gameMode) -> {
+            if (!addon.isCoveredGameMode(gameMode) || addon.getIslands().getIslandById(id).isEmpty()) {
+                return null;
+            }
+            return findOrCreate(id, gameMode);
+        });
+        if (replayed > 0) {
+            addon.log("Replayed " + replayed + " count changes from the journal");
+        }
+        if (!journal.open(addon.getSettings().getJournalCompactInterval(), this::snapshot, this::journalFailed)) {
+            journalFailed();
+        }
+    }
+
+    /**
+     * Compaction: save every changed record as a database snapshot.
+     *
+     * @return a future completing when these and any earlier saves have completed
+     */
+    private CompletableFuture<Void> snapshot() {
+        markChangedDirty();
+        return flusher.flushAllAsync();
+    }
+
+    /** The journal cannot be written: go back to write-behind saves of changed records. */
+    private void journalFailed() {
+        journal = null;
+        markChangedDirty();
+    }
+
+    private void journalBlock(IslandBlockCount ibc, Environment env, NamespacedKey key, int delta) {
+        if (journal != null) {
+            journal.recordBlock(ibc, env, key, delta);
+        }
+    }
+
+    /**
+     * Journal a block count change and keep the scanned counts of its chunk in step.
+     * The chunk's counts are no longer trusted as a recount cache.
+     */
+    private void blockChanged(IslandBlockCount ibc, Environment env, Location loc, NamespacedKey key, int delta) {
+        blockChanged(ibc, env, ChunkHistogram.chunkKey(loc.getBlockX() >> 4, loc.getBlockZ() >> 4), key, delta);
+    }
+
+    private void changed(IslandBlockCount ibc, Environment env, Location loc, NamespacedKey key, int delta,
+            boolean batched) {
+        if (batched) {
+            growth.add(ibc, env, ChunkHistogram.chunkKey(loc.getBlockX() >> 4, loc.getBlockZ() >> 4), key, delta);
+        } else {
+            blockChanged(ibc, env, loc, key, delta);
+        }
+    }
+
+    private void blockChanged(IslandBlockCount ibc, Environment env, long chunk, NamespacedKey key, int delta) {
+        journalBlock(ibc, env, key, delta);
+        ibc.chunkBlockChanged(env, chunk, KeyIndex.ordinal(key), delta);
+    }
+
+    /**
+     * Island at a location, through the addon's chunk-keyed lookup cache when it is set up.
+     */
+    private Optional<Island> islandAt(Location location) {
+        IslandLookupCache lookup = addon.getIslandLookup();
+        return lookup == null ? addon.getIslands().getIslandAt(location) : lookup.getIslandAt(location);
+    }
+
+    private void journalEntity(IslandBlockCount ibc, Environment env, EntityType type, int delta) {
+        if (journal != null) {
+            journal.recordEntity(ibc, env, type, delta);
+        }
+    }
+
+    /**
+     * @return the write-behind saver for island count records
+     */
+    public IslandCountFlusher getFlusher() {
+        return flusher;
+    }
+
+    /* =========================================================================
+     * Island record cache (lazy loading)
+     * ========================================================================= */
+
+    /**
+     * Access-ordered record cache of lazy mode that evicts the least recently used record
+     * once more than {@link #maxCached} are held. It keeps a second index of its records
+     * so that they can be read without counting as an access, see {@link #peekIsland}.
+     */
+    private final class RecordCache extends LinkedHashMap<String, IslandBlockCount> {
+        private static final long serialVersionUID = 1L;
+        private final transient Map<String, IslandBlockCount> byId = new HashMap<>();
+
+        RecordCache() {
+            super(16, 0.75f, true);
+        }
+
+        @Nullable
+        IslandBlockCount peek(String id) {
+            return byId.get(id);
+        }
+
+        @Override
+        public IslandBlockCount put(String id, IslandBlockCount ibc) {
+            byId.put(id, ibc);
+            return super.put(id, ibc);
+        }
+
+        @Override
+        public IslandBlockCount remove(Object id) {
+            byId.remove(id);
+            return super.remove(id);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, IslandBlockCount> eldest) {
+            if (maxCached > 0 && size() > maxCached) {
+                byId.remove(eldest.getKey());
+                evict(eldest.getValue());
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /** Strip uncountable types from every env's count map of a freshly loaded record. */
+    private IslandBlockCount prepare(IslandBlockCount ibc) {
+        ibc.getAllBlockCounts().values().forEach(m -> m.keySet().removeIf(DO_NOT_COUNT::contains));
+        addLimitedMaterials(ibc);
+        return ibc;
+    }
+
+    /** Flush an evicted record; it stays reachable until the save has completed. */
+    private void evict(IslandBlockCount ibc) {
+        growth.flush();
+        String id = ibc.getUniqueId();
+        flusher.remove(id);
+        chunkCounts.saveIfChanged(ibc);
+        if (!ibc.isChanged()) {
+            return;
+        }
+        evicting.put(id, ibc);
+        flusher.saveNow(ibc).whenComplete((r, e) -> Bukkit.getScheduler().runTask(addon.getPlugin(),
+                () -> evicting.remove(id, ibc)));
+    }
+
+    /**
+     * Find the record for an island, loading it from the database in lazy mode.
+     *
+     * @return the record or null if the island has none
+     */
+    @Nullable
+    private IslandBlockCount find(String id) {
+        IslandBlockCount ibc = islandCountMap.get(id);
+        if (ibc != null || !lazy) {
+            return ibc;
+        }
+        ibc = evicting.get(id);
+        if (ibc == null && handler.objectExists(id)) {
+            ibc = handler.loadObject(id);
+            if (ibc != null) {
+                chunkCounts.load(ibc);
+                prepare(ibc);
+            }
+        }
+        if (ibc != null) {
+            islandCountMap.put(id, ibc);
+        }
+        return ibc;
+    }
+
+    /** Find the record for an island, creating an empty one if it has none. */
+    private IslandBlockCount findOrCreate(String id, String gameMode) {
+        IslandBlockCount ibc = find(id);
+        if (ibc == null) {
+            ibc = new IslandBlockCount(id, gameMode);
+            islandCountMap.put(id, ibc);
+        }
+        return ibc;
+    }
+
+    /**
+     * Load an island's record off the main thread so the first block event on it does
+     * not have to. No-op unless lazy loading is on.
+     */
+    private void prefetch(Island island) {
+        String id = island.getUniqueId();
+        if (!lazy || islandCountMap.containsKey(id) || evicting.containsKey(id) || !loading.add(id)) {
+            return;
+        }
+        Bukkit.getScheduler().runTaskAsynchronously(addon.getPlugin(), () -> {
+            IslandBlockCount ibc = handler.objectExists(id) ? handler.loadObject(id) : null;
+            if (ibc != null) {
+                chunkCounts.load(ibc);
+            }
+            Bukkit.getScheduler().runTask(addon.getPlugin(), () -> {
+                loading.remove(id);
+                // A record created or loaded on the main thread meanwhile wins
+                if (ibc != null && !islandCountMap.containsKey(id) && !evicting.containsKey(id)) {
+                    islandCountMap.put(id, prepare(ibc));
+                }
+            });
+        });
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkLoad(ChunkLoadEvent e) {
+        if (!lazy || !addon.inGameModeWorld(e.getWorld())) {
+            return;
+        }
+        Location center = new Location(e.getWorld(), (e.getChunk().getX() << 4) + 8.0, 0,
+                (e.getChunk().getZ() << 4) + 8.0);
+        islandAt(center).ifPresent(this::prefetch);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent e) {
+        if (!lazy) {
+            return;
+        }
+        addon.getGameModes().forEach(gm -> {
+            Island island = addon.getIslands().getIsland(gm.getOverWorld(), e.getPlayer().getUniqueId());
+            if (island != null) {
+                prefetch(island);
+            }
+        });
     }
 
     /** Resolve the env, normalising any non-standard values to NORMAL. */
@@ -334,7 +670,7 @@ public class BlockLimitsListener implements Listener {
 
     @EventHandler(priority = EventPriority.NORMAL, ignoreCancelled = true)
     public void onBlock(BlockExplodeEvent e) {
-        e.blockList().forEach(b -> process(b, false));
+        removeAll(e.blockList());
     }
 
     @EventHandler(priority = EventPriority.NORMAL, ignoreCancelled = true)
@@ -347,49 +683,43 @@ public class BlockLimitsListener implements Listener {
         if (e instanceof EntityBlockFormEvent || e instanceof BlockSpreadEvent) {
             return;
         }
-        process(e.getBlock(), false);
-        if (process(e.getBlock(), e.getNewState().getBlockData(), true) > -1) {
+        if (replace(e.getBlock(), e.getNewState().getBlockData()) > -1) {
             e.setCancelled(true);
-            process(e.getBlock(), true);
         }
     }
 
     @EventHandler(priority = EventPriority.NORMAL, ignoreCancelled = true)
     public void onBlock(BlockSpreadEvent e) {
-        process(e.getBlock(), false);
-        if (process(e.getBlock(), e.getNewState().getBlockData(), true) > -1) {
+        if (replace(e.getBlock(), e.getNewState().getBlockData()) > -1) {
             e.setCancelled(true);
-            process(e.getBlock(), true);
         }
     }
 
     @EventHandler(priority = EventPriority.NORMAL, ignoreCancelled = true)
     public void onBlock(EntityBlockFormEvent e) {
-        process(e.getBlock(), false);
-        if (process(e.getBlock(), e.getNewState().getBlockData(), true) > -1) {
+        if (replace(e.getBlock(), e.getNewState().getBlockData()) > -1) {
             e.setCancelled(true);
-            process(e.getBlock(), true);
         }
     }
 
     @EventHandler(priority = EventPriority.NORMAL, ignoreCancelled = true)
     public void onBlock(BlockGrowEvent e) {
-        if (process(e.getNewState().getBlock(), true) > -1) {
+        if (grow(e.getNewState().getBlock(), true) > -1) {
             e.setCancelled(true);
             e.getBlock().getWorld().getBlockAt(e.getBlock().getLocation()).setBlockData(e.getBlock().getBlockData());
         } else {
-            process(e.getBlock(), false);
+            grow(e.getBlock(), false);
         }
     }
 
     @EventHandler(priority = EventPriority.NORMAL, ignoreCancelled = true)
     public void onBlock(LeavesDecayEvent e) {
-        process(e.getBlock(), false);
+        grow(e.getBlock(), false);
     }
 
     @EventHandler(priority = EventPriority.NORMAL, ignoreCancelled = true)
     public void onBlock(EntityExplodeEvent e) {
-        e.blockList().forEach(b -> process(b, false));
+        removeAll(e.blockList());
     }
 
     @EventHandler(priority = EventPriority.NORMAL, ignoreCancelled = true)
@@ -428,41 +758,187 @@ public class BlockLimitsListener implements Listener {
      * @return the canonical key for a material after variant normalisation
      */
     public static NamespacedKey canonicalKey(Material m) {
-        return VARIANT_MAP.getOrDefault(m, m).getKey();
+        return canonicalType(m).getKey();
+    }
+
+    /**
+     * @return the canonical material after variant normalisation; not valid for
+     *         materials where {@link #needsBlockData(Material)} is true
+     */
+    public static Material canonicalType(Material m) {
+        return VARIANT_MAP.getOrDefault(m, m);
+    }
+
+    /**
+     * @return true if the canonical form of this material depends on its block data
+     */
+    public static boolean needsBlockData(Material m) {
+        return m == Material.PISTON_HEAD || m == Material.MOVING_PISTON;
     }
 
     /**
      * Map variant materials to their canonical form.
      */
     public NamespacedKey fixMaterial(BlockData b) {
+        return fixMaterialType(b).getKey();
+    }
+
+    /**
+     * Same as {@link #fixMaterial(BlockData)} but returns the canonical material itself.
+     */
+    public Material fixMaterialType(BlockData b) {
         Material mat = b.getMaterial();
-        if (mat == Material.PISTON_HEAD || mat == Material.MOVING_PISTON) {
+        if (needsBlockData(mat)) {
             TechnicalPiston tp = (TechnicalPiston) b;
-            return (tp.getType() == TechnicalPiston.Type.NORMAL ? Material.PISTON : Material.STICKY_PISTON).getKey();
+            return tp.getType() == TechnicalPiston.Type.NORMAL ? Material.PISTON : Material.STICKY_PISTON;
         }
-        return VARIANT_MAP.getOrDefault(mat, mat).getKey();
+        return canonicalType(mat);
     }
 
     private int process(Block b, boolean add) {
-        return process(b, b.getBlockData(), add);
+        return process(b, b.getBlockData(), add, false);
+    }
+
+    private int process(Block b, BlockData blockData, boolean add) {
+        return process(b, blockData, add, false);
+    }
+
+    /**
+     * Same as {@link #process(Block, boolean)} for growth and decay events, whose
+     * bookkeeping is batched per tick, see also {@link #replace}.
+     */
+    private int grow(Block b, boolean add) {
+        return process(b, b.getBlockData(), add, true);
     }
 
     /**
      * Check if a block can be placed or needs to be removed based on limits.
      *
+     * @param batched true to leave the bookkeeping of the change to {@link #growth}
      * @return limit amount if over limit, or -1 if no limitation
      */
-    private int process(Block b, BlockData blockData, boolean add) {
-        if (DO_NOT_COUNT.contains(fixMaterial(blockData))) {
-            return -1;
+    private int process(Block b, BlockData blockData, boolean add, boolean batched) {
+        NamespacedKey key = countedKey(b, blockData);
+        return key == null ? -1 : processKey(b.getWorld(), b.getLocation(), key, add, batched);
+    }
+
+    /**
+     * @return the key the block would be counted under, or null if it is not counted
+     */
+    @Nullable
+    private NamespacedKey countedKey(Block b, BlockData blockData) {
+        NamespacedKey key = fixMaterial(blockData);
+        if (!isCounted(key)) {
+            return null;
         }
         // Stacked-plants-as-one: a segment sitting on the same plant is not counted,
         // limited, or decremented — only the base segment represents the plant.
-        if (addon.getSettings().isStackedPlantsCountAsOne() && STACKABLE.contains(fixMaterial(blockData))
-                && isSamePlant(b.getRelative(BlockFace.DOWN).getType(), fixMaterial(blockData))) {
+        if (addon.getSettings().isStackedPlantsCountAsOne() && STACKABLE.contains(key)
+                && isSamePlant(b.getRelative(BlockFace.DOWN).getType(), key)) {
+            return null;
+        }
+        return key;
+    }
+
+    /**
+     * Count a block turning into another, for form and spread events, looking the island
+     * and its record up once. The old block stops counting and the new one counts, unless
+     * the new one is at its limit, in which case the counts are left as they were. The
+     * bookkeeping is batched per tick.
+     *
+     * @return limit amount if the new block is at/over its limit, or -1
+     */
+    private int replace(Block b, BlockData newData) {
+        NamespacedKey oldKey = countedKey(b, b.getBlockData());
+        NamespacedKey newKey = countedKey(b, newData);
+        World world = b.getWorld();
+        if ((oldKey == null && newKey == null) || !addon.inGameModeWorld(world)) {
+            return -1;
+        }
+        Location location = b.getLocation();
+        Environment env = envOf(world);
+        return islandAt(location).map(i -> {
+            String gameMode = addon.getGameModeName(world);
+            if (gameMode.isEmpty() || isIgnoredCenterBlock(i, location)) {
+                return -1;
+            }
+            IslandBlockCount ibc = findOrCreate(i.getUniqueId(), gameMode);
+            // The new block replaces the old one, so its limit is checked without the old
+            boolean removed = oldKey != null && ibc.remove(env, oldKey);
+            if (newKey != null) {
+                int limit = checkLimit(world, env, newKey, ibc);
+                if (limit > -1) {
+                    if (removed) {
+                        ibc.add(env, oldKey);
+                    }
+                    return limit;
+                }
+                ibc.add(env, newKey);
+                changed(ibc, env, location, newKey, 1, true);
+            }
+            if (removed) {
+                changed(ibc, env, location, oldKey, -1, true);
+            }
             return -1;
+        }).orElse(-1);
+    }
+
+    /**
+     * Cheap test, before any island lookup, of whether a block event needs handling at all.
+     *
+     * @return false if this material is never counted, or is not limited and only
+     *         limited blocks are counted
+     */
+    private boolean isCounted(NamespacedKey key) {
+        if (DO_NOT_COUNT.contains(key)) {
+            return false;
+        }
+        if (!addon.getSettings().isCountLimitedBlocksOnly()) {
+            return true;
+        }
+        int ordinal = KeyIndex.ordinal(key);
+        return ordinal == KeyIndex.NONE || getLimitedMaterials().get(ordinal);
+    }
+
+    /**
+     * @return keys of the vanilla blocks that a config, world or permission limit, or a
+     *         block group, refers to
+     */
+    public List<NamespacedKey> getLimitedKeys() {
+        return getLimitedMaterials().stream().mapToObj(KeyIndex::key).toList();
+    }
+
+    private BitSet getLimitedMaterials() {
+        if (limitedMaterials == null) {
+            BitSet bits = new BitSet(KeyIndex.size());
+            envDefaultLimitMap.values().forEach(m -> setOrdinals(bits, m.keySet()));
+            worldLimitMap.values().forEach(m -> setOrdinals(bits, m.keySet()));
+            addon.getSettings().getBlockGroupDefinitions().forEach(g -> setOrdinals(bits, g.getKeys()));
+            limitedMaterials = bits;
+            islandCountMap.values().forEach(this::addLimitedMaterials);
+            evicting.values().forEach(this::addLimitedMaterials);
+        }
+        return limitedMaterials;
+    }
+
+    /**
+     * Add the materials an island has its own limit or offset for. Island limits only
+     * ever arrive with a record being loaded or set, so that is when this is called.
+     */
+    private void addLimitedMaterials(IslandBlockCount ibc) {
+        if (limitedMaterials != null) {
+            ibc.getAllBlockLimits().values().forEach(m -> setOrdinals(limitedMaterials, m.keySet()));
+            ibc.getAllBlockLimitsOffset().values().forEach(m -> setOrdinals(limitedMaterials, m.keySet()));
+        }
+    }
+
+    private static void setOrdinals(BitSet bits, Collection<NamespacedKey> keys) {
+        for (NamespacedKey key : keys) {
+            int ordinal = KeyIndex.ordinal(key);
+            if (ordinal != KeyIndex.NONE) {
+                bits.set(ordinal);
+            }
         }
-        return processKey(b.getWorld(), b.getLocation(), fixMaterial(blockData), add);
     }
 
     /**
@@ -489,11 +965,15 @@ public class BlockLimitsListener implements Listener {
     }
 
     public int processKey(World world, Location location, NamespacedKey key, boolean add) {
+        return processKey(world, location, key, add, false);
+    }
+
+    private int processKey(World world, Location location, NamespacedKey key, boolean add, boolean batched) {
         if (!addon.inGameModeWorld(world)) {
             return -1;
         }
         Environment env = envOf(world);
-        return addon.getIslands().getIslandAt(location).map(i -> {
+        return islandAt(location).map(i -> {
             String id = i.getUniqueId();
             String gameMode = addon.getGameModeName(world);
             if (gameMode.isEmpty()) {
@@ -502,40 +982,100 @@ public class BlockLimitsListener implements Listener {
             if (isIgnoredCenterBlock(i, location)) {
                 return -1;
             }
-            islandCountMap.putIfAbsent(id, new IslandBlockCount(id, gameMode));
+            IslandBlockCount ibc = findOrCreate(id, gameMode);
             if (add) {
-                int limit = checkLimit(world, env, key, id);
+                int limit = checkLimit(world, env, key, ibc);
                 if (limit > -1) {
                     return limit;
                 }
-                islandCountMap.get(id).add(env, key);
-            } else {
-                islandCountMap.get(id).remove(env, key);
+                ibc.add(env, key);
+                changed(ibc, env, location, key, 1, batched);
+            } else if (ibc.remove(env, key)) {
+                changed(ibc, env, location, key, -1, batched);
+            }
+            if (!batched) {
+                markDirty(id);
             }
-            updateSaveMap(id);
             return -1;
         }).orElse(-1);
     }
 
+    /**
+     * Remove many blocks of one world from the counts at once, e.g. the blocks an
+     * explosion destroys. Each island is looked up once rather than per block, and its
+     * counts drop by one amount per chunk and material, with one save queued per island.
+     */
+    private void removeAll(List<Block> blocks) {
+        if (blocks.isEmpty()) {
+            return;
+        }
+        World world = blocks.get(0).getWorld();
+        String gameMode = addon.getGameModeName(world);
+        if (!addon.inGameModeWorld(world) || gameMode.isEmpty()) {
+            return;
+        }
+        boolean stackedAsOne = addon.getSettings().isStackedPlantsCountAsOne();
+        // Island id -> chunk key -> material -> blocks removed
+        Map<String, Map<Long, Map<NamespacedKey, Integer>>> removed = new HashMap<>();
+        Island last = null;
+        for (Block b : blocks) {
+            NamespacedKey key = fixMaterial(b.getBlockData());
+            if (!isCounted(key) || (stackedAsOne && STACKABLE.contains(key)
+                    && isSamePlant(b.getRelative(BlockFace.DOWN).getType(), key))) {
+                continue;
+            }
+            Location loc = b.getLocation();
+            // Explosions are local, so the previous block's island usually holds this one too
+            Island island = last != null && last.inIslandSpace(loc) ? last : islandAt(loc).orElse(null);
+            if (island == null || isIgnoredCenterBlock(island, loc)) {
+                continue;
+            }
+            last = island;
+            removed.computeIfAbsent(island.getUniqueId(), k -> new HashMap<>())
+                    .computeIfAbsent(ChunkHistogram.chunkKey(b.getX() >> 4, b.getZ() >> 4), k -> new HashMap<>())
+                    .merge(key, 1, Integer::sum);
+        }
+        Environment env = envOf(world);
+        removed.forEach((id, chunks) -> {
+            IslandBlockCount ibc = findOrCreate(id, gameMode);
+            chunks.forEach((chunk, keys) -> keys.forEach((key, amount) -> {
+                int n = ibc.remove(env, key, amount);
+                if (n > 0) {
+                    blockChanged(ibc, env, chunk, key, -n);
+                }
+            }));
+            markDirty(id);
+        });
+    }
+
     /**
      * Remove a block from any island limit count
      */
     public void removeBlock(Block b) {
-        addon.getIslands().getIslandAt(b.getLocation()).ifPresent(i -> {
+        NamespacedKey key = fixMaterial(b.getBlockData());
+        if (!isCounted(key)) {
+            return;
+        }
+        islandAt(b.getLocation()).ifPresent(i -> {
             String id = i.getUniqueId();
             String gameMode = addon.getGameModeName(b.getWorld());
             if (gameMode.isEmpty()) return;
             Environment env = envOf(b.getWorld());
-            islandCountMap.computeIfAbsent(id, k -> new IslandBlockCount(id, gameMode))
-                    .remove(env, fixMaterial(b.getBlockData()));
-            updateSaveMap(id);
+            IslandBlockCount ibc = findOrCreate(id, gameMode);
+            if (ibc.remove(env, key)) {
+                blockChanged(ibc, env, b.getLocation(), key, -1);
+            }
+            markDirty(id);
         });
     }
 
-    private void updateSaveMap(String id) {
-        if (saveMap.merge(id, 1, Integer::sum) > CHANGE_LIMIT) {
-            handler.saveObjectAsync(islandCountMap.get(id));
-            saveMap.remove(id);
+    /**
+     * Queue a write-behind save of a changed record. With the journal open the change is
+     * already on disk, and compaction saves the record, so nothing is queued.
+     */
+    private void markDirty(String id) {
+        if (journal == null) {
+            flusher.markDirty(id);
         }
     }
 
@@ -563,14 +1103,13 @@ public class BlockLimitsListener implements Listener {
             return -1;
         }
         Environment env = envOf(w);
-        return addon.getIslands().getIslandAt(loc).map(i -> {
+        return islandAt(loc).map(i -> {
             String id = i.getUniqueId();
             String gameMode = addon.getGameModeName(w);
             if (gameMode.isEmpty() || isIgnoredCenterBlock(i, loc)) {
                 return -1;
             }
-            islandCountMap.putIfAbsent(id, new IslandBlockCount(id, gameMode));
-            return checkLimit(w, env, key, id);
+            return checkLimit(w, env, key, findOrCreate(id, gameMode));
         }).orElse(-1);
     }
 
@@ -585,15 +1124,17 @@ public class BlockLimitsListener implements Listener {
         if (w == null || !addon.inGameModeWorld(w)) {
             return;
         }
-        addon.getIslands().getIslandAt(loc).ifPresent(i -> {
+        islandAt(loc).ifPresent(i -> {
             String id = i.getUniqueId();
             String gameMode = addon.getGameModeName(w);
             if (gameMode.isEmpty() || isIgnoredCenterBlock(i, loc)) {
                 return;
             }
             Environment env = envOf(w);
-            islandCountMap.computeIfAbsent(id, k -> new IslandBlockCount(id, gameMode)).add(env, key);
-            updateSaveMap(id);
+            IslandBlockCount ibc = findOrCreate(id, gameMode);
+            ibc.add(env, key);
+            blockChanged(ibc, env, loc, key, 1);
+            markDirty(id);
         });
     }
 
@@ -603,12 +1144,12 @@ public class BlockLimitsListener implements Listener {
      *
      * @return limit if at or over, or -1 if no limit
      */
-    private int checkLimit(World w, Environment env, NamespacedKey m, String id) {
-        int single = checkSingleLimit(w, env, m, id);
+    private int checkLimit(World w, Environment env, NamespacedKey m, IslandBlockCount ibc) {
+        int single = checkSingleLimit(w, env, m, ibc);
         if (single > -1) {
             return single;
         }
-        return checkBlockGroupLimit(env, m, islandCountMap.get(id));
+        return checkBlockGroupLimit(env, m, ibc);
     }
 
     /**
@@ -618,12 +1159,15 @@ public class BlockLimitsListener implements Listener {
      * @return group limit if at or over, or -1 if no group limit is hit
      */
     private int checkBlockGroupLimit(Environment env, NamespacedKey m, IslandBlockCount ibc) {
-        for (world.bentobox.limits.BlockGroup group : addon.getSettings().getBlockGroups(m)) {
+        for (world.bentobox.limits.BlockGroup group : limitTable.getGroups(m)) {
             int limit = addon.getSettings().getBlockGroupLimit(env, group.getName());
             if (limit < 0) {
                 continue;
             }
-            int sum = group.getKeys().stream().mapToInt(k -> ibc.getBlockCount(env, k)).sum();
+            int sum = 0;
+            for (NamespacedKey k : group.getKeys()) {
+                sum += ibc.getBlockCount(env, k);
+            }
             if (sum >= limit) {
                 return limit;
             }
@@ -631,25 +1175,15 @@ public class BlockLimitsListener implements Listener {
         return -1;
     }
 
-    private int checkSingleLimit(World w, Environment env, NamespacedKey m, String id) {
-        IslandBlockCount ibc = islandCountMap.get(id);
+    private int checkSingleLimit(World w, Environment env, NamespacedKey m, IslandBlockCount ibc) {
         if (ibc.isBlockLimited(env, m)) {
             int offset = ibc.getBlockLimitOffset(env, m);
             return ibc.isAtLimit(env, m) ? ibc.getBlockLimit(env, m) + offset : -1;
         }
-        Map<NamespacedKey, Integer> worldMap = worldLimitMap.get(w);
-        if (worldMap != null && worldMap.containsKey(m)) {
-            int worldLimit = worldMap.get(m);
-            int offset = ibc.getBlockLimitOffset(env, m);
-            return ibc.isAtLimit(env, m, worldLimit) ? worldLimit + offset : -1;
-        }
-        Map<NamespacedKey, Integer> envDefaults = envDefaultLimitMap.get(env);
-        if (envDefaults != null && envDefaults.containsKey(m)) {
-            int envLimit = envDefaults.get(m);
-            int offset = ibc.getBlockLimitOffset(env, m);
-            if (ibc.isAtLimit(env, m, envLimit)) {
-                return envLimit + offset;
-            }
+        // World-named limit, else env default, precompiled into one lookup
+        int configLimit = limitTable.getLimit(w, env, m);
+        if (configLimit != BlockLimitTable.NONE && ibc.isAtLimit(env, m, configLimit)) {
+            return configLimit + ibc.getBlockLimitOffset(env, m);
         }
         return -1;
     }
@@ -658,6 +1192,18 @@ public class BlockLimitsListener implements Listener {
      * Aggregate map of the resolved limits for this island in the given world.
      */
     public Map<NamespacedKey, Integer> getMaterialLimits(World w, String id) {
+        return materialLimits(w, find(id));
+    }
+
+    /**
+     * Like {@link #getMaterialLimits(World, String)}, but only reads the island's record
+     * if it is in memory, see {@link #peekIsland}.
+     */
+    public Map<NamespacedKey, Integer> getLoadedMaterialLimits(World w, String id) {
+        return materialLimits(w, peekIsland(id));
+    }
+
+    private Map<NamespacedKey, Integer> materialLimits(World w, @Nullable IslandBlockCount ibc) {
         Environment env = envOf(w);
         Map<NamespacedKey, Integer> result = new HashMap<>();
         Map<NamespacedKey, Integer> envDefaults = envDefaultLimitMap.get(env);
@@ -668,7 +1214,6 @@ public class BlockLimitsListener implements Listener {
         if (worldMap != null) {
             result.putAll(worldMap);
         }
-        IslandBlockCount ibc = islandCountMap.get(id);
         if (ibc != null) {
             result.putAll(ibc.getBlockLimits(env));
             ibc.getBlockLimitsOffset(env).forEach(
@@ -679,38 +1224,111 @@ public class BlockLimitsListener implements Listener {
 
     /**
      * Per-environment map of the env-default limits, used for tests and external introspection.
+     *
+     * @return read-only view; see {@link #setEnvDefaultLimit} to change a limit
      */
     public Map<Environment, Map<NamespacedKey, Integer>> getEnvDefaultLimitMap() {
-        return envDefaultLimitMap;
+        return Collections.unmodifiableMap(Maps.transformValues(envDefaultLimitMap, Collections::unmodifiableMap));
     }
 
+    /**
+     * Per-world named limits.
+     *
+     * @return read-only view; see {@link #setWorldLimit} to change a limit
+     */
     public Map<World, Map<NamespacedKey, Integer>> getWorldLimitMap() {
-        return worldLimitMap;
+        return Collections.unmodifiableMap(Maps.transformValues(worldLimitMap, Collections::unmodifiableMap));
+    }
+
+    /**
+     * Set the default limit of a block in an environment.
+     *
+     * @param limit the limit, or a negative number to remove it
+     */
+    public void setEnvDefaultLimit(Environment env, NamespacedKey key, int limit) {
+        Map<NamespacedKey, Integer> limits = envDefaultLimitMap.computeIfAbsent(env, e -> new HashMap<>());
+        if (limit < 0) {
+            limits.remove(key);
+        } else {
+            limits.put(key, limit);
+        }
+        invalidateLimits();
+    }
+
+    /**
+     * Set the limit of a block in one world, overriding the environment default.
+     *
+     * @param limit the limit, or a negative number to remove it
+     */
+    public void setWorldLimit(World world, NamespacedKey key, int limit) {
+        Map<NamespacedKey, Integer> limits = worldLimitMap.computeIfAbsent(world, w -> new HashMap<>());
+        if (limit < 0) {
+            limits.remove(key);
+        } else {
+            limits.put(key, limit);
+        }
+        invalidateLimits();
     }
 
     @EventHandler(priority = EventPriority.NORMAL, ignoreCancelled = true)
     public void onIslandDelete(IslandDeleteEvent e) {
         islandCountMap.remove(e.getIsland().getUniqueId());
-        saveMap.remove(e.getIsland().getUniqueId());
+        evicting.remove(e.getIsland().getUniqueId());
+        flusher.remove(e.getIsland().getUniqueId());
         if (handler.objectExists(e.getIsland().getUniqueId())) {
             handler.deleteID(e.getIsland().getUniqueId());
         }
+        chunkCounts.delete(e.getIsland().getUniqueId());
+    }
+
+    /**
+     * Store the island's chunk counts, e.g. once a recount has recorded them. Call
+     * before {@link #setIsland}, which saves the record that refers to them.
+     */
+    public void saveChunkCounts(IslandBlockCount ibc) {
+        chunkCounts.save(ibc);
     }
 
     public void setIsland(String islandId, IslandBlockCount ibc) {
+        growth.flush();
+        if (journal != null) {
+            // The whole record is saved now, so no earlier journal line applies to it
+            ibc.setJournalSeq(journal.getSeq());
+        }
         islandCountMap.put(islandId, ibc);
-        handler.saveObjectAsync(ibc);
+        addLimitedMaterials(ibc);
+        flusher.saveNow(ibc);
     }
 
     @Nullable
     public IslandBlockCount getIsland(String islandId) {
-        return islandCountMap.get(islandId);
+        return find(islandId);
     }
 
     @NonNull
     public IslandBlockCount getIsland(Island island) {
-        return islandCountMap.computeIfAbsent(island.getUniqueId(),
-                k -> new IslandBlockCount(k, island.getGameMode()));
+        return findOrCreate(island.getUniqueId(), island.getGameMode());
+    }
+
+    /**
+     * The island's record if it is in memory. Unlike {@link #getIsland(String)} it never
+     * loads or creates a record, nor counts as a use of it in lazy mode, so that readers
+     * such as placeholders keep offline islands out of the cache. In lazy mode the cache
+     * is only read on the main thread.
+     *
+     * @return the record, or null if it is not in memory or this is not the main thread
+     *         in lazy mode
+     */
+    @Nullable
+    public IslandBlockCount peekIsland(String islandId) {
+        if (!lazy) {
+            return islandCountMap.get(islandId);
+        }
+        if (!Bukkit.isPrimaryThread()) {
+            return null;
+        }
+        IslandBlockCount ibc = ((RecordCache) islandCountMap).peek(islandId);
+        return ibc != null ? ibc : evicting.get(islandId);
     }
 
     /**
@@ -721,8 +1339,10 @@ public class BlockLimitsListener implements Listener {
      * this internally.
      */
     public void incrementEntity(Island island, Environment env, EntityType type) {
-        getIsland(island).incrementEntity(env, type);
-        updateSaveMap(island.getUniqueId());
+        IslandBlockCount ibc = getIsland(island);
+        ibc.incrementEntity(env, type);
+        journalEntity(ibc, env, type, 1);
+        markDirty(island.getUniqueId());
     }
 
     /**
@@ -732,8 +1352,10 @@ public class BlockLimitsListener implements Listener {
     public void decrementEntity(String islandId, Environment env, EntityType type) {
         IslandBlockCount ibc = getIsland(islandId);
         if (ibc != null) {
-            ibc.decrementEntity(env, type);
-            updateSaveMap(islandId);
+            if (ibc.decrementEntity(env, type)) {
+                journalEntity(ibc, env, type, -1);
+            }
+            markDirty(islandId);
         }
     }
 }
@@ -0,0 +1,74 @@
+package world.bentobox.limits.listeners;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import world.bentobox.bentobox.database.Database;
+import world.bentobox.limits.Limits;
+import world.bentobox.limits.objects.IslandBlockCount;
+import world.bentobox.limits.objects.IslandChunkCounts;
+
+/**
+ * Storage of the islands' per-chunk counts, apart from their count records.
+ *
+ * <p>A record is saved after every few block changes; its chunk counts are big and only
+ * matter to recounts, so they are written only when a recount has recorded them and
+ * when the record leaves memory with changed ones. Block changes in between only keep
+ * the counts in memory current.
+ */
+class ChunkCountStore {
+
+    private final Database<IslandChunkCounts> handler;
+    private long lastSeq;
+
+    ChunkCountStore(Limits addon) {
+        handler = new Database<>(addon, IslandChunkCounts.class);
+    }
+
+    /**
+     * Give a freshly loaded record its stored chunk counts. Any thread.
+     */
+    void load(IslandBlockCount ibc) {
+        String id = ibc.getUniqueId();
+        ibc.loadChunkCounts(handler.objectExists(id) ? handler.loadObject(id) : null);
+    }
+
+    /**
+     * Give freshly loaded records their stored chunk counts, reading the store once.
+     */
+    void loadAll(Collection<IslandBlockCount> records) {
+        Map<String, IslandChunkCounts> stored = handler.loadObjects().stream()
+                .collect(Collectors.toMap(IslandChunkCounts::getUniqueId, Function.identity(), (a, b) -> a));
+        records.forEach(ibc -> ibc.loadChunkCounts(stored.get(ibc.getUniqueId())));
+    }
+
+    /**
+     * Store the record's chunk counts. The record must be saved afterwards, so that it
+     * refers to them.
+     *
+     * @return a future completing when they have been written
+     */
+    CompletableFuture<Boolean> save(IslandBlockCount ibc) {
+        lastSeq = Math.max(System.currentTimeMillis(), lastSeq + 1);
+        CompletableFuture<Boolean> future = handler.saveObjectAsync(ibc.storeChunkCounts(lastSeq));
+        return future == null ? CompletableFuture.completedFuture(Boolean.FALSE) : future;
+    }
+
+    /**
+     * Store the record's chunk counts if they have changed since they were last stored.
+     */
+    void saveIfChanged(IslandBlockCount ibc) {
+        if (ibc.hasUnsavedChunkCounts()) {
+            save(ibc);
+        }
+    }
+
+    void delete(String id) {
+        if (handler.objectExists(id)) {
+            handler.deleteID(id);
+        }
+    }
+}
@@ -0,0 +1,428 @@
+package world.bentobox.limits.listeners;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.bukkit.Bukkit;
+import org.bukkit.NamespacedKey;
+import org.bukkit.World.Environment;
+import org.bukkit.entity.EntityType;
+import org.bukkit.scheduler.BukkitTask;
+import org.eclipse.jdt.annotation.Nullable;
+
+import com.google.common.base.Enums;
+
+import world.bentobox.bentobox.BentoBox;
+import world.bentobox.limits.Limits;
+import world.bentobox.limits.objects.IslandBlockCount;
+
+/**
+ * Append-only journal of block and entity count changes.
+ *
+ * <p>Every count change appends one short line ({@code seq, island, game mode, env,
+ * B|E, key, delta}) to a local file, so a change costs a few bytes instead of a full
+ * record save. Each record remembers the sequence number of its last journalled change
+ * ({@link IslandBlockCount#getJournalSeq()}), and that number is saved with it.
+ *
+ * <p>Lines are collected on the main thread and handed in batches to a single IO
+ * thread, which owns the file: the main thread never waits on the disk.
+ *
+ * <p>Compaction rotates the journal, saves the changed records as regular database
+ * snapshots and deletes the rotated file once those saves have completed. While the
+ * journal is open, compaction is the only thing that saves counted changes. On startup
+ * the journal is replayed; lines already covered by a record's saved snapshot are
+ * skipped by sequence number, so replaying after a partial compaction is safe.
+ */
+public class CountJournal {
+
+    /** Callback used to apply a replayed line. */
+    @FunctionalInterface
+    public interface ReplayTarget {
+        /**
+         * @return the record to apply the change to, creating it if needed
+         */
+        IslandBlockCount get(String islandId, String gameMode);
+    }
+
+    private static final String FILE_NAME = "count-journal.log";
+    private static final String ROTATED_NAME = "count-journal.old";
+    private static final char SEP = '\t';
+    private static final int BUFFER_SIZE = 64 * 1024;
+    /** Collected lines are handed to the IO thread at least this often (ticks). */
+    private static final long FLUSH_TICKS = 20L;
+    /** How long closing waits for the IO thread to write what it has been handed. */
+    private static final long CLOSE_WAIT_SECONDS = 10L;
+
+    private final Limits addon;
+    private final File file;
+    private final File rotated;
+    /** Owned by the IO thread once the journal is open. */
+    private BufferedWriter writer;
+    @Nullable
+    private ExecutorService io;
+    /** Lines not yet handed to the IO thread. Main thread only. */
+    private StringBuilder pending = new StringBuilder();
+    /** False once closed or after a write failed. */
+    private volatile boolean open;
+    private long seq;
+    private boolean compacting;
+    private BukkitTask task;
+    private BukkitTask flushTask;
+    /** Run on the main thread when the journal stops because of a write failure. */
+    private Runnable onFailure = () -> {
+    };
+
+    public CountJournal(Limits addon, File folder) {
+        this.addon = addon;
+        this.file = new File(folder, FILE_NAME);
+        this.rotated = new File(folder, ROTATED_NAME);
+    }
+
+    /**
+     * Replay any journal left from the last run into the records.
+     *
+     * @param target supplies the record for each island
+     * @return number of lines applied
+     */
+    public int replay(ReplayTarget target) {
+        int applied = 0;
+        // The rotated file is older than the current one
+        for (File f : new File[] { rotated, file }) {
+            if (f.exists()) {
+                applied += replay(f, target);
+            }
+        }
+        return applied;
+    }
+
+    private int replay(File f, ReplayTarget target) {
+        int applied = 0;
+        try (BufferedReader reader = Files.newBufferedReader(f.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (apply(line, target)) {
+                    applied++;
+                }
+            }
+        } catch (IOException e) {
+            addon.logError("Could not replay count journal " + f.getName() + ": " + e.getMessage());
+        }
+        return applied;
+    }
+
+    private boolean apply(String line, ReplayTarget target) {
+        String[] parts = line.split(String.valueOf(SEP));
+        if (parts.length != 7) {
+            return false;
+        }
+        try {
+            long lineSeq = Long.parseLong(parts[0]);
+            seq = Math.max(seq, lineSeq);
+            Environment env = Enums.getIfPresent(Environment.class, parts[3]).orNull();
+            int delta = Integer.parseInt(parts[6]);
+            if (env == null || delta == 0) {
+                return false;
+            }
+            IslandBlockCount ibc = target.get(parts[1], parts[2]);
+            if (ibc == null || lineSeq <= ibc.getJournalSeq()) {
+                // Already in the saved snapshot
+                return false;
+            }
+            if (!applyDelta(ibc, env, parts[4], parts[5], delta)) {
+                return false;
+            }
+            // The line does not say which chunk changed
+            ibc.invalidateChunkCounts();
+            ibc.setJournalSeq(lineSeq);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static boolean applyDelta(IslandBlockCount ibc, Environment env, String kind, String rawKey, int delta) {
+        if ("B".equals(kind)) {
+            NamespacedKey key = NamespacedKey.fromString(rawKey);
+            if (key == null) {
+                return false;
+            }
+            for (int i = 0; i < Math.abs(delta); i++) {
+                if (delta > 0) {
+                    ibc.add(env, key);
+                } else {
+                    ibc.remove(env, key);
+                }
+            }
+            return true;
+        }
+        EntityType type = Enums.getIfPresent(EntityType.class, rawKey).orNull();
+        if (type == null) {
+            return false;
+        }
+        for (int i = 0; i < Math.abs(delta); i++) {
+            if (delta > 0) {
+                ibc.incrementEntity(env, type);
+            } else {
+                ibc.decrementEntity(env, type);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Open the journal for appending and start periodic compaction.
+     *
+     * @param compactTicks ticks between compactions
+     * @param snapshot saves every changed record; completes when the saves have
+     * @param onFailure run on the main thread if the journal later stops because it
+     *            cannot be written; changes must then be saved some other way
+     * @return true if the journal is open
+     */
+    public boolean open(long compactTicks, Supplier<CompletableFuture<Void>> snapshot, Runnable onFailure) {
+        // Set before the IO thread starts, which then reads it
+        this.onFailure = onFailure;
+        if (!openWriter()) {
+            return false;
+        }
+        long interval = Math.max(20L, compactTicks);
+        task = Bukkit.getScheduler().runTaskTimer(BentoBox.getInstance(), () -> compact(snapshot), interval, interval);
+        flushTask = Bukkit.getScheduler().runTaskTimer(BentoBox.getInstance(), this::flush, FLUSH_TICKS,
+                FLUSH_TICKS);
+        return true;
+    }
+
+    /**
+     * Open the file and start the IO thread, without any timers.
+     *
+     * @return true if the journal is open
+     */
+    boolean openWriter() {
+        try {
+            writer = newWriter();
+        } catch (IOException e) {
+            addon.logError("Could not open count journal, falling back to snapshot saves only: " + e.getMessage());
+            return false;
+        }
+        io = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "Limits-CountJournal");
+            t.setDaemon(true);
+            return t;
+        });
+        open = true;
+        return true;
+    }
+
+    private BufferedWriter newWriter() throws IOException {
+        return new BufferedWriter(Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND), BUFFER_SIZE);
+    }
+
+    /**
+     * @return true if changes are being journalled
+     */
+    public boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * @return the sequence number of the last journalled change
+     */
+    public long getSeq() {
+        return seq;
+    }
+
+    /**
+     * Journal a block count change.
+     */
+    public void recordBlock(IslandBlockCount ibc, Environment env, NamespacedKey key, int delta) {
+        record(ibc, env, 'B', key.toString(), delta);
+    }
+
+    /**
+     * Journal an entity count change.
+     */
+    public void recordEntity(IslandBlockCount ibc, Environment env, EntityType type, int delta) {
+        record(ibc, env, 'E', type.name(), delta);
+    }
+
+    private void record(IslandBlockCount ibc, Environment env, char kind, String key, int delta) {
+        if (!open) {
+            return;
+        }
+        seq++;
+        ibc.setJournalSeq(seq);
+        pending.append(seq).append(SEP).append(ibc.getUniqueId()).append(SEP).append(ibc.getGameMode()).append(SEP)
+                .append(env.name().toUpperCase(Locale.ROOT)).append(SEP).append(kind).append(SEP).append(key)
+                .append(SEP).append(delta).append('\n');
+        if (pending.length() >= BUFFER_SIZE) {
+            flush();
+        }
+    }
+
+    /**
+     * Hand the lines collected so far to the IO thread, which writes them to disk.
+     * Never waits on the disk.
+     */
+    public void flush() {
+        if (pending.isEmpty() || io == null) {
+            return;
+        }
+        StringBuilder batch = pending;
+        pending = new StringBuilder();
+        io.execute(() -> write(batch));
+    }
+
+    /**
+     * IO thread: append a batch of lines.
+     */
+    private void write(CharSequence batch) {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.append(batch);
+            writer.flush();
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Rotate the journal, save snapshots and drop the rotated file once they are stored.
+     */
+    void compact(Supplier<CompletableFuture<Void>> snapshot) {
+        if (!open || compacting || io == null) {
+            return;
+        }
+        compacting = true;
+        flush();
+        CompletableFuture.runAsync(this::rotate, io)
+                .whenComplete((v, rotateError) -> Bukkit.getScheduler().runTask(BentoBox.getInstance(), () -> {
+                    if (rotateError != null) {
+                        // Already logged and failed over
+                        compacting = false;
+                        return;
+                    }
+                    // Every line in the rotated file is older than the snapshots taken now
+                    snapshot.get().whenComplete((s, ex) -> Bukkit.getScheduler().runTask(BentoBox.getInstance(),
+                            () -> snapshotDone(ex)));
+                }));
+    }
+
+    private void snapshotDone(@Nullable Throwable ex) {
+        compacting = false;
+        if (ex != null) {
+            addon.logError("Count snapshot failed, keeping journal for replay: " + ex.getMessage());
+            return;
+        }
+        if (io != null && !io.isShutdown()) {
+            io.execute(this::deleteRotated);
+        } else {
+            deleteRotated();
+        }
+    }
+
+    /**
+     * IO thread: move the current file aside and start a new one.
+     */
+    private void rotate() {
+        if (writer == null) {
+            throw new IllegalStateException("Count journal is closed");
+        }
+        try {
+            writer.close();
+            writer = null;
+            if (rotated.exists()) {
+                // A previous snapshot failed: keep its lines, they may not be stored yet
+                Files.write(rotated.toPath(), Files.readAllBytes(file.toPath()), StandardOpenOption.APPEND);
+                Files.delete(file.toPath());
+            } else {
+                Files.move(file.toPath(), rotated.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            writer = newWriter();
+        } catch (IOException e) {
+            fail(e);
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void deleteRotated() {
+        try {
+            Files.deleteIfExists(rotated.toPath());
+        } catch (IOException e) {
+            addon.logError("Could not delete compacted count journal: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stop compaction, write out every collected line and close the file. The journal
+     * is kept on disk; the final snapshot save makes it redundant and the next startup
+     * skips its lines.
+     */
+    public void close() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        if (flushTask != null) {
+            flushTask.cancel();
+            flushTask = null;
+        }
+        flush();
+        open = false;
+        if (io == null) {
+            return;
+        }
+        io.execute(this::closeWriter);
+        io.shutdown();
+        try {
+            if (!io.awaitTermination(CLOSE_WAIT_SECONDS, TimeUnit.SECONDS)) {
+                addon.logError("Count journal did not finish writing in time; the last changes may be lost");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        io = null;
+    }
+
+    /**
+     * IO thread: close the file.
+     */
+    private void closeWriter() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                addon.logError("Could not close count journal: " + e.getMessage());
+            }
+            writer = null;
+        }
+    }
+
+    /**
+     * IO thread: a write failed. Stop journalling and let the main thread fall back to
+     * saving snapshots.
+     */
+    private void fail(IOException e) {
+        addon.logError("Count journal write failed, falling back to snapshot saves only: " + e.getMessage());
+        open = false;
+        closeWriter();
+        BentoBox plugin = BentoBox.getInstance();
+        if (plugin != null && plugin.isEnabled()) {
+            Bukkit.getScheduler().runTask(plugin, onFailure);
+        }
+    }
+}
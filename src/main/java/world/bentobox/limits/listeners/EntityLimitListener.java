@@ -71,6 +71,14 @@ public class EntityLimitListener implements Listener {
         this.addon = addon;
     }
 
+    /**
+     * Island at a location, through the addon's chunk-keyed lookup cache when it is set up.
+     */
+    private Optional<Island> islandAt(Location location) {
+        IslandLookupCache lookup = addon.getIslandLookup();
+        return lookup == null ? addon.getIslands().getIslandAt(location) : lookup.getIslandAt(location);
+    }
+
     private static Environment envOf(World w) {
         Environment env = w.getEnvironment();
         return Settings.ENVIRONMENTS.contains(env) ? env : Environment.NORMAL;
@@ -159,7 +167,7 @@ public class EntityLimitListener implements Listener {
         if (!addon.inGameModeWorld(hangingPlaceEvent.getBlock().getWorld())) return;
         Player player = hangingPlaceEvent.getPlayer();
         if (player == null) return;
-        addon.getIslands().getIslandAt(hangingPlaceEvent.getEntity().getLocation()).ifPresent(island -> {
+        islandAt(hangingPlaceEvent.getEntity().getLocation()).ifPresent(island -> {
             boolean bypass = Objects.requireNonNull(player).isOp() || player.hasPermission(
                     addon.getPlugin().getIWM().getPermissionPrefix(hangingPlaceEvent.getEntity().getWorld())
                             + MOD_BYPASS);
@@ -219,7 +227,7 @@ public class EntityLimitListener implements Listener {
         if (!addon.inGameModeWorld(location.getWorld())) {
             return;
         }
-        addon.getIslands().getIslandAt(location).ifPresent(island -> {
+        islandAt(location).ifPresent(island -> {
             boolean bypass = player.isOp() || player.hasPermission(
                     addon.getPlugin().getIWM().getPermissionPrefix(location.getWorld()) + MOD_BYPASS);
             if (bypass || island.isSpawn()) {
@@ -304,7 +312,7 @@ public class EntityLimitListener implements Listener {
         if (entity == null) return;
         World w = entity.getWorld();
         if (!addon.inGameModeWorld(w)) return;
-        addon.getIslands().getIslandAt(entity.getLocation())
+        islandAt(entity.getLocation())
                 .filter(island -> !island.isSpawn())
                 .ifPresent(island -> {
                     addon.getBlockLimitListener().incrementEntity(island, envOf(w), entity.getType());
@@ -333,7 +341,7 @@ public class EntityLimitListener implements Listener {
         World w = entity.getWorld();
         if (!addon.inGameModeWorld(w)) return;
 
-        addon.getIslands().getIslandAt(entity.getLocation())
+        islandAt(entity.getLocation())
                 .filter(island -> !island.isSpawn())
                 .ifPresent(island -> entityIslandMap.put(uuid, island.getUniqueId()));
     }
@@ -361,7 +369,7 @@ public class EntityLimitListener implements Listener {
             return;
         }
 
-        addon.getIslands().getIslandAt(entity.getLocation())
+        islandAt(entity.getLocation())
                 .filter(island -> !island.isSpawn())
                 .ifPresent(island -> addon.getBlockLimitListener().decrementEntity(island.getUniqueId(), envOf(w),
                         entity.getType()));
@@ -389,14 +397,14 @@ public class EntityLimitListener implements Listener {
         // Decrement at source if on a tracked island
         if (addon.inGameModeWorld(fromWorld)) {
             entityIslandMap.remove(entity.getUniqueId());
-            addon.getIslands().getIslandAt(entity.getLocation())
+            islandAt(entity.getLocation())
                     .filter(island -> !island.isSpawn())
                     .ifPresent(island -> addon.getBlockLimitListener().decrementEntity(island.getUniqueId(), fromEnv,
                             entity.getType()));
         }
         // Increment at destination if on a tracked island
         if (addon.inGameModeWorld(toWorld)) {
-            addon.getIslands().getIslandAt(e.getTo())
+            islandAt(e.getTo())
                     .filter(island -> !island.isSpawn())
                     .ifPresent(island -> {
                         addon.getBlockLimitListener().incrementEntity(island, toEnv, entity.getType());
@@ -480,7 +488,7 @@ public class EntityLimitListener implements Listener {
 
     private boolean processIsland(Cancellable cancelableEvent, LivingEntity livingEntity, Location location,
             SpawnReason spawnReason, boolean runAsync, boolean notify) {
-        Optional<Island> optionalIsland = addon.getIslands().getIslandAt(livingEntity.getLocation());
+        Optional<Island> optionalIsland = islandAt(livingEntity.getLocation());
         if (optionalIsland.isEmpty()) {
             if (runAsync) {
                 cancelableEvent.setCancelled(false);
@@ -0,0 +1,139 @@
+package world.bentobox.limits.listeners;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.bukkit.Bukkit;
+import org.bukkit.NamespacedKey;
+import org.bukkit.World.Environment;
+
+import world.bentobox.bentobox.BentoBox;
+import world.bentobox.limits.objects.IslandBlockCount;
+import world.bentobox.limits.objects.KeyCountMap;
+
+/**
+ * Per-tick batch of the count changes made by growth, spread, form and decay events,
+ * which automatic farms fire by the thousand.
+ *
+ * <p>The counts themselves are changed at once, so limit checks always see the current
+ * totals and stay exact. What is batched is the bookkeeping of each change: the journal
+ * line, the chunk counts and the save. Changes are summed per island, environment,
+ * chunk and material and applied once at the end of the tick; a change that was undone
+ * in the same tick, such as a spread cancelled at the limit, costs nothing. The sums are
+ * kept in primitive {@link KeyCountMap}s, so recording a change allocates nothing once
+ * its island and chunk have been seen in the tick. Main thread only.
+ */
+class GrowthBatch {
+
+    private static final Environment[] ENVIRONMENTS = Environment.values();
+
+    /** Applies one summed change. */
+    @FunctionalInterface
+    interface Sink {
+        void apply(IslandBlockCount ibc, Environment env, long chunk, NamespacedKey key, int delta);
+    }
+
+    /**
+     * Summed changes of one island and environment, by chunk. A farm changes blocks in
+     * only a few chunks, so they are searched linearly, starting with the last one used.
+     */
+    private static final class ChunkDeltas {
+        private long[] chunks = new long[4];
+        private KeyCountMap[] deltas = new KeyCountMap[4];
+        private int size;
+        private int last;
+
+        KeyCountMap get(long chunk) {
+            if (last < size && chunks[last] == chunk) {
+                return deltas[last];
+            }
+            for (int i = 0; i < size; i++) {
+                if (chunks[i] == chunk) {
+                    last = i;
+                    return deltas[i];
+                }
+            }
+            if (size == chunks.length) {
+                chunks = Arrays.copyOf(chunks, size * 2);
+                deltas = Arrays.copyOf(deltas, size * 2);
+            }
+            chunks[size] = chunk;
+            deltas[size] = new KeyCountMap();
+            last = size;
+            return deltas[size++];
+        }
+    }
+
+    private final Sink sink;
+    /** Changes by island record, then by environment ordinal. */
+    private Map<IslandBlockCount, ChunkDeltas[]> pending = new IdentityHashMap<>();
+    private boolean scheduled;
+
+    GrowthBatch(Sink sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * Record a count change that has already been made to {@code ibc}.
+     */
+    void add(IslandBlockCount ibc, Environment env, long chunk, NamespacedKey key, int delta) {
+        ChunkDeltas[] byEnv = pending.get(ibc);
+        if (byEnv == null) {
+            byEnv = new ChunkDeltas[ENVIRONMENTS.length];
+            pending.put(ibc, byEnv);
+        }
+        ChunkDeltas chunkDeltas = byEnv[env.ordinal()];
+        if (chunkDeltas == null) {
+            chunkDeltas = new ChunkDeltas();
+            byEnv[env.ordinal()] = chunkDeltas;
+        }
+        KeyCountMap deltas = chunkDeltas.get(chunk);
+        deltas.setInt(key, deltas.getInt(key) + delta);
+        if (!scheduled) {
+            scheduled = true;
+            Bukkit.getScheduler().runTask(BentoBox.getInstance(), this::flush);
+        }
+    }
+
+    /**
+     * Apply every pending change now. Must run before any record is saved, so that a
+     * saved record never holds a change whose journal line is still to be written.
+     */
+    void flush() {
+        scheduled = false;
+        if (pending.isEmpty()) {
+            return;
+        }
+        Map<IslandBlockCount, ChunkDeltas[]> changes = pending;
+        pending = new IdentityHashMap<>();
+        changes.forEach((ibc, byEnv) -> {
+            for (Environment env : ENVIRONMENTS) {
+                ChunkDeltas chunkDeltas = byEnv[env.ordinal()];
+                if (chunkDeltas == null) {
+                    continue;
+                }
+                for (int i = 0; i < chunkDeltas.size; i++) {
+                    long chunk = chunkDeltas.chunks[i];
+                    // Zero sums are not stored, so every entry is a real change
+                    chunkDeltas.deltas[i].forEach((key, delta) -> sink.apply(ibc, env, chunk, key, delta));
+                }
+            }
+        });
+    }
+
+    /**
+     * @return number of pending changes
+     */
+    int size() {
+        int size = 0;
+        for (ChunkDeltas[] byEnv : pending.values()) {
+            for (ChunkDeltas chunkDeltas : byEnv) {
+                for (int i = 0; chunkDeltas != null && i < chunkDeltas.size; i++) {
+                    size += chunkDeltas.deltas[i].size();
+                }
+            }
+        }
+        return size;
+    }
+}
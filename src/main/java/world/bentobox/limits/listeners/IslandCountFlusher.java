@@ -0,0 +1,248 @@
+package world.bentobox.limits.listeners;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitTask;
+
+import world.bentobox.bentobox.BentoBox;
+import world.bentobox.bentobox.database.Database;
+import world.bentobox.limits.HotPathStats;
+import world.bentobox.limits.Limits;
+import world.bentobox.limits.objects.IslandBlockCount;
+
+/**
+ * Write-behind saving of island count records.
+ *
+ * <p>Count changes only mark the island dirty. A timer then saves at most
+ * {@code batchSize} dirty islands every interval, so a burst of changes across many
+ * islands becomes a steady trickle of saves, and an island changed a thousand times
+ * between flushes is saved once. {@link #flushAll()} writes everything still dirty and
+ * is called on shutdown.
+ */
+public class IslandCountFlusher {
+
+    /** Warn when the backlog is more than this many batches deep. */
+    private static final int BACKLOG_WARN_BATCHES = 10;
+
+    private final Limits addon;
+    private final Database<IslandBlockCount> handler;
+    private final Function<String, IslandBlockCount> lookup;
+    private final int batchSize;
+    /** Time taken by each flush, batched changes included. */
+    private final HotPathStats.Timer flushTimer;
+    /** Dirty island ids, oldest first. */
+    private final Set<String> dirty = new LinkedHashSet<>();
+    /** Saves issued but not yet completed. */
+    private final Set<CompletableFuture<Boolean>> inFlight = new HashSet<>();
+    private BukkitTask task;
+    /** Run at the start of every flush, before anything is saved. */
+    private Runnable beforeFlush = () -> {
+    };
+
+    /* Back-pressure metrics */
+    private long saved;
+    private long batches;
+    private long backloggedBatches;
+    private int peakBacklog;
+    private boolean warned;
+
+    /**
+     * @param addon addon
+     * @param handler database to save to
+     * @param lookup finds the in-memory record for an island id, or null if it has gone
+     * @param batchSize maximum saves per flush
+     */
+    public IslandCountFlusher(Limits addon, Database<IslandBlockCount> handler,
+            Function<String, IslandBlockCount> lookup, int batchSize) {
+        this.addon = addon;
+        this.handler = handler;
+        this.lookup = lookup;
+        this.batchSize = Math.max(1, batchSize);
+        this.flushTimer = HotPathStats.timer(addon.getStats(), "save");
+    }
+
+    /**
+     * Start flushing one batch every {@code intervalTicks}.
+     */
+    public void start(long intervalTicks) {
+        stop();
+        long interval = Math.max(1L, intervalTicks);
+        task = Bukkit.getScheduler().runTaskTimer(BentoBox.getInstance(), this::flush, interval, interval);
+    }
+
+    /**
+     * Stop the timer. Dirty islands are kept; call {@link #flushAll()} to write them.
+     */
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    /**
+     * Set work to run at the start of every flush, e.g. applying batched changes so
+     * they are part of what is saved.
+     */
+    public void setBeforeFlush(Runnable beforeFlush) {
+        this.beforeFlush = beforeFlush;
+    }
+
+    /**
+     * Mark an island as needing a save.
+     */
+    public void markDirty(String islandId) {
+        if (dirty.add(islandId) && dirty.size() > peakBacklog) {
+            peakBacklog = dirty.size();
+        }
+    }
+
+    /**
+     * Forget an island, e.g. because it was deleted or has just been saved directly.
+     */
+    public void remove(String islandId) {
+        dirty.remove(islandId);
+    }
+
+    /**
+     * Save up to one batch of dirty islands, oldest first.
+     *
+     * @return number of records saved
+     */
+    public int flush() {
+        long start = System.nanoTime();
+        beforeFlush.run();
+        int count = 0;
+        Iterator<String> it = dirty.iterator();
+        while (it.hasNext() && count < batchSize) {
+            String id = it.next();
+            it.remove();
+            if (save(id)) {
+                count++;
+            }
+        }
+        batches++;
+        if (!dirty.isEmpty()) {
+            backloggedBatches++;
+            checkBacklog();
+        } else {
+            warned = false;
+        }
+        flushTimer.record(System.nanoTime() - start);
+        return count;
+    }
+
+    /**
+     * Save every dirty island now.
+     *
+     * @return number of records saved
+     */
+    public int flushAll() {
+        long start = System.nanoTime();
+        beforeFlush.run();
+        int count = 0;
+        for (String id : dirty) {
+            if (save(id)) {
+                count++;
+            }
+        }
+        dirty.clear();
+        flushTimer.record(System.nanoTime() - start);
+        return count;
+    }
+
+    /**
+     * Save a record now rather than in a batch, e.g. because it is leaving memory or has
+     * been replaced. The save is tracked like any other, so {@link #flushAllAsync()}
+     * waits for it too.
+     *
+     * @return a future completing when the save has
+     */
+    public CompletableFuture<Boolean> saveNow(IslandBlockCount ibc) {
+        dirty.remove(ibc.getUniqueId());
+        return save(ibc);
+    }
+
+    /**
+     * Save every dirty island now.
+     *
+     * @return a future completing when these and any earlier saves have completed
+     */
+    public CompletableFuture<Void> flushAllAsync() {
+        flushAll();
+        return CompletableFuture.allOf(inFlight.toArray(CompletableFuture[]::new));
+    }
+
+    private boolean save(String id) {
+        IslandBlockCount ibc = lookup.apply(id);
+        if (ibc == null) {
+            return false;
+        }
+        save(ibc);
+        return true;
+    }
+
+    private CompletableFuture<Boolean> save(IslandBlockCount ibc) {
+        CompletableFuture<Boolean> future = handler.saveObjectAsync(ibc);
+        if (future == null) {
+            future = CompletableFuture.completedFuture(Boolean.FALSE);
+        } else if (!future.isDone()) {
+            CompletableFuture<Boolean> f = future;
+            inFlight.add(f);
+            f.whenComplete((r, e) -> Bukkit.getScheduler().runTask(BentoBox.getInstance(), () -> inFlight.remove(f)));
+        }
+        // Any change after this point marks the record changed and dirty again
+        ibc.setChanged(false);
+        saved++;
+        return future;
+    }
+
+    private void checkBacklog() {
+        if (!warned && dirty.size() > batchSize * BACKLOG_WARN_BATCHES) {
+            warned = true;
+            addon.logWarning("Island count saves are falling behind: " + dirty.size()
+                    + " islands waiting. Consider a larger write-behind batch-size or shorter interval.");
+        }
+    }
+
+    /**
+     * @return number of islands waiting to be saved
+     */
+    public int getBacklog() {
+        return dirty.size();
+    }
+
+    /**
+     * @return highest backlog seen since startup
+     */
+    public int getPeakBacklog() {
+        return peakBacklog;
+    }
+
+    /**
+     * @return records saved since startup
+     */
+    public long getSaved() {
+        return saved;
+    }
+
+    /**
+     * @return flushes run since startup
+     */
+    public long getBatches() {
+        return batches;
+    }
+
+    /**
+     * @return flushes that could not clear the backlog
+     */
+    public long getBackloggedBatches() {
+        return backloggedBatches;
+    }
+}
@@ -0,0 +1,120 @@
+package world.bentobox.limits.listeners;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.WorldUnloadEvent;
+
+import world.bentobox.bentobox.api.events.island.IslandCreatedEvent;
+import world.bentobox.bentobox.api.events.island.IslandDeletedEvent;
+import world.bentobox.bentobox.api.events.island.IslandProtectionRangeChangeEvent;
+import world.bentobox.bentobox.api.events.island.IslandResettedEvent;
+import world.bentobox.bentobox.database.objects.Island;
+import world.bentobox.limits.Limits;
+import world.bentobox.limits.objects.ChunkHistogram;
+
+/**
+ * Caches which island, if any, each chunk belongs to, so that frequent events (redstone,
+ * growth, fluids) skip the island grid lookup.
+ *
+ * <p>A chunk is cached only if its four corner blocks resolve to the same island, or to
+ * no island. Island spaces are at least a chunk wide, so then the whole chunk does. Any
+ * island being created, reset, deleted or resized clears the cache. Main thread only.
+ */
+public class IslandLookupCache implements Listener {
+
+    /** The cache is cleared when it grows past this many chunks. */
+    private static final int MAX_CHUNKS = 1 << 16;
+    /** Cached id of "no island". */
+    private static final String NONE = "";
+
+    private final Limits addon;
+    private final Map<World, Map<Long, String>> byWorld = new HashMap<>();
+    private int size;
+
+    public IslandLookupCache(Limits addon) {
+        this.addon = addon;
+    }
+
+    /**
+     * Same as {@code getIslands().getIslandAt(location)}.
+     */
+    public Optional<Island> getIslandAt(Location location) {
+        World world = location.getWorld();
+        if (world == null) {
+            return Optional.empty();
+        }
+        int cx = location.getBlockX() >> 4;
+        int cz = location.getBlockZ() >> 4;
+        long key = ChunkHistogram.chunkKey(cx, cz);
+        Map<Long, String> chunks = byWorld.computeIfAbsent(world, w -> new HashMap<>());
+        String id = chunks.get(key);
+        if (id != null) {
+            return id.isEmpty() ? Optional.empty() : addon.getIslands().getIslandById(id);
+        }
+        Optional<Island> island = addon.getIslands().getIslandAt(location);
+        String resolved = island.map(Island::getUniqueId).orElse(NONE);
+        if (wholeChunk(world, cx, cz, resolved)) {
+            if (size >= MAX_CHUNKS) {
+                clear();
+                chunks = byWorld.computeIfAbsent(world, w -> new HashMap<>());
+            }
+            chunks.put(key, resolved);
+            size++;
+        }
+        return island;
+    }
+
+    private boolean wholeChunk(World world, int cx, int cz, String id) {
+        int x = cx << 4;
+        int z = cz << 4;
+        return id.equals(idAt(world, x, z)) && id.equals(idAt(world, x + 15, z))
+                && id.equals(idAt(world, x, z + 15)) && id.equals(idAt(world, x + 15, z + 15));
+    }
+
+    private String idAt(World world, int x, int z) {
+        return addon.getIslands().getIslandAt(new Location(world, x, 0, z)).map(Island::getUniqueId).orElse(NONE);
+    }
+
+    /**
+     * Forget every cached chunk.
+     */
+    public void clear() {
+        byWorld.clear();
+        size = 0;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onIslandCreated(IslandCreatedEvent e) {
+        clear();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onIslandResetted(IslandResettedEvent e) {
+        clear();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onIslandDeleted(IslandDeletedEvent e) {
+        clear();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onIslandRangeChange(IslandProtectionRangeChangeEvent e) {
+        clear();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldUnload(WorldUnloadEvent e) {
+        Map<Long, String> chunks = byWorld.remove(e.getWorld());
+        if (chunks != null) {
+            size -= chunks.size();
+        }
+    }
+}
@@ -1,10 +1,13 @@
 package world.bentobox.limits.listeners;
 
-import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.bukkit.Bukkit;
 import org.bukkit.Material;
@@ -19,6 +22,7 @@ import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.permissions.PermissionAttachmentInfo;
 import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
 
 import world.bentobox.bentobox.api.addons.GameModeAddon;
 import world.bentobox.bentobox.api.events.island.IslandEvent;
@@ -50,11 +54,43 @@ import world.bentobox.limits.objects.IslandBlockCount;
  *       {@code end}.</li>
  * </ul>
  *
+ * <p>Players can carry hundreds of limit permissions, so each permission string is
+ * parsed and resolved once and the result kept; materials, entity types and groups are
+ * looked up by name in hash indexes rather than by scanning every value.
+ *
+ * <p>Placeholders and the limits panel call {@link #refreshPerms(Island, GameModeAddon)},
+ * which only recomputes an island's permission limits when a fingerprint of the
+ * contributing players' limit permissions has changed.
+ *
  * @author tastybento
  */
 public class JoinListener implements Listener {
 
+    /** Parsed permissions kept before the cache is cleared and refilled. */
+    private static final int MAX_PARSED_PERMS = 10_000;
+    /** Milliseconds between permission fingerprint checks of one island. */
+    private static final long PERM_CHECK_INTERVAL = 1000L;
+    /** Upper-case name to value. */
+    private static final Map<String, Material> MATERIALS = new HashMap<>();
+    private static final Map<String, EntityType> ENTITY_TYPES = new HashMap<>();
+    static {
+        for (Material m : Material.values()) {
+            MATERIALS.putIfAbsent(m.name(), m);
+        }
+        for (EntityType t : EntityType.values()) {
+            ENTITY_TYPES.putIfAbsent(t.name(), t);
+        }
+    }
+
     private final Limits addon;
+    /** Parse result by permission string. */
+    private final Map<String, ParsedPerm> parsedPerms = new HashMap<>();
+    /** Settings the parsed permissions' groups were resolved against. */
+    private @Nullable Settings parsedWith;
+    /** Fingerprint of the permissions each island's limits were computed from, by island id. */
+    private final Map<String, PermSnapshot> permSnapshots = new HashMap<>();
+    /** Ids of islands with a refresh handed over to the main thread. */
+    private final Set<String> refreshQueued = ConcurrentHashMap.newKeySet();
 
     public JoinListener(Limits addon) {
         this.addon = addon;
@@ -80,6 +116,8 @@ public class JoinListener implements Listener {
      * {@link #checkPerms}, nothing is cleared first.
      */
     public void mergePerms(Player player, String permissionPrefix, String islandId, String gameMode) {
+        // The limits no longer match any recorded fingerprint
+        permSnapshots.remove(islandId);
         IslandBlockCount islandBlockCount = addon.getBlockLimitListener().getIsland(islandId);
         boolean bannerLogged = false;
         for (PermissionAttachmentInfo permissionInfo : player.getEffectivePermissions()) {
@@ -98,26 +136,109 @@ public class JoinListener implements Listener {
         }
     }
 
-    private IslandBlockCount applyOnePerm(Player player, PermissionAttachmentInfo permissionInfo,
-            String permissionPrefix, String islandId, String gameMode, IslandBlockCount current) {
-        ParsedPerm parsed = parsePerm(permissionInfo, player.getName(), permissionPrefix);
-        if (parsed == null) return current;
+    /**
+     * Makes sure the island's permission limits reflect the current permissions of its
+     * owner and, with {@code apply-member-limit-perms}, its online members. They are
+     * recomputed, and the island saved, only if those permissions have changed since
+     * they were applied; otherwise this reads a fingerprint of them, at most once a
+     * second. Nothing changes while the owner is offline.
+     *
+     * <p>Placeholders can be requested off the main thread; the refresh is then run on
+     * the next tick instead, since permission checks and the caches here are main-thread
+     * only.
+     *
+     * @param island island
+     * @param gameMode game mode of the island
+     */
+    public void refreshPerms(Island island, GameModeAddon gameMode) {
+        if (!Bukkit.isPrimaryThread()) {
+            String id = island.getUniqueId();
+            if (refreshQueued.add(id)) {
+                Bukkit.getScheduler().runTask(addon.getPlugin(), () -> {
+                    refreshQueued.remove(id);
+                    refreshPerms(island, gameMode);
+                });
+            }
+            return;
+        }
+        UUID ownerUUID = island.getOwner();
+        Player owner = ownerUUID == null ? null : Bukkit.getPlayer(ownerUUID);
+        if (owner == null) {
+            return;
+        }
+        String islandId = island.getUniqueId();
+        long now = System.currentTimeMillis();
+        PermSnapshot snapshot = permSnapshots.get(islandId);
+        if (snapshot != null && now - snapshot.checked() < PERM_CHECK_INTERVAL) {
+            return;
+        }
+        String permissionPrefix = gameMode.getPermissionPrefix() + "island.limit.";
+        long fingerprint = fingerprint(island, owner, permissionPrefix);
+        if (snapshot == null || snapshot.fingerprint() != fingerprint) {
+            String gameModeName = gameMode.getDescription().getName();
+            checkPerms(owner, permissionPrefix, islandId, gameModeName);
+            mergeOnlineMemberPerms(island, permissionPrefix, gameModeName);
+        }
+        permSnapshots.put(islandId, new PermSnapshot(fingerprint, now));
+    }
 
-        // Try to match the key part to an EntityType, Material, or EntityGroup
-        EntityType entityType = matchEntityType(parsed.key);
-        Material material = matchMaterial(parsed.key);
-        EntityGroup entityGroup = matchEntityGroup(parsed.key);
+    /**
+     * @return a hash of the limit permissions of the players whose permissions apply to
+     *         the island, independent of the order they are listed in
+     */
+    private long fingerprint(Island island, Player owner, String permissionPrefix) {
+        long fingerprint = fingerprint(owner, permissionPrefix);
+        if (addon.getSettings().isApplyMemberLimitPerms()) {
+            for (UUID memberUUID : island.getMemberSet()) {
+                Player member = memberUUID.equals(owner.getUniqueId()) ? null : Bukkit.getPlayer(memberUUID);
+                if (member != null) {
+                    fingerprint += fingerprint(member, permissionPrefix);
+                }
+            }
+        }
+        return fingerprint;
+    }
 
-        if (entityGroup == null && entityType == null && material == null) {
-            logError(player.getName(), permissionInfo.getPermission(),
-                    parsed.key.toUpperCase(Locale.ENGLISH) + " is not a valid material or entity type/group.");
+    private static long fingerprint(Player player, String permissionPrefix) {
+        long fingerprint = mix(player.getUniqueId().hashCode());
+        for (PermissionAttachmentInfo permissionInfo : player.getEffectivePermissions()) {
+            if (permissionInfo.getValue() && permissionInfo.getPermission().startsWith(permissionPrefix)) {
+                fingerprint += mix(permissionInfo.getPermission().hashCode() ^ player.getUniqueId().hashCode());
+            }
+        }
+        return fingerprint;
+    }
+
+    private static long mix(long h) {
+        h *= 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 32);
+    }
+
+    private IslandBlockCount applyOnePerm(Player player, PermissionAttachmentInfo permissionInfo,
+            String permissionPrefix, String islandId, String gameMode, IslandBlockCount current) {
+        String permission = permissionInfo.getPermission();
+        if (parsedWith != addon.getSettings()) {
+            // Reloaded: groups resolved against the old settings are stale
+            parsedPerms.clear();
+            parsedWith = addon.getSettings();
+        }
+        ParsedPerm parsed = parsedPerms.get(permission);
+        if (parsed == null) {
+            if (parsedPerms.size() >= MAX_PARSED_PERMS) {
+                parsedPerms.clear();
+            }
+            parsed = parsePerm(permission, permissionPrefix);
+            parsedPerms.put(permission, parsed);
+        }
+        if (parsed.error() != null) {
+            logError(player.getName(), permission, parsed.error());
             return current;
         }
 
         IslandBlockCount ibc = current != null ? current : new IslandBlockCount(islandId, gameMode);
 
-        LimitsPermCheckEvent limitsPermCheckEvent = new LimitsPermCheckEvent(player, islandId, ibc, entityGroup,
-                entityType, material, parsed.value);
+        LimitsPermCheckEvent limitsPermCheckEvent = new LimitsPermCheckEvent(player, islandId, ibc,
+                parsed.entityGroup(), parsed.entityType(), parsed.material(), parsed.value());
         Bukkit.getPluginManager().callEvent(limitsPermCheckEvent);
         if (limitsPermCheckEvent.isCancelled()) {
             addon.log("Permissions not set because another addon/plugin canceled setting.");
@@ -125,51 +246,56 @@ public class JoinListener implements Listener {
         }
         IslandBlockCount eventIbc = limitsPermCheckEvent.getIbc();
         IslandBlockCount finalIbc = eventIbc != null ? eventIbc : new IslandBlockCount(islandId, gameMode);
-        applyLimit(finalIbc, parsed.envs, limitsPermCheckEvent);
+        applyLimit(finalIbc, parsed.envs(), limitsPermCheckEvent);
         return finalIbc;
     }
 
     /**
-     * Parses a limit permission. Returns {@code null} if invalid (and logs).
+     * Parses a limit permission and resolves its key.
+     *
+     * @return the parsed permission, or one holding the reason it is invalid
      */
-    private ParsedPerm parsePerm(PermissionAttachmentInfo info, String playerName, String permissionPrefix) {
-        String permission = info.getPermission();
+    private ParsedPerm parsePerm(String permission, String permissionPrefix) {
         if (permission.contains(permissionPrefix + "*")) {
-            logError(playerName, permission, "wildcards are not allowed.");
-            return null;
+            return ParsedPerm.invalid("wildcards are not allowed.");
         }
         String[] parts = permission.split("\\.");
         // 5-segment: <gm>.island.limit.<KEY>.<N>
         // 6-segment: <gm>.island.limit.<ENV>.<KEY>.<N>
         if (parts.length != 5 && parts.length != 6) {
-            logError(playerName, permission, "format must be '" + permissionPrefix + "[ENV.]KEY.NUMBER' "
+            return ParsedPerm.invalid("format must be '" + permissionPrefix + "[ENV.]KEY.NUMBER' "
                     + "where ENV is overworld|nether|end and KEY is a material, entity type, or group name.");
-            return null;
         }
         String numberPart = parts[parts.length - 1];
         int value;
         try {
             value = Integer.parseInt(numberPart);
         } catch (NumberFormatException e) {
-            logError(playerName, permission, "the last part MUST be an integer!");
-            return null;
+            return ParsedPerm.invalid("the last part MUST be an integer!");
         }
-        ParsedPerm out = new ParsedPerm();
-        out.value = value;
+        String key;
+        List<Environment> envs;
         if (parts.length == 5) {
-            out.key = parts[3];
-            out.envs = Settings.ENVIRONMENTS;
+            key = parts[3];
+            envs = Settings.ENVIRONMENTS;
         } else {
             Environment env = parseEnv(parts[3]);
             if (env == null) {
-                logError(playerName, permission, "'" + parts[3]
+                return ParsedPerm.invalid("'" + parts[3]
                         + "' is not a recognised environment (use overworld, nether, or end).");
-                return null;
             }
-            out.key = parts[4];
-            out.envs = List.of(env);
+            key = parts[4];
+            envs = List.of(env);
         }
-        return out;
+        // Try to match the key part to an EntityType, Material, or EntityGroup
+        EntityType entityType = matchEntityType(key);
+        Material material = matchMaterial(key);
+        EntityGroup entityGroup = matchEntityGroup(key);
+        if (entityGroup == null && entityType == null && material == null) {
+            return ParsedPerm.invalid(key.toUpperCase(Locale.ENGLISH)
+                    + " is not a valid material or entity type/group.");
+        }
+        return new ParsedPerm(envs, value, entityType, material, entityGroup, null);
     }
 
     private static Environment parseEnv(String token) {
@@ -181,17 +307,16 @@ public class JoinListener implements Listener {
         };
     }
 
-    private EntityType matchEntityType(String key) {
-        return Arrays.stream(EntityType.values()).filter(t -> t.name().equalsIgnoreCase(key)).findFirst().orElse(null);
+    private static EntityType matchEntityType(String key) {
+        return ENTITY_TYPES.get(key.toUpperCase(Locale.ROOT));
     }
 
-    private Material matchMaterial(String key) {
-        return Arrays.stream(Material.values()).filter(m -> m.name().equalsIgnoreCase(key)).findFirst().orElse(null);
+    private static Material matchMaterial(String key) {
+        return MATERIALS.get(key.toUpperCase(Locale.ROOT));
     }
 
     private EntityGroup matchEntityGroup(String key) {
-        return addon.getSettings().getGroupLimitDefinitions().stream()
-                .filter(group -> group.getName().equalsIgnoreCase(key)).findFirst().orElse(null);
+        return addon.getSettings().getEntityGroupIgnoreCase(key);
     }
 
     private void applyLimit(@NonNull IslandBlockCount ibc, List<Environment> envs, @NonNull LimitsPermCheckEvent event) {
@@ -207,12 +332,14 @@ public class JoinListener implements Listener {
                 logIfEnabled("Setting group limit " + entityGroup.getName() + " in " + env + " to " + newLimit);
             }
         } else if (entityType != null && material == null) {
+            addon.registerLimitPlaceholders(entityType);
             for (Environment env : envs) {
                 int newLimit = Math.max(ibc.getEntityLimit(env, entityType), limitValue);
                 ibc.setEntityLimit(env, entityType, newLimit);
                 logIfEnabled("Setting entity limit " + entityType + " in " + env + " to " + newLimit);
             }
         } else if (material != null && entityType == null) {
+            addon.registerLimitPlaceholders(material.getKey());
             for (Environment env : envs) {
                 int newLimit = Math.max(ibc.getBlockLimit(env, material.getKey()), limitValue);
                 ibc.setBlockLimit(env, material.getKey(), newLimit);
@@ -226,12 +353,14 @@ public class JoinListener implements Listener {
     private void applyAmbiguousLimit(@NonNull IslandBlockCount ibc, List<Environment> envs, EntityType entityType,
             Material material, int limitValue) {
         if (material != null && material.isBlock()) {
+            addon.registerLimitPlaceholders(material.getKey());
             for (Environment env : envs) {
                 int newLimit = Math.max(ibc.getBlockLimit(env, material.getKey()), limitValue);
                 ibc.setBlockLimit(env, material.getKey(), newLimit);
                 logIfEnabled("Setting block limit " + material + " in " + env + " to " + newLimit);
             }
         } else if (entityType != null) {
+            addon.registerLimitPlaceholders(entityType);
             for (Environment env : envs) {
                 int newLimit = Math.max(ibc.getEntityLimit(env, entityType), limitValue);
                 ibc.setEntityLimit(env, entityType, newLimit);
@@ -334,6 +463,7 @@ public class JoinListener implements Listener {
     }
 
     private void removeOwnerPerms(Island island) {
+        permSnapshots.remove(island.getUniqueId());
         World world = island.getWorld();
         if (addon.inGameModeWorld(world)) {
             IslandBlockCount islandBlockCount = addon.getBlockLimitListener().getIsland(island.getUniqueId());
@@ -361,9 +491,21 @@ public class JoinListener implements Listener {
         }
     }
 
-    private static class ParsedPerm {
-        String key;
-        int value;
-        List<Environment> envs;
+    /**
+     * Permission fingerprint an island's limits were computed from, and when it was last
+     * checked.
+     */
+    private record PermSnapshot(long fingerprint, long checked) {
+    }
+
+    /**
+     * A limit permission with its key resolved, or the reason it is invalid.
+     */
+    private record ParsedPerm(List<Environment> envs, int value, @Nullable EntityType entityType,
+            @Nullable Material material, @Nullable EntityGroup entityGroup, @Nullable String error) {
+
+        static ParsedPerm invalid(String error) {
+            return new ParsedPerm(List.of(), 0, null, null, null, error);
+        }
     }
 }
@@ -0,0 +1,162 @@
+package world.bentobox.limits.objects;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.bukkit.NamespacedKey;
+import org.bukkit.World.Environment;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import world.bentobox.limits.KeyIndex;
+
+/**
+ * Gson {@link TypeAdapter} for {@code Map<Environment, Map<Long, ChunkHistogram>>}.
+ * Chunks are written as {@code "x,z": {"stamp": n, "changed": true, "counts": {"namespace:key": n}}},
+ * where {@code changed} is left out when false.
+ * Materials are stored by key, not ordinal, so saved counts survive server updates.
+ */
+public class ChunkCountsAdapter extends TypeAdapter<Map<Environment, Map<Long, ChunkHistogram>>> {
+
+    private static final String STAMP = "stamp";
+    private static final String CHANGED = "changed";
+    private static final String COUNTS = "counts";
+
+    @Override
+    public void write(JsonWriter out, Map<Environment, Map<Long, ChunkHistogram>> value) throws IOException {
+        if (value == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        for (Map.Entry<Environment, Map<Long, ChunkHistogram>> envEntry : value.entrySet()) {
+            if (envEntry.getKey() == null || envEntry.getValue() == null || envEntry.getValue().isEmpty()) {
+                continue;
+            }
+            out.name(envEntry.getKey().name());
+            out.beginObject();
+            for (Map.Entry<Long, ChunkHistogram> entry : envEntry.getValue().entrySet()) {
+                long key = entry.getKey();
+                ChunkHistogram h = entry.getValue();
+                out.name(ChunkHistogram.chunkX(key) + "," + ChunkHistogram.chunkZ(key));
+                out.beginObject();
+                out.name(STAMP).value(h.getStamp());
+                if (h.isChanged()) {
+                    out.name(CHANGED).value(true);
+                }
+                out.name(COUNTS).beginObject();
+                for (int i = 0; i < h.size(); i++) {
+                    out.name(KeyIndex.key(h.ordinalAt(i)).toString()).value(h.countAt(i));
+                }
+                out.endObject();
+                out.endObject();
+            }
+            out.endObject();
+        }
+        out.endObject();
+    }
+
+    @Override
+    public Map<Environment, Map<Long, ChunkHistogram>> read(JsonReader in) throws IOException {
+        Map<Environment, Map<Long, ChunkHistogram>> result = new EnumMap<>(Environment.class);
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return result;
+        }
+        in.beginObject();
+        while (in.hasNext()) {
+            Environment env = parseEnvironment(in.nextName());
+            Map<Long, ChunkHistogram> chunks = readChunks(in);
+            if (env != null && !chunks.isEmpty()) {
+                result.put(env, chunks);
+            }
+        }
+        in.endObject();
+        return result;
+    }
+
+    private static Environment parseEnvironment(String raw) {
+        try {
+            return Environment.valueOf(raw.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static Map<Long, ChunkHistogram> readChunks(JsonReader in) throws IOException {
+        Map<Long, ChunkHistogram> chunks = new HashMap<>();
+        in.beginObject();
+        while (in.hasNext()) {
+            Long key = parseChunkKey(in.nextName());
+            ChunkHistogram h = readHistogram(in);
+            if (key != null) {
+                chunks.put(key, h);
+            }
+        }
+        in.endObject();
+        return chunks;
+    }
+
+    private static Long parseChunkKey(String raw) {
+        int comma = raw.indexOf(',');
+        if (comma < 0) return null;
+        try {
+            return ChunkHistogram.chunkKey(Integer.parseInt(raw.substring(0, comma)),
+                    Integer.parseInt(raw.substring(comma + 1)));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static ChunkHistogram readHistogram(JsonReader in) throws IOException {
+        ChunkHistogram h = new ChunkHistogram();
+        boolean complete = true;
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (STAMP.equals(name)) {
+                h.setStamp(in.nextLong());
+            } else if (CHANGED.equals(name)) {
+                if (in.nextBoolean()) {
+                    h.invalidate();
+                }
+            } else if (COUNTS.equals(name)) {
+                complete = readCounts(in, h);
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        if (!complete) {
+            // A material this server does not have; what was counted is no longer known
+            h.setStamp(0);
+        }
+        return h;
+    }
+
+    /**
+     * @return false if a material was skipped because this server does not have it
+     */
+    private static boolean readCounts(JsonReader in, ChunkHistogram h) throws IOException {
+        boolean complete = true;
+        in.beginObject();
+        while (in.hasNext()) {
+            NamespacedKey key = NamespacedKey.fromString(in.nextName());
+            int count = in.nextInt();
+            int ordinal = key == null ? KeyIndex.NONE : KeyIndex.ordinal(key);
+            if (ordinal == KeyIndex.NONE) {
+                complete = false;
+            } else {
+                h.add(ordinal, count);
+            }
+        }
+        in.endObject();
+        return complete;
+    }
+}
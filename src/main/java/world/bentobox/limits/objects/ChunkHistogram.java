@@ -0,0 +1,174 @@
+package world.bentobox.limits.objects;
+
+import java.util.Arrays;
+
+import org.bukkit.NamespacedKey;
+
+import com.google.common.collect.Multiset;
+
+import world.bentobox.limits.KeyIndex;
+
+/**
+ * Counts of tracked blocks in one chunk of one island environment.
+ *
+ * <p>A chunk usually holds only a handful of tracked materials, so the counts are two
+ * small parallel arrays of material ordinals and counts, searched linearly. Only
+ * vanilla materials are held; custom blocks never show up in a chunk scan.
+ *
+ * <p>Histograms are the baseline for region recounts: a rescanned chunk's new counts
+ * minus its histogram is the correction to apply to the island totals.
+ *
+ * <p>Each histogram carries a stamp identifying what the scan counted (the tracked
+ * materials). A region recount only corrects from a histogram whose stamp matches the
+ * current one. Block changes in the chunk keep the counts in step and mark them
+ * changed; a recount reuses a histogram instead of rescanning only if it is unchanged
+ * and its stamp matches.
+ */
+public class ChunkHistogram {
+
+    private int[] ordinals = new int[0];
+    private int[] counts = new int[0];
+    private int size;
+    private long stamp;
+    private boolean changed;
+
+    /**
+     * @return key for a chunk's coordinates
+     */
+    public static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @return chunk x of a key made by {@link #chunkKey}
+     */
+    public static int chunkX(long key) {
+        return (int) (key >> 32);
+    }
+
+    /**
+     * @return chunk z of a key made by {@link #chunkKey}
+     */
+    public static int chunkZ(long key) {
+        return (int) key;
+    }
+
+    /**
+     * @param source block counts; keys without a material ordinal are skipped
+     * @return a histogram of the counts
+     */
+    public static ChunkHistogram of(Multiset<NamespacedKey> source) {
+        ChunkHistogram h = new ChunkHistogram();
+        for (Multiset.Entry<NamespacedKey> e : source.entrySet()) {
+            int ordinal = KeyIndex.ordinal(e.getElement());
+            if (ordinal != KeyIndex.NONE) {
+                h.add(ordinal, e.getCount());
+            }
+        }
+        return h;
+    }
+
+    /**
+     * @return an independent copy of these counts, stamp and changed flag
+     */
+    public ChunkHistogram copy() {
+        ChunkHistogram h = new ChunkHistogram();
+        h.ordinals = Arrays.copyOf(ordinals, size);
+        h.counts = Arrays.copyOf(counts, size);
+        h.size = size;
+        h.stamp = stamp;
+        h.changed = changed;
+        return h;
+    }
+
+    /**
+     * @return the count for this material ordinal, 0 if absent
+     */
+    public int get(int ordinal) {
+        int i = indexOf(ordinal);
+        return i < 0 ? 0 : counts[i];
+    }
+
+    /**
+     * Add to the count for this material ordinal. Counts never go below zero.
+     */
+    public void add(int ordinal, int delta) {
+        int i = indexOf(ordinal);
+        if (i < 0) {
+            if (delta <= 0) {
+                return;
+            }
+            if (size == ordinals.length) {
+                int capacity = Math.max(4, size * 2);
+                ordinals = Arrays.copyOf(ordinals, capacity);
+                counts = Arrays.copyOf(counts, capacity);
+            }
+            ordinals[size] = ordinal;
+            counts[size++] = delta;
+            return;
+        }
+        counts[i] += delta;
+        if (counts[i] <= 0) {
+            // Move the last entry into the gap
+            size--;
+            ordinals[i] = ordinals[size];
+            counts[i] = counts[size];
+        }
+    }
+
+    /**
+     * @return stamp of the scan that made these counts, 0 if unknown
+     */
+    public long getStamp() {
+        return stamp;
+    }
+
+    public void setStamp(long stamp) {
+        this.stamp = stamp;
+    }
+
+    /**
+     * @return true if the counts may differ from what a scan would find now
+     */
+    public boolean isChanged() {
+        return changed;
+    }
+
+    /**
+     * Mark the counts as possibly out of date, so the next recount rescans the chunk.
+     * The stamp is kept: the counts are still those of the same materials.
+     */
+    public void invalidate() {
+        changed = true;
+    }
+
+    /**
+     * @return number of materials with a count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return material ordinal of entry {@code i}, for {@code 0 <= i < size()}
+     */
+    public int ordinalAt(int i) {
+        return ordinals[i];
+    }
+
+    /**
+     * @return count of entry {@code i}, for {@code 0 <= i < size()}
+     */
+    public int countAt(int i) {
+        return counts[i];
+    }
+
+    private int indexOf(int ordinal) {
+        for (int i = 0; i < size; i++) {
+            if (ordinals[i] == ordinal) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -7,12 +7,14 @@ import java.util.Map;
 import org.bukkit.NamespacedKey;
 import org.bukkit.World.Environment;
 import org.bukkit.entity.EntityType;
+import org.eclipse.jdt.annotation.Nullable;
 
 import com.google.gson.annotations.Expose;
 import com.google.gson.annotations.JsonAdapter;
 
 import world.bentobox.bentobox.database.objects.DataObject;
 import world.bentobox.bentobox.database.objects.Table;
+import world.bentobox.limits.KeyIndex;
 
 /**
  * Per-island, per-environment block and entity tracking.
@@ -22,6 +24,9 @@ import world.bentobox.bentobox.database.objects.Table;
  * field (no environment); on first load that legacy data is migrated into the
  * {@link Environment#NORMAL} slot.
  *
+ * <p>Block counts change on every place and break, so each env's counts are a
+ * {@link KeyCountMap} of primitive ints rather than boxed map values.
+ *
  * @author tastybento
  */
 @Table(name = "IslandBlockCount")
@@ -88,8 +93,34 @@ public class IslandBlockCount implements DataObject {
     @Expose
     private String uniqueId;
 
+    /** Sequence number of the last count-journal change included in this record. */
+    @Expose
+    private long journalSeq;
+
+    /**
+     * Tracked block counts per scanned chunk; the baseline for region recounts and a
+     * recount cache. Stored as {@link IslandChunkCounts}; only read from records saved
+     * before they were moved there.
+     */
+    @Expose(serialize = false)
+    @JsonAdapter(ChunkCountsAdapter.class)
+    private Map<Environment, Map<Long, ChunkHistogram>> envChunkCounts = new EnumMap<>(Environment.class);
+
+    /** {@link IslandChunkCounts#getSeq()} of the stored chunk counts that match this record, 0 if none. */
+    @Expose
+    private long chunkCountsSeq;
+
+    /** True if the chunk counts have changed since they were stored. */
+    private boolean chunkCountsUnsaved;
+
     private boolean changed;
     private boolean migrated;
+    /** True once every env's block counts are held in a {@link KeyCountMap}. */
+    private boolean countsPacked;
+    /** See {@link #getReachedVersion()}. */
+    private int reachedVersion;
+    /** Block limits whose crossing changes {@link #getReachedVersion()}, per environment. */
+    private Map<Environment, Map<NamespacedKey, Integer>> watchedBlockLimits;
 
     /**
      * Required by Gson.
@@ -152,39 +183,84 @@ public class IslandBlockCount implements DataObject {
      * Block counts
      * ========================================================================= */
 
+    /**
+     * Block counts are held as {@link KeyCountMap}s; maps read by Gson or migrated from
+     * legacy data are repacked on first access.
+     */
     public Map<Environment, Map<NamespacedKey, Integer>> getAllBlockCounts() {
         migrateIfNeeded();
         if (envBlockCounts == null) envBlockCounts = new EnumMap<>(Environment.class);
+        if (!countsPacked) {
+            countsPacked = true;
+            envBlockCounts.replaceAll((env, m) -> m instanceof KeyCountMap ? m : new KeyCountMap(m));
+        }
         return envBlockCounts;
     }
 
     public Map<NamespacedKey, Integer> getBlockCounts(Environment env) {
-        return getAllBlockCounts().computeIfAbsent(env, e -> new HashMap<>());
+        return counts(env);
+    }
+
+    private KeyCountMap counts(Environment env) {
+        Map<NamespacedKey, Integer> m = getAllBlockCounts().get(env);
+        if (m instanceof KeyCountMap counts) {
+            return counts;
+        }
+        KeyCountMap counts = m == null ? new KeyCountMap() : new KeyCountMap(m);
+        envBlockCounts.put(env, counts);
+        return counts;
     }
 
     public int getBlockCount(Environment env, NamespacedKey key) {
-        return getBlockCounts(env).getOrDefault(key, 0);
+        return counts(env).getInt(key);
     }
 
     public int getBlockCount(NamespacedKey key) {
         int total = 0;
         for (Map<NamespacedKey, Integer> m : getAllBlockCounts().values()) {
-            total += m.getOrDefault(key, 0);
+            total += m instanceof KeyCountMap counts ? counts.getInt(key) : m.getOrDefault(key, 0);
         }
         return total;
     }
 
     public void add(Environment env, NamespacedKey material) {
-        getBlockCounts(env).merge(material, 1, Integer::sum);
-        setChanged();
+        counts(env).increment(material);
+        blockCountChanged(env, material, 1);
     }
 
-    public void remove(Environment env, NamespacedKey material) {
-        Map<NamespacedKey, Integer> m = getBlockCounts(env);
-        if (m.containsKey(material)) {
-            m.computeIfPresent(material, (k, count) -> count - 1 > 0 ? count - 1 : null);
-            setChanged();
+    /**
+     * Add several blocks of one material at once.
+     */
+    public void add(Environment env, NamespacedKey material, int amount) {
+        if (amount > 0) {
+            KeyCountMap counts = counts(env);
+            counts.setInt(material, counts.getInt(material) + amount);
+            blockCountChanged(env, material, amount);
+        }
+    }
+
+    /**
+     * @return true if there was a count to remove
+     */
+    public boolean remove(Environment env, NamespacedKey material) {
+        if (counts(env).decrement(material)) {
+            blockCountChanged(env, material, -1);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Remove several blocks of one material at once; the count never goes below zero.
+     *
+     * @return how many were removed
+     */
+    public int remove(Environment env, NamespacedKey material, int amount) {
+        int removed = counts(env).subtract(material, amount);
+        if (removed > 0) {
+            blockCountChanged(env, material, -removed);
         }
+        return removed;
     }
 
     public void clearAllBlockCounts() {
@@ -192,6 +268,152 @@ public class IslandBlockCount implements DataObject {
         setChanged();
     }
 
+    /**
+     * Swap in new block and entity counts for every environment in one step, e.g. the
+     * tables a recount built from its results. Custom-namespace block counts are never
+     * scanned, so the current ones are copied into {@code blocks} first.
+     *
+     * @param blocks new block counts per environment; taken over by this record
+     * @param entities new entity counts per environment; taken over by this record
+     */
+    public void replaceCounts(Map<Environment, KeyCountMap> blocks,
+            Map<Environment, Map<EntityType, Integer>> entities) {
+        Map<Environment, Map<NamespacedKey, Integer>> current = getAllBlockCounts();
+        current.forEach((env, old) -> old.forEach((key, count) -> {
+            if (!NamespacedKey.MINECRAFT.equals(key.getNamespace())) {
+                blocks.computeIfAbsent(env, e -> new KeyCountMap()).setInt(key, count);
+            }
+        }));
+        current.clear();
+        current.putAll(blocks);
+        Map<Environment, Map<EntityType, Integer>> entityCounts = getAllEntityCounts();
+        entityCounts.clear();
+        entityCounts.putAll(entities);
+        setChanged();
+    }
+
+    /* =========================================================================
+     * Per-chunk counts
+     * ========================================================================= */
+
+    /**
+     * @return the counts recorded for this chunk by the last scan, kept current by block
+     *         changes since, or null if the chunk has not been scanned
+     */
+    @Nullable
+    public ChunkHistogram getChunkCounts(Environment env, long chunkKey) {
+        if (envChunkCounts == null) return null;
+        Map<Long, ChunkHistogram> m = envChunkCounts.get(env);
+        return m == null ? null : m.get(chunkKey);
+    }
+
+    /**
+     * Record a scanned chunk's counts, replacing any earlier ones.
+     */
+    public void setChunkCounts(Environment env, long chunkKey, ChunkHistogram counts) {
+        if (envChunkCounts == null) envChunkCounts = new EnumMap<>(Environment.class);
+        envChunkCounts.computeIfAbsent(env, e -> new HashMap<>()).put(chunkKey, counts);
+        chunkCountsChanged();
+    }
+
+    /**
+     * Keep a scanned chunk's counts in step with a block change in it. The counts are
+     * no longer trusted as a recount cache. No-op if the chunk has not been scanned.
+     *
+     * @param ordinal material ordinal, or {@link KeyIndex#NONE}
+     */
+    public void chunkBlockChanged(Environment env, long chunkKey, int ordinal, int delta) {
+        ChunkHistogram h = getChunkCounts(env, chunkKey);
+        if (h != null) {
+            h.invalidate();
+            if (ordinal != KeyIndex.NONE) {
+                h.add(ordinal, delta);
+            }
+            chunkCountsChanged();
+        }
+    }
+
+    /**
+     * Forget every chunk's counts, e.g. before a full recount records them afresh.
+     */
+    public void clearChunkCounts() {
+        if (envChunkCounts != null) envChunkCounts.clear();
+        chunkCountsChanged();
+    }
+
+    /**
+     * Replace every chunk's counts, e.g. with those recorded by a full recount.
+     */
+    public void replaceChunkCounts(Map<Environment, Map<Long, ChunkHistogram>> chunkCounts) {
+        clearChunkCounts();
+        chunkCounts.forEach((env, chunks) -> chunks.forEach((key, h) -> setChunkCounts(env, key, h)));
+    }
+
+    /**
+     * Stop trusting every chunk's counts, as a recount cache or as a region recount
+     * baseline, e.g. after counts were changed without knowing where.
+     */
+    public void invalidateChunkCounts() {
+        if (envChunkCounts != null) {
+            envChunkCounts.values().forEach(m -> m.values().forEach(h -> {
+                h.invalidate();
+                h.setStamp(0);
+            }));
+        }
+        chunkCountsChanged();
+    }
+
+    /** The stored chunk counts no longer match this record. */
+    private void chunkCountsChanged() {
+        chunkCountsUnsaved = true;
+        chunkCountsSeq = 0;
+    }
+
+    /**
+     * @return true if the chunk counts have changed since they were last stored
+     */
+    public boolean hasUnsavedChunkCounts() {
+        return chunkCountsUnsaved;
+    }
+
+    /**
+     * Take the chunk counts of a freshly loaded record from the store. Stored counts
+     * are used only if this record was saved after them and before any change to them;
+     * otherwise the chunks are simply scanned again. Counts read from a record saved
+     * before they were stored apart are kept, to be stored on the next write.
+     *
+     * @param stored stored counts of this island, or null if there are none
+     */
+    public void loadChunkCounts(@Nullable IslandChunkCounts stored) {
+        if (envChunkCounts != null && !envChunkCounts.isEmpty()) {
+            chunkCountsChanged();
+        } else if (stored != null && stored.getSeq() != 0 && stored.getSeq() == chunkCountsSeq) {
+            envChunkCounts = stored.getEnvChunkCounts();
+        }
+    }
+
+    /**
+     * Copy the chunk counts for storing, and tie the record to that copy. The record is
+     * marked changed so it is saved with the new sequence number.
+     *
+     * @param seq sequence number of this write, not 0
+     * @return the counts to store
+     */
+    public IslandChunkCounts storeChunkCounts(long seq) {
+        Map<Environment, Map<Long, ChunkHistogram>> copy = new EnumMap<>(Environment.class);
+        if (envChunkCounts != null) {
+            envChunkCounts.forEach((env, chunks) -> {
+                Map<Long, ChunkHistogram> m = new HashMap<>();
+                chunks.forEach((key, h) -> m.put(key, h.copy()));
+                copy.put(env, m);
+            });
+        }
+        chunkCountsSeq = seq;
+        chunkCountsUnsaved = false;
+        changed = true;
+        return new IslandChunkCounts(uniqueId, seq, copy);
+    }
+
     /* =========================================================================
      * Block limits
      * ========================================================================= */
@@ -302,12 +524,17 @@ public class IslandBlockCount implements DataObject {
         setChanged();
     }
 
-    public void decrementEntity(Environment env, EntityType type) {
+    /**
+     * @return true if there was a count to decrement
+     */
+    public boolean decrementEntity(Environment env, EntityType type) {
         Map<EntityType, Integer> m = getEntityCounts(env);
         if (m.containsKey(type)) {
             m.computeIfPresent(type, (k, c) -> c - 1 > 0 ? c - 1 : null);
             setChanged();
+            return true;
         }
+        return false;
     }
 
     public void clearAllEntityCounts() {
@@ -486,15 +713,74 @@ public class IslandBlockCount implements DataObject {
         setChanged();
     }
 
+    /**
+     * @return sequence number of the last count-journal change included in this record
+     */
+    public long getJournalSeq() {
+        return journalSeq;
+    }
+
+    public void setJournalSeq(long journalSeq) {
+        this.journalSeq = journalSeq;
+    }
+
     public boolean isChanged() {
         return changed;
     }
 
+    /**
+     * Mark the record changed. Anything but a block count change may change which
+     * limits are reached, so this also moves on {@link #getReachedVersion()}.
+     */
     public void setChanged() {
         this.changed = true;
+        reachedVersion++;
     }
 
     public void setChanged(boolean changed) {
         this.changed = changed;
     }
+
+    /* =========================================================================
+     * Reached limits
+     * ========================================================================= */
+
+    /**
+     * Block counts change all the time, so they only move the version on when they
+     * cross a limit being watched.
+     */
+    private void blockCountChanged(Environment env, NamespacedKey key, int delta) {
+        this.changed = true;
+        Map<NamespacedKey, Integer> watched = watchedBlockLimits == null ? null : watchedBlockLimits.get(env);
+        Integer limit = watched == null ? null : watched.get(key);
+        if (limit != null) {
+            int after = getBlockCount(env, key);
+            if ((after - delta >= limit) != (after >= limit)) {
+                reachedVersion++;
+            }
+        }
+    }
+
+    /**
+     * @return a number that changes whenever the set of limits reached on this island
+     *         may have changed: any limit, offset or entity count change, and any block
+     *         count crossing a limit set by {@link #watchBlockLimits}
+     */
+    public int getReachedVersion() {
+        return reachedVersion;
+    }
+
+    /**
+     * Watch block counts crossing these limits, replacing any watched before in this
+     * environment.
+     *
+     * @param env environment
+     * @param limits effective block limits, e.g. those the reached limits were computed from
+     */
+    public void watchBlockLimits(Environment env, Map<NamespacedKey, Integer> limits) {
+        if (watchedBlockLimits == null) {
+            watchedBlockLimits = new EnumMap<>(Environment.class);
+        }
+        watchedBlockLimits.put(env, limits);
+    }
 }
@@ -0,0 +1,77 @@
+package world.bentobox.limits.objects;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.bukkit.World.Environment;
+
+import com.google.gson.annotations.Expose;
+import com.google.gson.annotations.JsonAdapter;
+
+import world.bentobox.bentobox.database.objects.DataObject;
+import world.bentobox.bentobox.database.objects.Table;
+
+/**
+ * The stored per-chunk counts of one island ({@link ChunkHistogram}s), kept apart from
+ * its {@link IslandBlockCount} so that saving the counts after every few block changes
+ * does not write them too. They are written when a recount records them, and when the
+ * island's record is unloaded or the server stops.
+ *
+ * <p>The sequence number ties these counts to the island's record: they are used only
+ * if the record was saved with the same number, see
+ * {@link IslandBlockCount#loadChunkCounts(IslandChunkCounts)}.
+ */
+@Table(name = "IslandChunkCounts")
+public class IslandChunkCounts implements DataObject {
+
+    @Expose
+    private String uniqueId;
+
+    @Expose
+    private long seq;
+
+    @Expose
+    @JsonAdapter(ChunkCountsAdapter.class)
+    private Map<Environment, Map<Long, ChunkHistogram>> envChunkCounts = new EnumMap<>(Environment.class);
+
+    /**
+     * Required by Gson.
+     */
+    public IslandChunkCounts() {
+    }
+
+    /**
+     * @param islandId unique island ID
+     * @param seq sequence number, see {@link #getSeq()}
+     * @param envChunkCounts chunk counts by environment and chunk key; taken over
+     */
+    public IslandChunkCounts(String islandId, long seq, Map<Environment, Map<Long, ChunkHistogram>> envChunkCounts) {
+        this.uniqueId = islandId;
+        this.seq = seq;
+        this.envChunkCounts = envChunkCounts;
+    }
+
+    /**
+     * @return number identifying this write of the counts, never 0
+     */
+    public long getSeq() {
+        return seq;
+    }
+
+    /**
+     * @return chunk counts by environment and chunk key
+     */
+    public Map<Environment, Map<Long, ChunkHistogram>> getEnvChunkCounts() {
+        return envChunkCounts == null ? new EnumMap<>(Environment.class) : envChunkCounts;
+    }
+
+    @Override
+    public String getUniqueId() {
+        return uniqueId;
+    }
+
+    @Override
+    public void setUniqueId(String uniqueId) {
+        this.uniqueId = uniqueId;
+    }
+}
@@ -0,0 +1,350 @@
+package world.bentobox.limits.objects;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.bukkit.NamespacedKey;
+
+import world.bentobox.limits.KeyIndex;
+
+/**
+ * Block counts for one environment, stored as primitive ints.
+ *
+ * <p>Vanilla materials are counted in an {@code int[]} indexed by {@link KeyIndex#ordinal};
+ * the array grows to the highest ordinal seen. Custom-namespace keys (ItemsAdder, Oraxen
+ * ids) go into a small open-addressing side table. {@link #increment} and
+ * {@link #decrement} touch no boxed values, so counting a block allocates nothing.
+ *
+ * <p>This is also a {@code Map<NamespacedKey, Integer>} view so existing callers and the
+ * Gson adapters keep working. A count of zero means "absent": putting zero removes the key.
+ */
+public class KeyCountMap extends AbstractMap<NamespacedKey, Integer> {
+
+    private static final int INITIAL_SIDE_CAPACITY = 8;
+
+    private int[] dense = new int[0];
+    private NamespacedKey[] sideKeys;
+    private int[] sideValues;
+    private int sideSize;
+    private int size;
+
+    public KeyCountMap() {
+    }
+
+    /**
+     * @param source counts to copy; zero or null values are skipped
+     */
+    public KeyCountMap(Map<NamespacedKey, Integer> source) {
+        putAll(source);
+    }
+
+    /* =========================================================================
+     * Primitive access
+     * ========================================================================= */
+
+    /**
+     * @return the count for this key, or 0 if absent
+     */
+    public int getInt(NamespacedKey key) {
+        int ordinal = KeyIndex.ordinal(key);
+        if (ordinal != KeyIndex.NONE) {
+            return ordinal < dense.length ? dense[ordinal] : 0;
+        }
+        int slot = findSlot(key);
+        return slot < 0 ? 0 : sideValues[slot];
+    }
+
+    /**
+     * Add one to the count for this key.
+     */
+    public void increment(NamespacedKey key) {
+        setInt(key, getInt(key) + 1);
+    }
+
+    /**
+     * Subtract one from the count for this key, removing it when it reaches zero.
+     *
+     * @return true if the key was present
+     */
+    public boolean decrement(NamespacedKey key) {
+        int count = getInt(key);
+        if (count == 0) {
+            return false;
+        }
+        setInt(key, count - 1);
+        return true;
+    }
+
+    /**
+     * Subtract up to {@code amount} from the count for this key, never going below zero.
+     *
+     * @return how much was actually subtracted
+     */
+    public int subtract(NamespacedKey key, int amount) {
+        int count = getInt(key);
+        int removed = Math.min(count, amount);
+        if (removed > 0) {
+            setInt(key, count - removed);
+        }
+        return removed;
+    }
+
+    /**
+     * Set the count for this key; zero removes it.
+     *
+     * @return the previous count, 0 if absent
+     */
+    public int setInt(NamespacedKey key, int value) {
+        int ordinal = KeyIndex.ordinal(key);
+        if (ordinal != KeyIndex.NONE) {
+            return setDense(ordinal, value);
+        }
+        return setSide(key, value);
+    }
+
+    private int setDense(int ordinal, int value) {
+        if (ordinal >= dense.length) {
+            if (value == 0) {
+                return 0;
+            }
+            dense = Arrays.copyOf(dense, Math.min(KeyIndex.size(), Math.max(ordinal + 1, dense.length * 2)));
+        }
+        int old = dense[ordinal];
+        dense[ordinal] = value;
+        if (old == 0 && value != 0) {
+            size++;
+        } else if (old != 0 && value == 0) {
+            size--;
+        }
+        return old;
+    }
+
+    /* =========================================================================
+     * Side table for keys without an ordinal (linear probing)
+     * ========================================================================= */
+
+    private int findSlot(NamespacedKey key) {
+        if (sideKeys == null) {
+            return -1;
+        }
+        int mask = sideKeys.length - 1;
+        for (int i = key.hashCode() & mask;; i = (i + 1) & mask) {
+            NamespacedKey k = sideKeys[i];
+            if (k == null) {
+                return -1;
+            }
+            if (k.equals(key)) {
+                return i;
+            }
+        }
+    }
+
+    private int setSide(NamespacedKey key, int value) {
+        int slot = findSlot(key);
+        if (slot >= 0) {
+            int old = sideValues[slot];
+            if (value == 0) {
+                deleteSlot(slot);
+            } else {
+                sideValues[slot] = value;
+            }
+            return old;
+        }
+        if (value == 0) {
+            return 0;
+        }
+        if (sideKeys == null) {
+            sideKeys = new NamespacedKey[INITIAL_SIDE_CAPACITY];
+            sideValues = new int[INITIAL_SIDE_CAPACITY];
+        } else if ((sideSize + 1) * 2 > sideKeys.length) {
+            resizeSide(sideKeys.length * 2);
+        }
+        insertSide(key, value);
+        sideSize++;
+        size++;
+        return 0;
+    }
+
+    private void insertSide(NamespacedKey key, int value) {
+        int mask = sideKeys.length - 1;
+        int i = key.hashCode() & mask;
+        while (sideKeys[i] != null) {
+            i = (i + 1) & mask;
+        }
+        sideKeys[i] = key;
+        sideValues[i] = value;
+    }
+
+    private void resizeSide(int capacity) {
+        NamespacedKey[] oldKeys = sideKeys;
+        int[] oldValues = sideValues;
+        sideKeys = new NamespacedKey[capacity];
+        sideValues = new int[capacity];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                insertSide(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    /** Remove a slot and shift back any following entries of the same probe run. */
+    private void deleteSlot(int slot) {
+        int mask = sideKeys.length - 1;
+        int hole = slot;
+        for (int i = (slot + 1) & mask; sideKeys[i] != null; i = (i + 1) & mask) {
+            int home = sideKeys[i].hashCode() & mask;
+            // Move the entry into the hole unless its home lies cyclically in (hole, i]
+            boolean homeInRange = hole <= i ? hole < home && home <= i : hole < home || home <= i;
+            if (!homeInRange) {
+                sideKeys[hole] = sideKeys[i];
+                sideValues[hole] = sideValues[i];
+                hole = i;
+            }
+        }
+        sideKeys[hole] = null;
+        sideValues[hole] = 0;
+        sideSize--;
+        size--;
+    }
+
+    /* =========================================================================
+     * Map view
+     * ========================================================================= */
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof NamespacedKey k && getInt(k) != 0;
+    }
+
+    @Override
+    public Integer get(Object key) {
+        if (!(key instanceof NamespacedKey k)) {
+            return null;
+        }
+        int count = getInt(k);
+        return count == 0 ? null : count;
+    }
+
+    @Override
+    public Integer getOrDefault(Object key, Integer defaultValue) {
+        Integer count = get(key);
+        return count == null ? defaultValue : count;
+    }
+
+    @Override
+    public Integer put(NamespacedKey key, Integer value) {
+        int old = setInt(key, value == null ? 0 : value);
+        return old == 0 ? null : old;
+    }
+
+    @Override
+    public Integer remove(Object key) {
+        if (!(key instanceof NamespacedKey k)) {
+            return null;
+        }
+        int old = setInt(k, 0);
+        return old == 0 ? null : old;
+    }
+
+    @Override
+    public void clear() {
+        dense = new int[0];
+        sideKeys = null;
+        sideValues = null;
+        sideSize = 0;
+        size = 0;
+    }
+
+    @Override
+    public Set<Entry<NamespacedKey, Integer>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<NamespacedKey, Integer>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Walks the dense array, then a snapshot of the side keys so removal through the
+     * iterator cannot disturb the probe order.
+     */
+    private class EntryIterator implements Iterator<Entry<NamespacedKey, Integer>> {
+        private int denseIndex = -1;
+        private final NamespacedKey[] side = sideKeys == null ? new NamespacedKey[0] : sideKeys.clone();
+        private int sideIndex = -1;
+        private NamespacedKey last;
+
+        @Override
+        public boolean hasNext() {
+            return nextDense() < dense.length || nextSide() < side.length;
+        }
+
+        private int nextDense() {
+            int i = denseIndex + 1;
+            while (i < dense.length && dense[i] == 0) {
+                i++;
+            }
+            return i;
+        }
+
+        private int nextSide() {
+            int i = sideIndex + 1;
+            while (i < side.length && (side[i] == null || !containsKey(side[i]))) {
+                i++;
+            }
+            return i;
+        }
+
+        @Override
+        public Entry<NamespacedKey, Integer> next() {
+            int d = nextDense();
+            if (d < dense.length) {
+                denseIndex = d;
+                last = KeyIndex.key(d);
+            } else {
+                denseIndex = dense.length;
+                int s = nextSide();
+                if (s >= side.length) {
+                    throw new NoSuchElementException();
+                }
+                sideIndex = s;
+                last = side[s];
+            }
+            NamespacedKey key = last;
+            return new SimpleEntry<>(key, getInt(key)) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                public Integer setValue(Integer value) {
+                    super.setValue(value);
+                    return put(key, value);
+                }
+            };
+        }
+
+        @Override
+        public void remove() {
+            if (last == null) {
+                throw new IllegalStateException();
+            }
+            KeyCountMap.this.remove(last);
+            last = null;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package world.bentobox.limits;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import world.bentobox.limits.HotPathStats.Timer;
+
+class HotPathStatsTest {
+
+    private HotPathStats stats;
+
+    @BeforeEach
+    void setUp() {
+        stats = new HotPathStats();
+    }
+
+    @Test
+    void testBucketsCoverTheirValues() {
+        long previousBound = -1;
+        for (long v : new long[] { 0, 1, 3, 4, 5, 7, 8, 9, 15, 16, 1000, 1023, 1024, 123_456_789L, Long.MAX_VALUE }) {
+            int bucket = HotPathStats.bucket(v);
+            long bound = HotPathStats.upperBound(bucket);
+            assertTrue(v <= bound, v + " above bound " + bound);
+            // Within a quarter of the value
+            assertTrue(bound - v <= v / 4 + 1, v + " too far from bound " + bound);
+            assertTrue(bound >= previousBound);
+            previousBound = bound;
+        }
+        assertEquals(HotPathStats.bucket(Long.MAX_VALUE), HotPathStats.bucket(Long.MAX_VALUE - 1));
+    }
+
+    @Test
+    void testSampleEveryRoundsUpToPowerOfTwo() {
+        stats.setSampleEvery(1);
+        assertEquals(1, stats.getSampleEvery());
+        stats.setSampleEvery(16);
+        assertEquals(16, stats.getSampleEvery());
+        stats.setSampleEvery(10);
+        assertEquals(16, stats.getSampleEvery());
+        stats.setSampleEvery(0);
+        assertEquals(1, stats.getSampleEvery());
+    }
+
+    @Test
+    void testOnlySampledCallsAreTimed() {
+        stats.setSampleEvery(4);
+        Timer timer = stats.timer("handler");
+        for (int i = 0; i < 100; i++) {
+            timer.stop(timer.start());
+        }
+        assertEquals(100, timer.getCalls());
+        assertEquals(25, timer.getSamples());
+    }
+
+    @Test
+    void testPercentileAndMean() {
+        Timer timer = stats.timer("save");
+        for (int i = 0; i < 99; i++) {
+            timer.record(1_000L);
+        }
+        timer.record(1_000_000L);
+        assertEquals(100, timer.getCalls());
+        assertEquals((99 * 1_000D + 1_000_000D) / 100, timer.getMeanNanos(), 0.001D);
+        long p50 = timer.getPercentileNanos(0.5D);
+        assertTrue(p50 >= 1_000L && p50 < 1_250L, String.valueOf(p50));
+        long p99 = timer.getPercentileNanos(0.99D);
+        assertTrue(p99 >= 1_000L && p99 < 1_250L, String.valueOf(p99));
+        long max = timer.getPercentileNanos(1D);
+        assertTrue(max >= 1_000_000L && max < 1_250_000L, String.valueOf(max));
+    }
+
+    @Test
+    void testEmptyTimer() {
+        Timer timer = stats.timer("recount");
+        assertEquals(0L, timer.getPercentileNanos(0.99D));
+        assertEquals(0D, timer.getMeanNanos());
+    }
+
+    @Test
+    void testReset() {
+        Timer timer = stats.timer("save");
+        timer.record(5_000L);
+        stats.reset();
+        assertEquals(0, timer.getCalls());
+        assertEquals(0, timer.getSamples());
+        assertEquals(0L, timer.getPercentileNanos(1D));
+        assertSame(timer, stats.timer("save"));
+    }
+
+    @Test
+    void testTimerWithoutStats() {
+        Timer timer = HotPathStats.timer(null, "save");
+        timer.record(5L);
+        assertEquals(1, timer.getCalls());
+        assertNotSame(timer, HotPathStats.timer(null, "save"));
+        assertSame(stats.timer("save"), HotPathStats.timer(stats, "save"));
+    }
+
+    @Test
+    void testFormat() {
+        assertEquals("850 ns", HotPathStats.format(850D));
+        assertEquals("12.5 µs", HotPathStats.format(12_500D));
+        assertEquals("4.0 ms", HotPathStats.format(4_000_000D));
+        assertEquals("2.5 s", HotPathStats.format(2_500_000_000D));
+    }
+}
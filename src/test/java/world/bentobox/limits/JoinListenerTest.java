@@ -31,6 +31,7 @@ import org.bukkit.entity.Player;
 import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.permissions.PermissionAttachmentInfo;
 import org.bukkit.plugin.PluginManager;
+import org.bukkit.scheduler.BukkitScheduler;
 import org.eclipse.jdt.annotation.Nullable;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -39,6 +40,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockedStatic;
 import org.mockito.Mockito;
@@ -103,8 +105,10 @@ class JoinListenerTest {
         when(addon.getGameModePermPrefix(any())).thenReturn("bskyblock.");
         when(addon.getSettings()).thenReturn(settings);
         // Settings
-        when(settings.getGroupLimitDefinitions())
-                .thenReturn(new ArrayList<>(List.of(new EntityGroup("friendly", new HashSet<>(), -1, null))));
+        EntityGroup friendly = new EntityGroup("friendly", new HashSet<>(), -1, null);
+        when(settings.getGroupLimitDefinitions()).thenReturn(new ArrayList<>(List.of(friendly)));
+        when(settings.getEntityGroupIgnoreCase(anyString()))
+                .thenAnswer(i -> friendly.getName().equalsIgnoreCase(i.getArgument(0)) ? friendly : null);
         // Island Manager
         when(island.getUniqueId()).thenReturn("unique_id");
         when(island.getOwner()).thenReturn(uuid);
@@ -133,6 +137,7 @@ class JoinListenerTest {
         when(owner.getPlayer()).thenReturn(player);
         mockedBukkit.when(() -> Bukkit.getOfflinePlayer(any(UUID.class))).thenReturn(owner);
         mockedBukkit.when(Bukkit::getPluginManager).thenReturn(pim);
+        mockedBukkit.when(Bukkit::isPrimaryThread).thenReturn(true);
 
     }
 
@@ -400,6 +405,106 @@ class JoinListenerTest {
         verify(ibc).setEntityLimit(Environment.NORMAL, EntityType.CAVE_SPIDER, 4);
     }
 
+    /**
+     * Permissions are parsed once and matched whatever their case; an invalid one is
+     * still reported on every login.
+     */
+    @Test
+    void testOnPlayerJoinPermsParsedOnce() {
+        Set<PermissionAttachmentInfo> perms = new HashSet<>();
+        perms.add(mockPerm("bskyblock.island.limit.Hopper.10"));
+        perms.add(mockPerm("bskyblock.island.limit.FRIENDLY.5"));
+        perms.add(mockPerm("bskyblock.island.limit.mumbo.34"));
+        when(player.getEffectivePermissions()).thenReturn(perms);
+        PlayerJoinEvent e = new PlayerJoinEvent(player, Component.text("welcome"));
+        jl.onPlayerJoin(e);
+        jl.onPlayerJoin(e);
+        verify(ibc, times(2)).setBlockLimit(Environment.NORMAL, Material.HOPPER.getKey(), 10);
+        verify(ibc, times(2)).setEntityGroupLimit(Environment.NORMAL, "friendly", 5);
+        verify(addon, times(2)).logError(contains("MUMBO is not a valid material"));
+        // The group is resolved once
+        verify(settings).getEntityGroupIgnoreCase("FRIENDLY");
+    }
+
+    /**
+     * Groups are resolved again once the settings have been reloaded.
+     */
+    @Test
+    void testOnPlayerJoinPermsParsedAgainAfterReload() {
+        when(player.getEffectivePermissions()).thenReturn(Set.of(mockPerm("bskyblock.island.limit.FRIENDLY.5")));
+        PlayerJoinEvent e = new PlayerJoinEvent(player, Component.text("welcome"));
+        jl.onPlayerJoin(e);
+        Settings reloaded = mock(Settings.class);
+        EntityGroup friendly = new EntityGroup("friendly", new HashSet<>(), -1, null);
+        when(reloaded.getEntityGroupIgnoreCase("FRIENDLY")).thenReturn(friendly);
+        when(addon.getSettings()).thenReturn(reloaded);
+        jl.onPlayerJoin(e);
+        verify(settings).getEntityGroupIgnoreCase("FRIENDLY");
+        verify(reloaded).getEntityGroupIgnoreCase("FRIENDLY");
+        verify(ibc, times(2)).setEntityGroupLimit(Environment.NORMAL, "friendly", 5);
+    }
+
+    /**
+     * Test method for {@link JoinListener#refreshPerms(Island, GameModeAddon)}.
+     */
+    @Test
+    void testRefreshPermsOffMainThreadIsScheduled() {
+        mockedBukkit.when(Bukkit::isPrimaryThread).thenReturn(false);
+        BukkitScheduler scheduler = mock(BukkitScheduler.class);
+        mockedBukkit.when(Bukkit::getScheduler).thenReturn(scheduler);
+        mockedBukkit.when(() -> Bukkit.getPlayer(uuid)).thenReturn(player);
+        when(player.getEffectivePermissions()).thenReturn(Set.of(mockPerm("bskyblock.island.limit.STONE.24")));
+
+        jl.refreshPerms(island, bskyblock);
+        jl.refreshPerms(island, bskyblock);
+        // Queued once, nothing applied off the main thread
+        ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+        verify(scheduler).runTask(any(), task.capture());
+        verify(ibc, never()).setBlockLimit(any(), any(), anyInt());
+
+        mockedBukkit.when(Bukkit::isPrimaryThread).thenReturn(true);
+        task.getValue().run();
+        verify(ibc).setBlockLimit(Environment.NORMAL, Material.STONE.getKey(), 24);
+    }
+
+    /**
+     * Test method for {@link JoinListener#refreshPerms(Island, GameModeAddon)}.
+     */
+    @Test
+    void testRefreshPermsOnlyWhenNotYetApplied() {
+        mockedBukkit.when(() -> Bukkit.getPlayer(uuid)).thenReturn(player);
+        Set<PermissionAttachmentInfo> perms = Set.of(mockPerm("bskyblock.island.limit.STONE.24"));
+        when(player.getEffectivePermissions()).thenReturn(perms);
+
+        jl.refreshPerms(island, bskyblock);
+        verify(ibc).setBlockLimit(Environment.NORMAL, Material.STONE.getKey(), 24);
+        verify(bll).setIsland("unique_id", ibc);
+        // Unchanged permissions: served as they are, no save
+        jl.refreshPerms(island, bskyblock);
+        verify(bll).setIsland("unique_id", ibc);
+        verify(ibc).clearAllBlockLimits();
+
+        // Limits recomputed elsewhere (e.g. a login) are applied again on the next refresh
+        jl.checkPerms(player, "bskyblock.island.limit.", "unique_id", "BSkyBlock");
+        verify(bll, times(2)).setIsland("unique_id", ibc);
+        jl.refreshPerms(island, bskyblock);
+        verify(bll, times(3)).setIsland("unique_id", ibc);
+    }
+
+    /**
+     * Test method for {@link JoinListener#refreshPerms(Island, GameModeAddon)}.
+     */
+    @Test
+    void testRefreshPermsOwnerOffline() {
+        Set<PermissionAttachmentInfo> perms = Set.of(mockPerm("bskyblock.island.limit.STONE.24"));
+        when(player.getEffectivePermissions()).thenReturn(perms);
+
+        jl.refreshPerms(island, bskyblock);
+
+        verify(ibc, never()).clearAllBlockLimits();
+        verify(bll, never()).setIsland(anyString(), any());
+    }
+
     // --- Team member limit perms (#241) ---
 
     private PermissionAttachmentInfo mockPerm(String permission) {
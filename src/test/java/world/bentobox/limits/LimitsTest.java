@@ -327,6 +327,28 @@ class LimitsTest {
         assertTrue(addon.getReachedLimits(user, gameMode, null).isEmpty());
     }
 
+    /**
+     * Count and limit placeholders are registered for limited blocks and entities only,
+     * and for others once something limits them.
+     */
+    @Test
+    void testPlaceholdersForLimitedKeysOnly() {
+        addon.onEnable();
+        Mockito.verify(phm).registerPlaceholder(Mockito.eq(addon),
+                Mockito.eq("bskyblock_island_minecraft:hopper_count"), Mockito.any());
+        Mockito.verify(phm).registerPlaceholder(Mockito.eq(addon),
+                Mockito.eq("bskyblock_island_enderman_nether_limit"), Mockito.any());
+        Mockito.verify(phm).registerPlaceholder(Mockito.eq(addon),
+                Mockito.eq("bskyblock_island_reached_limits"), Mockito.any());
+        Mockito.verify(phm, Mockito.never()).registerPlaceholder(Mockito.eq(addon),
+                Mockito.eq("bskyblock_island_minecraft:stone_count"), Mockito.any());
+
+        addon.registerLimitPlaceholders(Material.STONE.getKey());
+        addon.registerLimitPlaceholders(Material.STONE.getKey());
+        Mockito.verify(phm).registerPlaceholder(Mockito.eq(addon),
+                Mockito.eq("bskyblock_island_minecraft:stone_count"), Mockito.any());
+    }
+
     /**
      * Test method for {@link world.bentobox.limits.Limits#getBlockLimitListener()}.
      */
@@ -346,6 +368,10 @@ class LimitsTest {
         assertFalse(addon.inGameModeWorld(world));
         when(gameMode.inWorld(world)).thenReturn(true);
         assertTrue(addon.inGameModeWorld(world));
+        // Game mode worlds are classified once
+        when(gameMode.inWorld(world)).thenReturn(false);
+        assertTrue(addon.inGameModeWorld(world));
+        assertFalse(addon.inGameModeWorld(mock(World.class)));
     }
 
     /**
@@ -1,8 +1,11 @@
 package world.bentobox.limits;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.atLeastOnce;
@@ -93,6 +96,44 @@ class SettingsTest {
         assertTrue(definitions.stream().anyMatch(g -> g.getName().equals("Animals")));
     }
 
+    @Test
+    void testGroupIndexes() {
+        config.set("entitygrouplimits", null);
+        config.set("entitygrouplimits.Birds.limit", 10);
+        config.set("entitygrouplimits.Birds.entities", List.of("CHICKEN", "PARROT"));
+        config.set("entitygrouplimits.Farm.limit", 20);
+        config.set("entitygrouplimits.Farm.entities", List.of("CHICKEN", "COW"));
+        Settings s = new Settings(addon);
+
+        List<EntityGroup> groups = s.getGroupLimitDefinitions();
+        assertSame(groups, s.getGroupLimitDefinitions());
+        assertEquals(2, groups.size());
+        EntityGroup birds = s.getEntityGroup("Birds");
+        EntityGroup farm = s.getEntityGroup("Farm");
+        assertEquals(0, birds.getId());
+        assertEquals(1, farm.getId());
+        assertNull(s.getEntityGroup("birds"));
+        assertArrayEquals(new EntityGroup[] { birds, farm }, s.getEntityGroups(EntityType.CHICKEN));
+        assertArrayEquals(new EntityGroup[] { farm }, s.getEntityGroups(EntityType.COW));
+        assertEquals(0, s.getEntityGroups(EntityType.ZOMBIE).length);
+
+        int[] counts = s.getGroupCounts(Map.of(EntityType.CHICKEN, 3, EntityType.PARROT, 1, EntityType.COW, 5,
+                EntityType.ZOMBIE, 7));
+        assertArrayEquals(new int[] { 4, 8 }, counts);
+    }
+
+    @Test
+    void testAllKeyPlaceholdersOffForNewConfig() {
+        assertFalse(settings.isAllKeyPlaceholders());
+    }
+
+    @Test
+    void testAllKeyPlaceholdersOnForUpgradedConfig() {
+        // A config from before the setting existed
+        config.set("all-key-placeholders", null);
+        assertTrue(new Settings(addon).isAllKeyPlaceholders());
+    }
+
     @Test
     void testLogLimitsOnJoinDefaultsFalse() {
         assertFalse(settings.isLogLimitsOnJoin());
@@ -186,6 +227,18 @@ class SettingsTest {
         assertEquals(-1, s.getBlockGroupLimit(Environment.NORMAL, "Nope"));
     }
 
+    @Test
+    void testBlockGroupByName() {
+        config.set("blockgrouplimits.Pistons.limit", 10);
+        config.set("blockgrouplimits.Pistons.materials", List.of("PISTON", "STICKY_PISTON"));
+        Settings s = new Settings(addon);
+        BlockGroup group = s.getBlockGroup("Pistons");
+        assertSame(s.getBlockGroupDefinitions().get(0), group);
+        assertEquals(0, group.getId());
+        assertEquals(List.of(group), s.getBlockGroups(Material.STICKY_PISTON.getKey()));
+        assertNull(s.getBlockGroup("Nope"));
+    }
+
     @Test
     void testBlockGroupUnknownMaterialSkipped() {
         config.set("blockgrouplimits.Bad.limit", 10);
@@ -0,0 +1,105 @@
+package world.bentobox.limits.calculators;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.BitSet;
+
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.block.data.type.Slab;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockbukkit.mockbukkit.MockBukkit;
+
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Multiset;
+
+import world.bentobox.limits.listeners.BlockLimitsListener;
+
+class ChunkScannerTest {
+
+    private ChunkSnapshot snapshot;
+    private BlockLimitsListener bll;
+    private final BitSet tracked = new BitSet();
+    private final Multiset<NamespacedKey> counts = HashMultiset.create();
+
+    @BeforeEach
+    void setUp() {
+        MockBukkit.mock();
+        bll = mock(BlockLimitsListener.class);
+        snapshot = mock(ChunkSnapshot.class);
+        when(snapshot.getBlockType(anyInt(), anyInt(), anyInt())).thenReturn(Material.AIR);
+        tracked.set(Material.HOPPER.ordinal());
+        tracked.set(Material.SUGAR_CANE.ordinal());
+        tracked.set(Material.STONE_SLAB.ordinal());
+        tracked.set(Material.ANVIL.ordinal());
+    }
+
+    @AfterEach
+    void tearDown() {
+        MockBukkit.unmock();
+    }
+
+    private void scan(boolean stackedAsOne) {
+        new ChunkScanner(bll, tracked, stackedAsOne).scan(snapshot, 0, 16, 0, 16, 0, 32, counts);
+    }
+
+    @Test
+    void testEmptySectionsSkipped() {
+        when(snapshot.isSectionEmpty(anyInt())).thenReturn(true);
+        scan(false);
+        verify(snapshot, never()).getBlockType(anyInt(), anyInt(), anyInt());
+        assertTrue(counts.isEmpty());
+    }
+
+    @Test
+    void testOnlyTrackedCounted() {
+        when(snapshot.isSectionEmpty(1)).thenReturn(true);
+        when(snapshot.getBlockType(0, 0, 0)).thenReturn(Material.HOPPER);
+        when(snapshot.getBlockType(1, 0, 0)).thenReturn(Material.STONE);
+        when(snapshot.getBlockType(2, 0, 0)).thenReturn(Material.CHIPPED_ANVIL);
+        scan(false);
+        assertEquals(1, counts.count(Material.HOPPER.getKey()));
+        assertEquals(1, counts.count(Material.ANVIL.getKey()));
+        assertEquals(0, counts.count(Material.STONE.getKey()));
+        // Block data is only read for state-dependent blocks
+        verify(snapshot, never()).getBlockData(anyInt(), anyInt(), anyInt());
+    }
+
+    @Test
+    void testDoubleSlabCountsTwice() {
+        Slab slab = mock(Slab.class);
+        when(slab.getType()).thenReturn(Slab.Type.DOUBLE);
+        when(snapshot.getBlockType(0, 0, 0)).thenReturn(Material.STONE_SLAB);
+        when(snapshot.getBlockData(0, 0, 0)).thenReturn(slab);
+        scan(false);
+        assertEquals(2, counts.count(Material.STONE_SLAB.getKey()));
+    }
+
+    @Test
+    void testStackedPlants() {
+        for (int y = 14; y < 18; y++) {
+            when(snapshot.getBlockType(3, y, 3)).thenReturn(Material.SUGAR_CANE);
+        }
+        scan(true);
+        assertEquals(1, counts.count(Material.SUGAR_CANE.getKey()));
+        counts.clear();
+        scan(false);
+        assertEquals(4, counts.count(Material.SUGAR_CANE.getKey()));
+    }
+
+    @Test
+    void testBoundsOutsideChunk() {
+        when(snapshot.getX()).thenReturn(5);
+        new ChunkScanner(bll, tracked, false).scan(snapshot, 0, 16, 0, 16, 0, 32, counts);
+        verify(snapshot, never()).isSectionEmpty(anyInt());
+    }
+}
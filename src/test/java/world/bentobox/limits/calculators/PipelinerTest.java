@@ -4,10 +4,15 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import org.bukkit.World.Environment;
+import org.bukkit.util.BoundingBox;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -23,7 +28,12 @@ import org.mockito.quality.Strictness;
 import world.bentobox.bentobox.BentoBox;
 import world.bentobox.bentobox.database.objects.Island;
 import world.bentobox.limits.Limits;
+import world.bentobox.limits.Settings;
+import world.bentobox.limits.calculators.Pipeliner.Lane;
 import world.bentobox.limits.calculators.Results.Result;
+import world.bentobox.limits.listeners.BlockLimitsListener;
+import world.bentobox.limits.objects.ChunkHistogram;
+import world.bentobox.limits.objects.IslandBlockCount;
 import org.mockbukkit.mockbukkit.MockBukkit;
 
 @ExtendWith(MockitoExtension.class)
@@ -36,6 +46,8 @@ class PipelinerTest {
     private BentoBox plugin;
     @Mock
     private Island island;
+    @Mock
+    private Settings settings;
 
     private MockedStatic<BentoBox> mockedBentoBox;
     private Pipeliner pipeliner;
@@ -47,6 +59,12 @@ class PipelinerTest {
         mockedBentoBox = Mockito.mockStatic(BentoBox.class);
         mockedBentoBox.when(BentoBox::getInstance).thenReturn(plugin);
 
+        when(addon.getSettings()).thenReturn(settings);
+        when(settings.getRecountIslands()).thenReturn(2);
+        when(settings.getRecountThreads()).thenReturn(2);
+        when(settings.getRecountChunkLoads()).thenReturn(10);
+        when(settings.getRecountTickBudget()).thenReturn(10);
+
         pipeliner = new Pipeliner(addon);
     }
 
@@ -92,6 +110,25 @@ class PipelinerTest {
         }
     }
 
+    @SuppressWarnings("unchecked")
+    @Test
+    void testDeletedIslandCompletesWithNoIsland() throws ExecutionException, InterruptedException {
+        when(plugin.isEnabled()).thenReturn(true);
+        when(island.isDeleted()).thenReturn(true);
+
+        try (MockedConstruction<RecountCalculator> mockedCalc = Mockito.mockConstruction(RecountCalculator.class,
+                (mock, context) -> {
+                    when(mock.getIsland()).thenReturn(island);
+                    when(mock.getR()).thenReturn((CompletableFuture<Results>) context.arguments().get(2));
+                })) {
+            CompletableFuture<Results> future = pipeliner.addIsland(island);
+            MockBukkit.getMock().getScheduler().performOneTick();
+            assertTrue(future.isDone());
+            assertEquals(Result.NO_ISLAND, future.get().getState());
+            assertEquals(0, pipeliner.getIslandsInQueue());
+        }
+    }
+
     @Test
     void testGetTimeReturnsStartDurationWhenNoCounts() {
         assertEquals(10, pipeliner.getTime());
@@ -120,4 +157,122 @@ class PipelinerTest {
 
         assertEquals(0, pipeliner.getIslandsInQueue());
     }
+
+    @Test
+    void testChunkLoadsCapped() {
+        assertEquals(9, pipeliner.acquireChunkLoads(100, 3));
+        assertEquals(9, pipeliner.getChunkLoads());
+        // Only one slot left, less than one chunk's worth of loads
+        assertEquals(0, pipeliner.acquireChunkLoads(3, 3));
+        pipeliner.releaseChunkLoads(9);
+        assertEquals(0, pipeliner.getChunkLoads());
+        assertEquals(6, pipeliner.acquireChunkLoads(6, 3));
+    }
+
+    @Test
+    void testTickBudget() {
+        assertTrue(pipeliner.getTickTimeLeft() > 0);
+        pipeliner.useTickTime(20_000_000L);
+        assertTrue(pipeliner.getTickTimeLeft() <= 0);
+    }
+
+    @Test
+    void testStopShutsDownWorkers() {
+        pipeliner.stop();
+        assertTrue(pipeliner.getExecutor().isShutdown());
+    }
+
+    private Island island(String id) {
+        Island i = mock(Island.class);
+        when(i.getUniqueId()).thenReturn(id);
+        return i;
+    }
+
+    @Test
+    void testQueuePositionAndAdminLane() {
+        Island a = island("a");
+        Island b = island("b");
+        Island c = island("c");
+        Island d = island("d");
+        try (MockedConstruction<RecountCalculator> mockedCalc = Mockito.mockConstruction(RecountCalculator.class,
+                (mock, context) -> when(mock.getIsland()).thenReturn((Island) context.arguments().get(1)))) {
+            pipeliner.addIsland(a);
+            pipeliner.addIsland(b);
+            pipeliner.addIsland(c);
+            assertEquals(3, pipeliner.getIslandsInQueue());
+            // Two slots are free, so a and b start next tick and c waits behind them
+            assertEquals(0, pipeliner.getQueuePosition(a));
+            assertEquals(0, pipeliner.getQueuePosition(b));
+            assertEquals(1, pipeliner.getQueuePosition(c));
+            // Admin requests jump the player lane
+            pipeliner.addIsland(d, Lane.ADMIN);
+            assertEquals(0, pipeliner.getQueuePosition(d));
+            assertEquals(0, pipeliner.getQueuePosition(b));
+            assertEquals(1, pipeliner.getQueuePosition(c));
+            // An admin request for a waiting player island promotes it
+            pipeliner.addIsland(c, Lane.ADMIN);
+            assertEquals(0, pipeliner.getQueuePosition(c));
+            assertEquals(1, pipeliner.getQueuePosition(b));
+            assertEquals(-1, pipeliner.getQueuePosition(island("e")));
+        }
+    }
+
+    @Test
+    void testStopClearsIndex() {
+        Island a = island("a");
+        try (MockedConstruction<RecountCalculator> mockedCalc = Mockito.mockConstruction(RecountCalculator.class,
+                (mock, context) -> when(mock.getIsland()).thenReturn((Island) context.arguments().get(1)))) {
+            pipeliner.addIsland(a);
+            pipeliner.stop();
+            assertEquals(-1, pipeliner.getQueuePosition(a));
+        }
+    }
+
+    @Test
+    void testChunksIn() {
+        List<Long> keys = Pipeliner.chunksIn(new BoundingBox(-1, 0, 0, 16, 0, 15));
+        assertEquals(List.of(ChunkHistogram.chunkKey(-1, 0), ChunkHistogram.chunkKey(0, 0),
+                ChunkHistogram.chunkKey(1, 0)), keys);
+    }
+
+    @Test
+    void testChunksInIsland() {
+        Island a = island("a");
+        when(a.getProtectionRange()).thenReturn(50);
+        // Island blocks run from 0 to 99: the box is cut down to the island
+        List<Long> keys = Pipeliner.chunksIn(a, new BoundingBox(-1_000_000, 0, 90, 1_000_000, 0, 1_000_000));
+        assertEquals(14, keys.size());
+        assertEquals(ChunkHistogram.chunkKey(0, 5), keys.get(0));
+        assertEquals(ChunkHistogram.chunkKey(6, 6), keys.get(keys.size() - 1));
+        // No overlap at all
+        assertTrue(Pipeliner.chunksIn(a, new BoundingBox(100, 0, 0, 200, 0, 50)).isEmpty());
+    }
+
+    @Test
+    void testRegionNeedsBaseline() {
+        Island a = island("a");
+        when(a.getProtectionRange()).thenReturn(50);
+        IslandBlockCount ibc = new IslandBlockCount("a", "BSkyBlock");
+        BlockLimitsListener bll = mock(BlockLimitsListener.class);
+        when(bll.getIsland(a)).thenReturn(ibc);
+        when(addon.getBlockLimitListener()).thenReturn(bll);
+        // Chunk 20 is outside the island and is ignored
+        List<Long> chunks = List.of(ChunkHistogram.chunkKey(0, 0), ChunkHistogram.chunkKey(20, 0));
+        List<Integer> argCounts = new ArrayList<>();
+        try (MockedConstruction<RecountCalculator> mockedCalc = Mockito.mockConstruction(RecountCalculator.class,
+                (mock, context) -> argCounts.add(context.arguments().size()))) {
+            assertFalse(pipeliner.hasBaseline(a, Environment.NORMAL, chunks));
+            pipeliner.addRegion(a, Environment.NORMAL, chunks, Lane.ADMIN);
+            pipeliner.stop();
+            ChunkHistogram baseline = new ChunkHistogram();
+            ibc.setChunkCounts(Environment.NORMAL, ChunkHistogram.chunkKey(0, 0), baseline);
+            // Counts of unknown materials are no baseline
+            assertFalse(pipeliner.hasBaseline(a, Environment.NORMAL, chunks));
+            baseline.setStamp(1234L);
+            assertTrue(pipeliner.hasBaseline(a, Environment.NORMAL, chunks));
+            pipeliner.addRegion(a, Environment.NORMAL, chunks, Lane.ADMIN);
+        }
+        // A full recount first, then a region recount
+        assertEquals(List.of(5, 6), argCounts);
+    }
 }
@@ -40,9 +40,11 @@ class ResultsTest {
     @Test
     void testResultEnumValues() {
         Result[] values = Result.values();
-        assertEquals(3, values.length);
+        assertEquals(5, values.length);
         assertNotNull(Result.valueOf("AVAILABLE"));
         assertNotNull(Result.valueOf("IN_PROGRESS"));
         assertNotNull(Result.valueOf("TIMEOUT"));
+        assertNotNull(Result.valueOf("FAILED"));
+        assertNotNull(Result.valueOf("NO_ISLAND"));
     }
 }
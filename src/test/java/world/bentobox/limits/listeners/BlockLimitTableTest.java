@@ -0,0 +1,86 @@
+package world.bentobox.limits.listeners;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.World;
+import org.bukkit.World.Environment;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockbukkit.mockbukkit.MockBukkit;
+
+import world.bentobox.limits.BlockGroup;
+
+class BlockLimitTableTest {
+
+    private final Map<Environment, Map<NamespacedKey, Integer>> envDefaults = new EnumMap<>(Environment.class);
+    private final Map<World, Map<NamespacedKey, Integer>> worldLimits = new HashMap<>();
+    private final Map<NamespacedKey, List<BlockGroup>> groups = new HashMap<>();
+    private BlockLimitTable table;
+    private World world;
+
+    @BeforeEach
+    void setUp() {
+        MockBukkit.mock();
+        world = mock(World.class);
+        envDefaults.put(Environment.NORMAL, new HashMap<>());
+        table = new BlockLimitTable(envDefaults, worldLimits, k -> groups.getOrDefault(k, List.of()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        MockBukkit.unmock();
+    }
+
+    @Test
+    void testNoLimit() {
+        assertEquals(BlockLimitTable.NONE, table.getLimit(world, Environment.NORMAL, Material.STONE.getKey()));
+    }
+
+    @Test
+    void testEnvDefault() {
+        envDefaults.get(Environment.NORMAL).put(Material.HOPPER.getKey(), 4);
+        assertEquals(4, table.getLimit(world, Environment.NORMAL, Material.HOPPER.getKey()));
+    }
+
+    @Test
+    void testWorldLimitOverridesEnvDefault() {
+        envDefaults.get(Environment.NORMAL).put(Material.HOPPER.getKey(), 4);
+        worldLimits.put(world, Map.of(Material.HOPPER.getKey(), 2));
+        assertEquals(2, table.getLimit(world, Environment.NORMAL, Material.HOPPER.getKey()));
+    }
+
+    @Test
+    void testCustomKeyUsesSideMap() {
+        NamespacedKey custom = NamespacedKey.fromString("iafestivities:christmas/tree");
+        envDefaults.get(Environment.NORMAL).put(custom, 3);
+        assertEquals(3, table.getLimit(world, Environment.NORMAL, custom));
+    }
+
+    @Test
+    void testInvalidateRecompiles() {
+        assertEquals(BlockLimitTable.NONE, table.getLimit(world, Environment.NORMAL, Material.HOPPER.getKey()));
+        envDefaults.get(Environment.NORMAL).put(Material.HOPPER.getKey(), 4);
+        // Still the compiled value until invalidated
+        assertEquals(BlockLimitTable.NONE, table.getLimit(world, Environment.NORMAL, Material.HOPPER.getKey()));
+        table.invalidate();
+        assertEquals(4, table.getLimit(world, Environment.NORMAL, Material.HOPPER.getKey()));
+    }
+
+    @Test
+    void testGroups() {
+        BlockGroup group = new BlockGroup("Pistons", Set.of(Material.PISTON.getKey()), 5, Material.PISTON);
+        groups.put(Material.PISTON.getKey(), List.of(group));
+        assertEquals(1, table.getGroups(Material.PISTON.getKey()).length);
+        assertEquals(0, table.getGroups(Material.STONE.getKey()).length);
+    }
+}
@@ -4,6 +4,8 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
@@ -11,16 +13,17 @@ import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
-import java.lang.reflect.Field;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 import org.bukkit.Location;
@@ -82,7 +85,9 @@ import world.bentobox.bentobox.database.objects.Island;
 import world.bentobox.bentobox.managers.IslandsManager;
 import world.bentobox.limits.Limits;
 import org.mockbukkit.mockbukkit.MockBukkit;
+import world.bentobox.limits.objects.ChunkHistogram;
 import world.bentobox.limits.objects.IslandBlockCount;
+import world.bentobox.limits.objects.IslandChunkCounts;
 
 @ExtendWith(MockitoExtension.class)
 @MockitoSettings(strictness = Strictness.LENIENT)
@@ -255,6 +260,13 @@ class BlockLimitsListenerTest {
         assertEquals(Material.STONE.getKey(), listener.fixMaterial(blockData));
     }
 
+    @Test
+    void testFixMaterialType() {
+        BlockData blockData = mock(BlockData.class);
+        when(blockData.getMaterial()).thenReturn(Material.CHIPPED_ANVIL);
+        assertEquals(Material.ANVIL, listener.fixMaterialType(blockData));
+    }
+
     @Test
     void testFixMaterialCopperWallTorch() {
         BlockData blockData = mock(BlockData.class);
@@ -474,6 +486,37 @@ class BlockLimitsListenerTest {
         assertNull(listener.getIsland("test-island-id"));
     }
 
+    @Test
+    void testBlockPlaceUnlimitedMaterialSkippedWhenCountingLimitedOnly() {
+        when(limitsSettings.isCountLimitedBlocksOnly()).thenReturn(true);
+        Block block = mockBlock(Material.DIRT, blockLocation);
+        BlockState replacedState = mock(BlockState.class);
+        BlockPlaceEvent event = new BlockPlaceEvent(block, replacedState, block, new ItemStack(Material.DIRT), player, true, EquipmentSlot.HAND);
+
+        listener.onBlock(event);
+
+        assertFalse(event.isCancelled());
+        assertNull(listener.getIsland("test-island-id"));
+        verify(islandsManager, never()).getIslandAt(any());
+    }
+
+    @Test
+    void testBlockPlaceLimitedMaterialCountedWhenCountingLimitedOnly() {
+        when(limitsSettings.isCountLimitedBlocksOnly()).thenReturn(true);
+        // HOPPER has a config limit; DIRT only an island limit
+        IslandBlockCount ibc = new IslandBlockCount("test-island-id", "BSkyBlock");
+        ibc.setBlockLimit(Environment.NORMAL, Material.DIRT.getKey(), 5);
+        listener.setIsland("test-island-id", ibc);
+        for (Material m : List.of(Material.HOPPER, Material.DIRT)) {
+            Block block = mockBlock(m, blockLocation);
+            listener.onBlock(new BlockPlaceEvent(block, mock(BlockState.class), block, new ItemStack(m), player, true,
+                    EquipmentSlot.HAND));
+        }
+
+        assertEquals(1, ibc.getBlockCount(Material.HOPPER.getKey()));
+        assertEquals(1, ibc.getBlockCount(Material.DIRT.getKey()));
+    }
+
     @Test
     void testBlockPlaceOutsideGameModeWorldIgnored() {
         when(addon.inGameModeWorld(world)).thenReturn(false);
@@ -730,6 +773,66 @@ class BlockLimitsListenerTest {
         assertEquals(1, ibc.getBlockCount(Material.GRASS_BLOCK.getKey()));
     }
 
+    @Test
+    void testBlockSpreadSaveBatchedUntilFlush() {
+        IslandBlockCount ibc = new IslandBlockCount("test-island-id", "BSkyBlock");
+        ibc.add(Environment.NORMAL, Material.DIRT.getKey());
+        listener.setIsland("test-island-id", ibc);
+
+        Block block = mockBlock(Material.DIRT, blockLocation);
+        Block source = mockBlock(Material.GRASS_BLOCK, new Location(world, 101, 65, 100));
+        BlockState newState = mock(BlockState.class);
+        BlockData newBlockData = mock(BlockData.class);
+        when(newBlockData.getMaterial()).thenReturn(Material.GRASS_BLOCK);
+        when(newState.getBlockData()).thenReturn(newBlockData);
+        listener.onBlock(new BlockSpreadEvent(block, source, newState));
+
+        // Counted at once, but the island is only marked for saving when the batch applies
+        assertEquals(1, ibc.getBlockCount(Material.GRASS_BLOCK.getKey()));
+        assertEquals(0, listener.getFlusher().getBacklog());
+        assertEquals(1, listener.getFlusher().flush());
+    }
+
+    @Test
+    void testBlockSpreadCancelledAtLimitNeedsNoSave() {
+        IslandBlockCount ibc = new IslandBlockCount("test-island-id", "BSkyBlock");
+        ibc.add(Environment.NORMAL, Material.DIRT.getKey());
+        ibc.setBlockLimit(Environment.NORMAL, Material.GRASS_BLOCK.getKey(), 1);
+        ibc.add(Environment.NORMAL, Material.GRASS_BLOCK.getKey());
+        listener.setIsland("test-island-id", ibc);
+
+        Block block = mockBlock(Material.DIRT, blockLocation);
+        Block source = mockBlock(Material.GRASS_BLOCK, new Location(world, 101, 65, 100));
+        BlockState newState = mock(BlockState.class);
+        BlockData newBlockData = mock(BlockData.class);
+        when(newBlockData.getMaterial()).thenReturn(Material.GRASS_BLOCK);
+        when(newState.getBlockData()).thenReturn(newBlockData);
+        listener.onBlock(new BlockSpreadEvent(block, source, newState));
+
+        // The dirt removed and put back nets out to no change
+        assertEquals(0, listener.getFlusher().flush());
+    }
+
+    @Test
+    void testBlockSpreadLooksUpIslandOnce() {
+        IslandBlockCount ibc = new IslandBlockCount("test-island-id", "BSkyBlock");
+        ibc.add(Environment.NORMAL, Material.DIRT.getKey());
+        ibc.setBlockLimit(Environment.NORMAL, Material.GRASS_BLOCK.getKey(), 1);
+        ibc.add(Environment.NORMAL, Material.GRASS_BLOCK.getKey());
+        listener.setIsland("test-island-id", ibc);
+
+        Block block = mockBlock(Material.DIRT, blockLocation);
+        Block source = mockBlock(Material.GRASS_BLOCK, new Location(world, 101, 65, 100));
+        BlockState newState = mock(BlockState.class);
+        BlockData newBlockData = mock(BlockData.class);
+        when(newBlockData.getMaterial()).thenReturn(Material.GRASS_BLOCK);
+        when(newState.getBlockData()).thenReturn(newBlockData);
+        listener.onBlock(new BlockSpreadEvent(block, source, newState));
+
+        // Remove, limit check and restore share one island lookup
+        verify(islandsManager, times(1)).getIslandAt(any(Location.class));
+    }
+
     // --- BlockFromToEvent tests ---
 
     @Test
@@ -1323,6 +1426,28 @@ class BlockLimitsListenerTest {
         assertEquals(0, listener.getIsland("test-island-id").getBlockCount(Material.STONE.getKey()));
     }
 
+    @Test
+    void testExplodeLooksUpIslandOnceAndStopsAtZero() {
+        when(island.inIslandSpace(any(Location.class))).thenReturn(true);
+        IslandBlockCount ibc = new IslandBlockCount("test-island-id", "BSkyBlock");
+        ibc.add(Environment.NORMAL, Material.STONE.getKey());
+        ibc.add(Environment.NORMAL, Material.STONE.getKey());
+        ibc.add(Environment.NORMAL, Material.HOPPER.getKey());
+        listener.setIsland("test-island-id", ibc);
+
+        List<Block> blocks = List.of(
+                mockBlock(Material.STONE, new Location(world, 100, 65, 100)),
+                mockBlock(Material.STONE, new Location(world, 101, 65, 100)),
+                mockBlock(Material.STONE, new Location(world, 102, 65, 100)),
+                mockBlock(Material.HOPPER, new Location(world, 103, 65, 100)));
+        Entity entity = mock(Entity.class);
+        listener.onBlock(new EntityExplodeEvent(entity, blockLocation, blocks, 1.0f, ExplosionResult.DESTROY));
+
+        assertEquals(0, ibc.getBlockCount(Material.STONE.getKey()));
+        assertEquals(0, ibc.getBlockCount(Material.HOPPER.getKey()));
+        verify(islandsManager, times(1)).getIslandAt(any());
+    }
+
     // --- EntityChangeBlockEvent tests ---
 
     @Test
@@ -1365,14 +1490,7 @@ class BlockLimitsListenerTest {
     @Test
     void testIslandLimitTakesPrecedenceOverWorldLimit() throws Exception {
         // Set world limit for COBBLESTONE = 5
-        Field worldLimitField = BlockLimitsListener.class.getDeclaredField("worldLimitMap");
-        worldLimitField.setAccessible(true);
-        @SuppressWarnings("unchecked")
-        Map<World, Map<NamespacedKey, Integer>> worldLimitMap =
-                (Map<World, Map<NamespacedKey, Integer>>) worldLimitField.get(listener);
-        Map<NamespacedKey, Integer> worldLimits = new HashMap<>();
-        worldLimits.put(Material.COBBLESTONE.getKey(), 5);
-        worldLimitMap.put(world, worldLimits);
+        listener.setWorldLimit(world, Material.COBBLESTONE.getKey(), 5);
 
         // Set island-specific limit for COBBLESTONE = 2, pre-populate with 2
         IslandBlockCount ibc = new IslandBlockCount("test-island-id", "BSkyBlock");
@@ -1393,17 +1511,10 @@ class BlockLimitsListenerTest {
     @Test
     void testWorldLimitTakesPrecedenceOverDefaultLimit() throws Exception {
         // Set default limit for COBBLESTONE = 10
-        listener.getEnvDefaultLimitMap().get(Environment.NORMAL).put(Material.COBBLESTONE.getKey(), 10);
+        listener.setEnvDefaultLimit(Environment.NORMAL, Material.COBBLESTONE.getKey(), 10);
 
         // Set world limit for COBBLESTONE = 3
-        Field worldLimitField = BlockLimitsListener.class.getDeclaredField("worldLimitMap");
-        worldLimitField.setAccessible(true);
-        @SuppressWarnings("unchecked")
-        Map<World, Map<NamespacedKey, Integer>> worldLimitMap =
-                (Map<World, Map<NamespacedKey, Integer>>) worldLimitField.get(listener);
-        Map<NamespacedKey, Integer> worldLimits = new HashMap<>();
-        worldLimits.put(Material.COBBLESTONE.getKey(), 3);
-        worldLimitMap.put(world, worldLimits);
+        listener.setWorldLimit(world, Material.COBBLESTONE.getKey(), 3);
 
         // No island-specific limit; pre-populate with 3
         IslandBlockCount ibc = new IslandBlockCount("test-island-id", "BSkyBlock");
@@ -1421,10 +1532,25 @@ class BlockLimitsListenerTest {
         assertTrue(event.isCancelled());
     }
 
+    @Test
+    void testLimitMapGettersAreReadOnly() {
+        listener.setEnvDefaultLimit(Environment.NORMAL, Material.COBBLESTONE.getKey(), 2);
+        int version = listener.getLimitsVersion();
+        Map<NamespacedKey, Integer> normal = listener.getEnvDefaultLimitMap().get(Environment.NORMAL);
+        assertEquals(2, normal.get(Material.COBBLESTONE.getKey()));
+        assertThrows(UnsupportedOperationException.class, () -> normal.put(Material.DIRT.getKey(), 1));
+        assertThrows(UnsupportedOperationException.class, () -> listener.getWorldLimitMap().clear());
+        // Reading does not throw the compiled limits away
+        assertEquals(version, listener.getLimitsVersion());
+        listener.setEnvDefaultLimit(Environment.NORMAL, Material.COBBLESTONE.getKey(), -1);
+        assertFalse(listener.getEnvDefaultLimitMap().get(Environment.NORMAL).containsKey(Material.COBBLESTONE.getKey()));
+        assertTrue(listener.getLimitsVersion() > version);
+    }
+
     @Test
     void testDefaultLimitAppliedWhenNoIslandOrWorldLimit() {
         // Set default limit for COBBLESTONE = 2
-        listener.getEnvDefaultLimitMap().get(Environment.NORMAL).put(Material.COBBLESTONE.getKey(), 2);
+        listener.setEnvDefaultLimit(Environment.NORMAL, Material.COBBLESTONE.getKey(), 2);
 
         // No island or world limit; pre-populate with 2
         IslandBlockCount ibc = new IslandBlockCount("test-island-id", "BSkyBlock");
@@ -1444,7 +1570,7 @@ class BlockLimitsListenerTest {
     @Test
     void testIslandOffsetIncreasesEffectiveLimit() {
         // Set default limit for COBBLESTONE = 2
-        listener.getEnvDefaultLimitMap().get(Environment.NORMAL).put(Material.COBBLESTONE.getKey(), 2);
+        listener.setEnvDefaultLimit(Environment.NORMAL, Material.COBBLESTONE.getKey(), 2);
 
         // Set island offset = +3 (effective limit = 5); pre-populate with 4
         IslandBlockCount ibc = new IslandBlockCount("test-island-id", "BSkyBlock");
@@ -1464,25 +1590,28 @@ class BlockLimitsListenerTest {
         assertFalse(event.isCancelled());
     }
 
-    // --- Batch save tests ---
+    // --- Write-behind save tests ---
 
     @Test
-    void testBatchSaveTriggersAfterThreshold() {
-        // CHANGE_LIMIT = 9, so the 10th change triggers a save
+    void testWriteBehindSavesOnceOnFlush() {
         for (int i = 0; i < 10; i++) {
             Block block = mockBlock(Material.STONE, blockLocation);
             BlockState replacedState = mock(BlockState.class);
             BlockPlaceEvent event = new BlockPlaceEvent(block, replacedState, block, new ItemStack(Material.STONE), player, true, EquipmentSlot.HAND);
             listener.onBlock(event);
         }
+        assertEquals(1, listener.getFlusher().getBacklog());
 
+        listener.getFlusher().flush();
+
+        // Ten changes to one island coalesce into one save
         Database<?> dbMock = mockedDb.constructed().get(0);
-        verify(dbMock, atLeastOnce()).saveObjectAsync(any());
+        verify(dbMock).saveObjectAsync(any());
+        assertEquals(0, listener.getFlusher().getBacklog());
     }
 
     @Test
-    void testNoSaveBeforeThresholdReached() {
-        // Fire 9 events (CHANGE_LIMIT = 9, save triggers when > 9, i.e. on 10th)
+    void testNoSaveBeforeFlush() {
         for (int i = 0; i < 9; i++) {
             Block block = mockBlock(Material.STONE, blockLocation);
             BlockState replacedState = mock(BlockState.class);
@@ -1494,6 +1623,41 @@ class BlockLimitsListenerTest {
         verify(dbMock, never()).saveObjectAsync(any());
     }
 
+    @Test
+    void testSaveFlushesDirtyIslands() {
+        Block block = mockBlock(Material.STONE, blockLocation);
+        BlockState replacedState = mock(BlockState.class);
+        listener.onBlock(new BlockPlaceEvent(block, replacedState, block, new ItemStack(Material.STONE), player, true, EquipmentSlot.HAND));
+
+        listener.save();
+
+        @SuppressWarnings("unchecked")
+        Database<IslandBlockCount> dbMock = mockedDb.constructed().get(0);
+        verify(dbMock).saveObjectAsync(listener.getIsland("test-island-id"));
+        assertEquals(0, listener.getFlusher().getBacklog());
+    }
+
+    @Test
+    void testChunkCountsStoredApartOnlyWhenChanged() {
+        IslandBlockCount ibc = new IslandBlockCount("test-island-id", "BSkyBlock");
+        ibc.setChunkCounts(Environment.NORMAL, ChunkHistogram.chunkKey(6, 6), new ChunkHistogram());
+        listener.setIsland("test-island-id", ibc);
+        @SuppressWarnings("unchecked")
+        Database<IslandBlockCount> records = mockedDb.constructed().get(0);
+        @SuppressWarnings("unchecked")
+        Database<IslandChunkCounts> chunkCounts = mockedDb.constructed().get(1);
+        // Saving the record does not write its chunk counts
+        verify(chunkCounts, never()).saveObjectAsync(any());
+
+        listener.save();
+        verify(chunkCounts).saveObjectAsync(any(IslandChunkCounts.class));
+        // The record is saved again, referring to the stored counts
+        verify(records, times(2)).saveObjectAsync(ibc);
+
+        listener.save();
+        verify(chunkCounts).saveObjectAsync(any(IslandChunkCounts.class));
+    }
+
     // --- IslandDeleteEvent tests ---
 
     @Test
@@ -1571,10 +1735,11 @@ class BlockLimitsListenerTest {
 
     @Test
     void testDecrementEntityWithoutRecordIsNoOp() {
-        // No record exists and repeated no-op decrements must not count toward the batch save
+        // No record exists and repeated no-op decrements must not mark anything for saving
         for (int i = 0; i < 20; i++) {
             listener.decrementEntity("unknown-island", Environment.NORMAL, EntityType.CHICKEN);
         }
+        listener.getFlusher().flush();
 
         assertNull(listener.getIsland("unknown-island"));
         Database<?> dbMock = mockedDb.constructed().get(0);
@@ -1582,21 +1747,21 @@ class BlockLimitsListenerTest {
     }
 
     @Test
-    void testEntityChangesBatchSaveAfterThreshold() {
+    void testEntityChangesSavedOnFlush() {
         when(island.getGameMode()).thenReturn("BSkyBlock");
-        // CHANGE_LIMIT = 9, so the 10th change triggers a save — entity changes must
-        // join the same batch-save cycle as block changes (they used to be persisted
-        // only on addon disable, losing counts on a crash)
+        // Entity changes must join the same write-behind cycle as block changes (they
+        // used to be persisted only on addon disable, losing counts on a crash)
         for (int i = 0; i < 10; i++) {
             listener.incrementEntity(island, Environment.NORMAL, EntityType.CHICKEN);
         }
+        listener.getFlusher().flush();
 
         Database<?> dbMock = mockedDb.constructed().get(0);
         verify(dbMock, atLeastOnce()).saveObjectAsync(any());
     }
 
     @Test
-    void testEntityChangesNoSaveBeforeThreshold() {
+    void testEntityChangesNoSaveBeforeFlush() {
         when(island.getGameMode()).thenReturn("BSkyBlock");
         for (int i = 0; i < 9; i++) {
             listener.incrementEntity(island, Environment.NORMAL, EntityType.CHICKEN);
@@ -1615,8 +1780,103 @@ class BlockLimitsListenerTest {
         for (int i = 0; i < 5; i++) {
             listener.decrementEntity("test-island-id", Environment.NORMAL, EntityType.CHICKEN);
         }
+        listener.getFlusher().flush();
 
         Database<?> dbMock = mockedDb.constructed().get(0);
         verify(dbMock, atLeastOnce()).saveObjectAsync(any());
     }
+
+    // --- Lazy loading ---
+
+    @SuppressWarnings("unchecked")
+    private Database<IslandBlockCount> lazyListenerDb(int cacheSize) {
+        when(limitsSettings.isLazyLoading()).thenReturn(true);
+        when(limitsSettings.getCacheSize()).thenReturn(cacheSize);
+        int constructed = mockedDb.constructed().size();
+        listener = new BlockLimitsListener(addon);
+        // The record database is the first one the listener makes
+        return mockedDb.constructed().get(constructed);
+    }
+
+    @Test
+    void testLazyLoadingSkipsLoadAllAndLoadsOnDemand() {
+        Database<IslandBlockCount> db = lazyListenerDb(10);
+        verify(db, never()).loadObjects();
+
+        IslandBlockCount stored = new IslandBlockCount("stored-id", "BSkyBlock");
+        stored.add(Environment.NORMAL, Material.HOPPER.getKey());
+        when(db.objectExists("stored-id")).thenReturn(true);
+        when(db.loadObject("stored-id")).thenReturn(stored);
+
+        assertSame(stored, listener.getIsland("stored-id"));
+        assertEquals(1, listener.getIsland("stored-id").getBlockCount(Material.HOPPER.getKey()));
+        assertNull(listener.getIsland("unknown-id"));
+    }
+
+    @Test
+    void testLazyLoadingWithUnboundedCacheLoadsStoredRecord() {
+        Database<IslandBlockCount> db = lazyListenerDb(0);
+        verify(db, never()).loadObjects();
+
+        IslandBlockCount stored = new IslandBlockCount("stored-id", "BSkyBlock");
+        stored.add(Environment.NORMAL, Material.HOPPER.getKey());
+        when(db.objectExists("stored-id")).thenReturn(true);
+        when(db.loadObject("stored-id")).thenReturn(stored);
+        when(island.getUniqueId()).thenReturn("stored-id");
+
+        assertSame(stored, listener.getIsland(island));
+        assertEquals(1, listener.getIsland(island).getBlockCount(Material.HOPPER.getKey()));
+        verify(db).loadObject("stored-id");
+    }
+
+    @Test
+    void testLazyLoadingEvictsLeastRecentlyUsedAfterSaving() {
+        Database<IslandBlockCount> db = lazyListenerDb(1);
+        when(db.saveObjectAsync(any())).thenReturn(new CompletableFuture<>());
+        Island first = mock(Island.class);
+        when(first.getUniqueId()).thenReturn("first");
+        when(first.getGameMode()).thenReturn("BSkyBlock");
+        Island second = mock(Island.class);
+        when(second.getUniqueId()).thenReturn("second");
+        when(second.getGameMode()).thenReturn("BSkyBlock");
+
+        IslandBlockCount firstIbc = listener.getIsland(first);
+        listener.getIsland(second);
+
+        // First record was evicted and flushed; until the save completes it is still served
+        verify(db).saveObjectAsync(firstIbc);
+        assertSame(firstIbc, listener.getIsland("first"));
+        verify(db, never()).loadObject("first");
+    }
+
+    @Test
+    void testPeekIslandNeitherLoadsNorCountsAsUse() throws Exception {
+        Database<IslandBlockCount> db = lazyListenerDb(2);
+        when(db.saveObjectAsync(any())).thenReturn(new CompletableFuture<>());
+        when(db.objectExists("stored-id")).thenReturn(true);
+        Island first = mock(Island.class);
+        when(first.getUniqueId()).thenReturn("first");
+        when(first.getGameMode()).thenReturn("BSkyBlock");
+        Island second = mock(Island.class);
+        when(second.getUniqueId()).thenReturn("second");
+        when(second.getGameMode()).thenReturn("BSkyBlock");
+        Island third = mock(Island.class);
+        when(third.getUniqueId()).thenReturn("third");
+        when(third.getGameMode()).thenReturn("BSkyBlock");
+
+        IslandBlockCount firstIbc = listener.getIsland(first);
+        listener.getIsland(second);
+        assertSame(firstIbc, listener.peekIsland("first"));
+        assertNull(listener.peekIsland("stored-id"));
+        verify(db, never()).loadObject(anyString());
+
+        // Off the main thread the cache is not read
+        CompletableFuture<IslandBlockCount> offMain = new CompletableFuture<>();
+        new Thread(() -> offMain.complete(listener.peekIsland("first"))).start();
+        assertNull(offMain.get(5, TimeUnit.SECONDS));
+
+        // The peek did not make the first record the most recently used
+        listener.getIsland(third);
+        verify(db).saveObjectAsync(firstIbc);
+    }
 }
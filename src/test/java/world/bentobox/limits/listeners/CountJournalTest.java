@@ -0,0 +1,117 @@
+package world.bentobox.limits.listeners;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bukkit.Material;
+import org.bukkit.World.Environment;
+import org.bukkit.entity.EntityType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.mockbukkit.mockbukkit.MockBukkit;
+
+import world.bentobox.limits.Limits;
+import world.bentobox.limits.objects.IslandBlockCount;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class CountJournalTest {
+
+    @Mock
+    private Limits addon;
+    @TempDir
+    File folder;
+
+    private final Map<String, IslandBlockCount> records = new HashMap<>();
+    private CountJournal journal;
+
+    @BeforeEach
+    void setUp() {
+        MockBukkit.mock();
+        journal = new CountJournal(addon, folder);
+    }
+
+    @AfterEach
+    void tearDown() {
+        MockBukkit.unmock();
+    }
+
+    private void write(String name, String... lines) throws IOException {
+        Files.write(new File(folder, name).toPath(), List.of(lines), StandardCharsets.UTF_8);
+    }
+
+    private int replay() {
+        return journal.replay((id, gm) -> records.computeIfAbsent(id, k -> new IslandBlockCount(k, gm)));
+    }
+
+    @Test
+    void testReplayAppliesBlockAndEntityDeltas() throws IOException {
+        write("count-journal.log",
+                "1\tisland1\tBSkyBlock\tNORMAL\tB\tminecraft:hopper\t1",
+                "2\tisland1\tBSkyBlock\tNORMAL\tB\tminecraft:hopper\t1",
+                "3\tisland1\tBSkyBlock\tNETHER\tE\tCOW\t1",
+                "4\tisland1\tBSkyBlock\tNORMAL\tB\tminecraft:hopper\t-1");
+
+        assertEquals(4, replay());
+        IslandBlockCount ibc = records.get("island1");
+        assertEquals(1, ibc.getBlockCount(Environment.NORMAL, Material.HOPPER.getKey()));
+        assertEquals(1, ibc.getEntityCount(Environment.NETHER, EntityType.COW));
+        assertEquals(4, ibc.getJournalSeq());
+        assertEquals(4, journal.getSeq());
+    }
+
+    @Test
+    void testReplaySkipsLinesInSnapshot() throws IOException {
+        IslandBlockCount saved = new IslandBlockCount("island1", "BSkyBlock");
+        saved.add(Environment.NORMAL, Material.HOPPER.getKey());
+        saved.setJournalSeq(1);
+        records.put("island1", saved);
+        write("count-journal.old", "1\tisland1\tBSkyBlock\tNORMAL\tB\tminecraft:hopper\t1");
+        write("count-journal.log", "2\tisland1\tBSkyBlock\tNORMAL\tB\tminecraft:hopper\t1");
+
+        assertEquals(1, replay());
+        assertEquals(2, saved.getBlockCount(Environment.NORMAL, Material.HOPPER.getKey()));
+    }
+
+    @Test
+    void testLinesWrittenByIoThread() throws IOException {
+        assertTrue(journal.openWriter());
+        IslandBlockCount ibc = new IslandBlockCount("island1", "BSkyBlock");
+        journal.recordBlock(ibc, Environment.NORMAL, Material.HOPPER.getKey(), 1);
+        journal.recordEntity(ibc, Environment.NETHER, EntityType.COW, -1);
+        assertEquals(2, ibc.getJournalSeq());
+        // Closing writes out every line collected so far
+        journal.close();
+        assertFalse(journal.isOpen());
+        assertEquals(List.of("1\tisland1\tBSkyBlock\tNORMAL\tB\tminecraft:hopper\t1",
+                "2\tisland1\tBSkyBlock\tNETHER\tE\tCOW\t-1"),
+                Files.readAllLines(new File(folder, "count-journal.log").toPath(), StandardCharsets.UTF_8));
+        // Nothing is journalled once closed
+        journal.recordBlock(ibc, Environment.NORMAL, Material.HOPPER.getKey(), 1);
+        assertEquals(2, journal.getSeq());
+    }
+
+    @Test
+    void testReplayIgnoresMalformedLines() throws IOException {
+        write("count-journal.log", "garbage", "x\tisland1\tBSkyBlock\tNORMAL\tB\tminecraft:hopper\t1",
+                "5\tisland1\tBSkyBlock\tNOWHERE\tB\tminecraft:hopper\t1");
+
+        assertEquals(0, replay());
+    }
+}
@@ -0,0 +1,87 @@
+package world.bentobox.limits.listeners;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.World.Environment;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockbukkit.mockbukkit.MockBukkit;
+import org.mockito.Mock;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import world.bentobox.bentobox.BentoBox;
+import world.bentobox.limits.objects.IslandBlockCount;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class GrowthBatchTest {
+
+    private record Applied(IslandBlockCount ibc, Environment env, long chunk, NamespacedKey key, int delta) {
+    }
+
+    @Mock
+    private BentoBox plugin;
+
+    private MockedStatic<BentoBox> mockedBentoBox;
+    private final List<Applied> applied = new ArrayList<>();
+    private GrowthBatch batch;
+
+    @BeforeEach
+    void setUp() {
+        MockBukkit.mock();
+        mockedBentoBox = Mockito.mockStatic(BentoBox.class);
+        mockedBentoBox.when(BentoBox::getInstance).thenReturn(plugin);
+        batch = new GrowthBatch((ibc, env, chunk, key, delta) -> applied.add(new Applied(ibc, env, chunk, key, delta)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        mockedBentoBox.close();
+        MockBukkit.unmock();
+    }
+
+    @Test
+    void testChangesSummedPerIslandEnvChunkAndKey() {
+        IslandBlockCount a = new IslandBlockCount("a", "BSkyBlock");
+        IslandBlockCount b = new IslandBlockCount("b", "BSkyBlock");
+        NamespacedKey wheat = Material.WHEAT.getKey();
+        for (int i = 0; i < 100; i++) {
+            batch.add(a, Environment.NORMAL, 1L, wheat, 1);
+        }
+        batch.add(a, Environment.NORMAL, 2L, wheat, -3);
+        batch.add(a, Environment.NETHER, 1L, wheat, 2);
+        batch.add(b, Environment.NORMAL, 1L, wheat, 1);
+        assertEquals(4, batch.size());
+
+        batch.flush();
+        assertEquals(0, batch.size());
+        assertEquals(4, applied.size());
+        assertTrue(applied.contains(new Applied(a, Environment.NORMAL, 1L, wheat, 100)));
+        assertTrue(applied.contains(new Applied(a, Environment.NORMAL, 2L, wheat, -3)));
+        assertTrue(applied.contains(new Applied(a, Environment.NETHER, 1L, wheat, 2)));
+        assertTrue(applied.contains(new Applied(b, Environment.NORMAL, 1L, wheat, 1)));
+    }
+
+    @Test
+    void testUndoneChangeIsNotApplied() {
+        IslandBlockCount a = new IslandBlockCount("a", "BSkyBlock");
+        batch.add(a, Environment.NORMAL, 1L, Material.DIRT.getKey(), -1);
+        batch.add(a, Environment.NORMAL, 1L, Material.DIRT.getKey(), 1);
+        assertEquals(0, batch.size());
+
+        batch.flush();
+        assertTrue(applied.isEmpty());
+    }
+}
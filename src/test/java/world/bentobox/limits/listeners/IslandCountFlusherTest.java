@@ -0,0 +1,100 @@
+package world.bentobox.limits.listeners;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import world.bentobox.bentobox.database.Database;
+import world.bentobox.limits.Limits;
+import world.bentobox.limits.objects.IslandBlockCount;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class IslandCountFlusherTest {
+
+    @Mock
+    private Limits addon;
+    @Mock
+    private Database<IslandBlockCount> handler;
+
+    private final Map<String, IslandBlockCount> records = new HashMap<>();
+    private IslandCountFlusher flusher;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < 5; i++) {
+            records.put("island" + i, new IslandBlockCount("island" + i, "BSkyBlock"));
+        }
+        flusher = new IslandCountFlusher(addon, handler, records::get, 2);
+    }
+
+    @Test
+    void testFlushSavesOneBatch() {
+        records.keySet().forEach(flusher::markDirty);
+
+        assertEquals(2, flusher.flush());
+        verify(handler, times(2)).saveObjectAsync(any());
+        assertEquals(3, flusher.getBacklog());
+        assertEquals(5, flusher.getPeakBacklog());
+        assertEquals(1, flusher.getBackloggedBatches());
+    }
+
+    @Test
+    void testMarkDirtyCoalesces() {
+        for (int i = 0; i < 100; i++) {
+            flusher.markDirty("island0");
+        }
+        assertEquals(1, flusher.flush());
+        verify(handler).saveObjectAsync(records.get("island0"));
+        assertFalse(records.get("island0").isChanged());
+    }
+
+    @Test
+    void testFlushAllSavesEverything() {
+        records.keySet().forEach(flusher::markDirty);
+
+        assertEquals(5, flusher.flushAll());
+        assertEquals(0, flusher.getBacklog());
+        assertEquals(5, flusher.getSaved());
+    }
+
+    @Test
+    void testRemovedAndMissingIslandsAreNotSaved() {
+        flusher.markDirty("island0");
+        flusher.markDirty("gone");
+        flusher.remove("island0");
+
+        assertEquals(0, flusher.flushAll());
+        verify(handler, never()).saveObjectAsync(any());
+    }
+
+    @Test
+    void testSaveNowIsWaitedForBySnapshot() {
+        CompletableFuture<Boolean> pending = new CompletableFuture<>();
+        when(handler.saveObjectAsync(any())).thenReturn(pending);
+        flusher.markDirty("island0");
+
+        flusher.saveNow(records.get("island0"));
+        assertEquals(0, flusher.getBacklog());
+        assertFalse(records.get("island0").isChanged());
+        // A snapshot with nothing dirty still waits for the direct save
+        assertFalse(flusher.flushAllAsync().isDone());
+        verify(handler).saveObjectAsync(records.get("island0"));
+    }
+}
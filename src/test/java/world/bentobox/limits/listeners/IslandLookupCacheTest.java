@@ -0,0 +1,85 @@
+package world.bentobox.limits.listeners;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Optional;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import world.bentobox.bentobox.database.objects.Island;
+import world.bentobox.bentobox.managers.IslandsManager;
+import world.bentobox.limits.Limits;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class IslandLookupCacheTest {
+
+    @Mock
+    private Limits addon;
+    @Mock
+    private IslandsManager im;
+    @Mock
+    private World world;
+    @Mock
+    private Island island;
+
+    private IslandLookupCache cache;
+
+    @BeforeEach
+    void setUp() {
+        when(addon.getIslands()).thenReturn(im);
+        when(island.getUniqueId()).thenReturn("island1");
+        when(im.getIslandById("island1")).thenReturn(Optional.of(island));
+        // Island space is x 0..99; everything else is no island
+        when(im.getIslandAt(any())).thenAnswer(
+                inv -> ((Location) inv.getArgument(0)).getBlockX() < 100 ? Optional.of(island) : Optional.empty());
+        cache = new IslandLookupCache(addon);
+    }
+
+    @Test
+    void testIslandChunkCached() {
+        assertSame(island, cache.getIslandAt(new Location(world, 5, 64, 5)).orElseThrow());
+        clearInvocations(im);
+        assertSame(island, cache.getIslandAt(new Location(world, 10, 70, 12)).orElseThrow());
+        verify(im, never()).getIslandAt(any());
+    }
+
+    @Test
+    void testNoIslandChunkCached() {
+        assertFalse(cache.getIslandAt(new Location(world, 200, 64, 5)).isPresent());
+        clearInvocations(im);
+        assertFalse(cache.getIslandAt(new Location(world, 201, 64, 6)).isPresent());
+        verify(im, never()).getIslandAt(any());
+    }
+
+    @Test
+    void testBorderChunkNotCached() {
+        // Chunk x 96..111 straddles the island edge
+        assertSame(island, cache.getIslandAt(new Location(world, 97, 64, 5)).orElseThrow());
+        assertFalse(cache.getIslandAt(new Location(world, 105, 64, 5)).isPresent());
+    }
+
+    @Test
+    void testClearedOnIslandChange() {
+        cache.getIslandAt(new Location(world, 5, 64, 5));
+        cache.onIslandDeleted(null);
+        clearInvocations(im);
+        cache.getIslandAt(new Location(world, 5, 64, 5));
+        verify(im, atLeastOnce()).getIslandAt(any());
+    }
+}
@@ -0,0 +1,86 @@
+package world.bentobox.limits.objects;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockbukkit.mockbukkit.MockBukkit;
+
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Multiset;
+
+import world.bentobox.limits.KeyIndex;
+
+class ChunkHistogramTest {
+
+    @BeforeEach
+    void setUp() {
+        MockBukkit.mock();
+    }
+
+    @AfterEach
+    void tearDown() {
+        MockBukkit.unmock();
+    }
+
+    @Test
+    void testChunkKeyRoundTrip() {
+        long key = ChunkHistogram.chunkKey(-3, 7);
+        assertEquals(-3, ChunkHistogram.chunkX(key));
+        assertEquals(7, ChunkHistogram.chunkZ(key));
+        key = ChunkHistogram.chunkKey(12, -1);
+        assertEquals(12, ChunkHistogram.chunkX(key));
+        assertEquals(-1, ChunkHistogram.chunkZ(key));
+    }
+
+    @Test
+    void testOfSkipsCustomKeys() {
+        Multiset<NamespacedKey> counts = HashMultiset.create();
+        counts.add(Material.HOPPER.getKey(), 3);
+        counts.add(NamespacedKey.fromString("itemsadder:ruby_block"), 2);
+        ChunkHistogram h = ChunkHistogram.of(counts);
+        assertEquals(1, h.size());
+        assertEquals(3, h.get(KeyIndex.ordinal(Material.HOPPER.getKey())));
+    }
+
+    @Test
+    void testAddAndRemove() {
+        ChunkHistogram h = new ChunkHistogram();
+        int hopper = KeyIndex.ordinal(Material.HOPPER.getKey());
+        int chest = KeyIndex.ordinal(Material.CHEST.getKey());
+        // Removing something absent does nothing
+        h.add(hopper, -1);
+        assertEquals(0, h.size());
+        h.add(hopper, 2);
+        h.add(chest, 1);
+        assertEquals(2, h.size());
+        h.add(hopper, -5);
+        assertEquals(0, h.get(hopper));
+        assertEquals(1, h.size());
+        assertEquals(chest, h.ordinalAt(0));
+        assertEquals(1, h.countAt(0));
+    }
+
+    @Test
+    void testCopyIsIndependent() {
+        ChunkHistogram h = new ChunkHistogram();
+        int hopper = KeyIndex.ordinal(Material.HOPPER.getKey());
+        h.add(hopper, 2);
+        h.setStamp(42L);
+        ChunkHistogram copy = h.copy();
+        h.add(hopper, 1);
+        h.invalidate();
+        assertEquals(2, copy.get(hopper));
+        assertEquals(42L, copy.getStamp());
+        assertFalse(copy.isChanged());
+        // Changed counts keep the stamp of what was scanned
+        assertEquals(42L, h.getStamp());
+        assertTrue(h.isChanged());
+        assertTrue(h.copy().isChanged());
+    }
+}
@@ -2,8 +2,12 @@ package world.bentobox.limits.objects;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.EnumMap;
+import java.util.Map;
+
 import org.bukkit.Material;
 import org.bukkit.NamespacedKey;
 import org.bukkit.World.Environment;
@@ -17,6 +21,8 @@ import org.mockbukkit.mockbukkit.MockBukkit;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 
+import world.bentobox.limits.KeyIndex;
+
 class IslandBlockCountTest {
 
     private IslandBlockCount ibc;
@@ -64,6 +70,16 @@ class IslandBlockCountTest {
         assertFalse(ibc.getBlockCounts(Environment.NORMAL).containsKey(stoneKey));
     }
 
+    @Test
+    void testRemoveAmountStopsAtZero() {
+        ibc.add(Environment.NORMAL, stoneKey);
+        ibc.add(Environment.NORMAL, stoneKey);
+        assertEquals(1, ibc.remove(Environment.NORMAL, stoneKey, 1));
+        assertEquals(1, ibc.remove(Environment.NORMAL, stoneKey, 5));
+        assertEquals(0, ibc.remove(Environment.NORMAL, stoneKey, 5));
+        assertFalse(ibc.getBlockCounts(Environment.NORMAL).containsKey(stoneKey));
+    }
+
     @Test
     void testGetBlockCountUnknownMaterial() {
         assertEquals(0, ibc.getBlockCount(stoneKey));
@@ -175,6 +191,35 @@ class IslandBlockCountTest {
         assertFalse(ibc.isChanged());
     }
 
+    @Test
+    void testReachedVersionMovesOnlyWhenWatchedLimitCrossed() {
+        NamespacedKey hopper = Material.HOPPER.getKey();
+        ibc.watchBlockLimits(Environment.NORMAL, Map.of(hopper, 2));
+        int version = ibc.getReachedVersion();
+        // Unwatched block, and a watched one still below its limit
+        ibc.add(Environment.NORMAL, stoneKey);
+        ibc.add(Environment.NORMAL, hopper);
+        assertEquals(version, ibc.getReachedVersion());
+        assertTrue(ibc.isChanged());
+        // Up to the limit, then past it
+        ibc.add(Environment.NORMAL, hopper);
+        assertEquals(version + 1, ibc.getReachedVersion());
+        ibc.add(Environment.NORMAL, hopper);
+        assertEquals(version + 1, ibc.getReachedVersion());
+        // Back below it in one go
+        ibc.remove(Environment.NORMAL, hopper, 2);
+        assertEquals(version + 2, ibc.getReachedVersion());
+        // Other environments are not watched
+        ibc.add(Environment.NETHER, hopper);
+        ibc.add(Environment.NETHER, hopper);
+        assertEquals(version + 2, ibc.getReachedVersion());
+        // Limit and entity changes always count
+        ibc.setBlockLimit(Environment.NORMAL, hopper, 5);
+        assertEquals(version + 3, ibc.getReachedVersion());
+        ibc.incrementEntity(Environment.NORMAL, EntityType.COW);
+        assertEquals(version + 4, ibc.getReachedVersion());
+    }
+
     @Test
     void testIsGameMode() {
         assertTrue(ibc.isGameMode("BSkyBlock"));
@@ -338,4 +383,110 @@ class IslandBlockCountTest {
         assertEquals(20, loaded.getBlockLimit(Environment.NORMAL, NamespacedKey.minecraft("hopper")));
         assertEquals(5, loaded.getBlockLimitOffset(Environment.NORMAL, NamespacedKey.minecraft("hopper")));
     }
+
+    @Test
+    void testChunkCountsRoundTrip() {
+        ChunkHistogram h = new ChunkHistogram();
+        h.add(KeyIndex.ordinal(Material.HOPPER.getKey()), 4);
+        h.setStamp(1234L);
+        long key = ChunkHistogram.chunkKey(-2, 5);
+        ibc.setChunkCounts(Environment.NETHER, key, h);
+        assertTrue(ibc.hasUnsavedChunkCounts());
+
+        Gson gson = buildBentoboxGson();
+        String stored = gson.toJson(ibc.storeChunkCounts(77L));
+        assertFalse(ibc.hasUnsavedChunkCounts());
+        assertTrue(ibc.isChanged());
+        // The record itself does not carry the chunk counts
+        String json = gson.toJson(ibc);
+        assertFalse(json.contains("envChunkCounts"));
+
+        IslandBlockCount loaded = gson.fromJson(json, IslandBlockCount.class);
+        assertNull(loaded.getChunkCounts(Environment.NETHER, key));
+        loaded.loadChunkCounts(gson.fromJson(stored, IslandChunkCounts.class));
+        ChunkHistogram read = loaded.getChunkCounts(Environment.NETHER, key);
+        assertEquals(1234L, read.getStamp());
+        assertFalse(read.isChanged());
+        assertEquals(4, read.get(KeyIndex.ordinal(Material.HOPPER.getKey())));
+        assertFalse(loaded.hasUnsavedChunkCounts());
+
+        // A block change in the chunk keeps the stamp and the counts in step
+        loaded.chunkBlockChanged(Environment.NETHER, key, KeyIndex.ordinal(Material.HOPPER.getKey()), 1);
+        assertEquals(1234L, read.getStamp());
+        assertTrue(read.isChanged());
+        assertEquals(5, read.get(KeyIndex.ordinal(Material.HOPPER.getKey())));
+        assertTrue(loaded.hasUnsavedChunkCounts());
+
+        // The changed flag survives storing
+        IslandChunkCounts again = gson.fromJson(gson.toJson(loaded.storeChunkCounts(78L)), IslandChunkCounts.class);
+        read = again.getEnvChunkCounts().get(Environment.NETHER).get(key);
+        assertEquals(1234L, read.getStamp());
+        assertTrue(read.isChanged());
+
+        // Changes made without knowing where leave no usable baseline
+        loaded.invalidateChunkCounts();
+        read = loaded.getChunkCounts(Environment.NETHER, key);
+        assertEquals(0, read.getStamp());
+        assertTrue(read.isChanged());
+    }
+
+    @Test
+    void testStoredChunkCountsIgnoredIfRecordChangedSince() {
+        long key = ChunkHistogram.chunkKey(0, 0);
+        ibc.setChunkCounts(Environment.NORMAL, key, new ChunkHistogram());
+        IslandChunkCounts stored = ibc.storeChunkCounts(77L);
+        ibc.chunkBlockChanged(Environment.NORMAL, key, KeyIndex.ordinal(Material.HOPPER.getKey()), 1);
+
+        // Saved after the change: the stored counts lack it
+        Gson gson = buildBentoboxGson();
+        IslandBlockCount loaded = gson.fromJson(gson.toJson(ibc), IslandBlockCount.class);
+        loaded.loadChunkCounts(stored);
+        assertNull(loaded.getChunkCounts(Environment.NORMAL, key));
+    }
+
+    @Test
+    void testChunkCountsWithUnknownMaterialLoseStamp() {
+        // Written by a version that saved the chunk counts with the record
+        String json = "{\"uniqueId\":\"island\",\"gameMode\":\"BSkyBlock\",\"envChunkCounts\":{\"NORMAL\":"
+                + "{\"0,0\":{\"stamp\":1234,\"counts\":{\"minecraft:hopper\":2,\"minecraft:no_such_block\":3}}}}}";
+        IslandBlockCount loaded = buildBentoboxGson().fromJson(json, IslandBlockCount.class);
+        loaded.loadChunkCounts(null);
+
+        ChunkHistogram read = loaded.getChunkCounts(Environment.NORMAL, ChunkHistogram.chunkKey(0, 0));
+        assertEquals(2, read.get(KeyIndex.ordinal(Material.HOPPER.getKey())));
+        assertEquals(0, read.getStamp());
+        // Kept, to be stored apart on the next write
+        assertTrue(loaded.hasUnsavedChunkCounts());
+    }
+
+    @Test
+    void testAddSeveral() {
+        ibc.add(Environment.NORMAL, stoneKey, 5);
+        ibc.add(Environment.NORMAL, stoneKey, 0);
+        assertEquals(5, ibc.getBlockCount(Environment.NORMAL, stoneKey));
+        assertEquals(2, ibc.remove(Environment.NORMAL, stoneKey, 2));
+        assertEquals(3, ibc.getBlockCount(Environment.NORMAL, stoneKey));
+    }
+
+    @Test
+    void testReplaceCountsKeepsCustomKeys() {
+        NamespacedKey custom = new NamespacedKey("myaddon", "custom_block");
+        ibc.add(Environment.NORMAL, stoneKey);
+        ibc.add(Environment.NETHER, custom);
+        ibc.incrementEntity(Environment.NORMAL, EntityType.COW);
+
+        KeyCountMap table = new KeyCountMap();
+        table.setInt(Material.HOPPER.getKey(), 3);
+        Map<Environment, KeyCountMap> blocks = new EnumMap<>(Environment.class);
+        blocks.put(Environment.NORMAL, table);
+        Map<Environment, Map<EntityType, Integer>> entities = new EnumMap<>(Environment.class);
+        entities.put(Environment.NORMAL, new EnumMap<>(Map.of(EntityType.PIG, 2)));
+        ibc.replaceCounts(blocks, entities);
+
+        assertEquals(0, ibc.getBlockCount(stoneKey));
+        assertEquals(3, ibc.getBlockCount(Environment.NORMAL, Material.HOPPER.getKey()));
+        assertEquals(1, ibc.getBlockCount(Environment.NETHER, custom));
+        assertEquals(0, ibc.getEntityCount(EntityType.COW));
+        assertEquals(2, ibc.getEntityCount(Environment.NORMAL, EntityType.PIG));
+    }
 }
@@ -0,0 +1,91 @@
+package world.bentobox.limits.objects;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockbukkit.mockbukkit.MockBukkit;
+
+class KeyCountMapTest {
+
+    private KeyCountMap map;
+
+    @BeforeEach
+    void setUp() {
+        MockBukkit.mock();
+        map = new KeyCountMap();
+    }
+
+    @AfterEach
+    void tearDown() {
+        MockBukkit.unmock();
+    }
+
+    @Test
+    void testIncrementDecrementVanilla() {
+        NamespacedKey stone = Material.STONE.getKey();
+        map.increment(stone);
+        map.increment(stone);
+        assertEquals(2, map.getInt(stone));
+        assertEquals(1, map.size());
+        assertTrue(map.decrement(stone));
+        assertTrue(map.decrement(stone));
+        assertFalse(map.containsKey(stone));
+        assertFalse(map.decrement(stone));
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    void testCustomKeysSurviveResizeAndRemoval() {
+        Map<NamespacedKey, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 50; i++) {
+            NamespacedKey key = new NamespacedKey("itemsadder", "block_" + i);
+            map.setInt(key, i + 1);
+            expected.put(key, i + 1);
+        }
+        for (int i = 0; i < 50; i += 3) {
+            NamespacedKey key = new NamespacedKey("itemsadder", "block_" + i);
+            map.remove(key);
+            expected.remove(key);
+        }
+        assertEquals(expected, map);
+        assertEquals(expected.size(), map.size());
+    }
+
+    @Test
+    void testPutZeroRemoves() {
+        map.put(Material.HOPPER.getKey(), 3);
+        assertEquals(3, map.get(Material.HOPPER.getKey()));
+        map.put(Material.HOPPER.getKey(), 0);
+        assertNull(map.get(Material.HOPPER.getKey()));
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    void testIteratorRemove() {
+        map.put(Material.STONE.getKey(), 1);
+        map.put(Material.WATER.getKey(), 2);
+        map.put(new NamespacedKey("oraxen", "amethyst_ore"), 3);
+        map.keySet().removeIf(k -> k.equals(Material.WATER.getKey()));
+        assertEquals(2, map.size());
+        assertFalse(map.containsKey(Material.WATER.getKey()));
+        assertEquals(3, map.getInt(new NamespacedKey("oraxen", "amethyst_ore")));
+    }
+
+    @Test
+    void testCopyConstructor() {
+        Map<NamespacedKey, Integer> source = new HashMap<>();
+        source.put(Material.STONE.getKey(), 4);
+        source.put(new NamespacedKey("oraxen", "amethyst_ore"), 2);
+        assertEquals(source, new KeyCountMap(source));
+    }
+}